@@ -2,8 +2,10 @@ package ru.bicev.book_catalog;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 
 @SpringBootApplication
+@EnableCaching
 public class BookCatalogApplication {
 
 	public static void main(String[] args) {
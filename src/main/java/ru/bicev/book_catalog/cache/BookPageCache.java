@@ -0,0 +1,79 @@
+package ru.bicev.book_catalog.cache;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.BookFilter;
+import ru.bicev.book_catalog.dto.PagedResponse;
+import ru.bicev.book_catalog.event.AuthorChangedEvent;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.RemoteAuthorChangedEvent;
+import ru.bicev.book_catalog.event.RemoteBookChangedEvent;
+import ru.bicev.book_catalog.util.CountMode;
+
+// Book listing results keyed by catalog version, filter, page, sort and count mode.
+// Every committed book or author write bumps the version, so older entries are never read again
+// and are left to Caffeine's size based eviction, whose frequency sketch also keeps one-off
+// queries from pushing out popular ones
+@Component
+public class BookPageCache {
+
+    public static final String NAME = "bookPages";
+
+    private final AtomicLong version = new AtomicLong();
+    private final Cache cache;
+
+    public BookPageCache(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(NAME);
+        if (cache == null) {
+            throw new IllegalStateException("Cache is not configured: " + NAME);
+        }
+    }
+
+    public PagedResponse<BookDto> get(BookFilter filter, boolean fuzzy, Pageable pageable, CountMode countMode,
+            Supplier<PagedResponse<BookDto>> loader) {
+        return cache.get(key(filter, fuzzy, pageable, countMode), loader::get);
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        bump();
+    }
+
+    @EventListener({ RemoteBookChangedEvent.class, RemoteAuthorChangedEvent.class, CatalogResyncEvent.class })
+    public void onRemoteChange() {
+        bump();
+    }
+
+    // Title and name filters are matched case insensitively, so their case doesn't split entries
+    private String key(BookFilter filter, boolean fuzzy, Pageable pageable, CountMode countMode) {
+        BookFilter normalized = new BookFilter(filter.authorId(), lowerCase(filter.name()), filter.releaseYear(),
+                filter.startYear(), filter.endYear(), filter.genre(), lowerCase(filter.title()));
+        return version.get() + "|" + normalized + "|" + fuzzy + "|" + pageable.getPageNumber() + "|"
+                + pageable.getPageSize() + "|" + pageable.getSort() + "|" + countMode;
+    }
+
+    private static String lowerCase(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+}
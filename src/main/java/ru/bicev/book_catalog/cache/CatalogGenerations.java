@@ -0,0 +1,183 @@
+package ru.bicev.book_catalog.cache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ru.bicev.book_catalog.event.AuthorChangedEvent;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogImportedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.RemoteAuthorChangedEvent;
+import ru.bicev.book_catalog.event.RemoteBookChangedEvent;
+import ru.bicev.book_catalog.util.ETags;
+
+// Write generations of the books and authors tables, kept in database sequences and used as listing ETags,
+// so every node and every restart tags the same data the same way.
+// A write transaction bumps the sequences of the tables it touched with nextval right after it commits:
+// nextval takes no row lock, so concurrent writers don't queue on a shared counter, and a reader never
+// sees a new generation next to the old rows. Each node keeps the values it read last and reads them again
+// after the next local or remote change
+@Component
+public class CatalogGenerations {
+
+    public static final String BOOKS = "catalog_books_generation";
+    public static final String AUTHORS = "catalog_authors_generation";
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogGenerations.class);
+
+    private static final String POSTGRES_GENERATIONS = """
+            SELECT sequencename AS name, coalesce(last_value, 0) AS generation
+            FROM pg_sequences
+            WHERE schemaname = current_schema()
+            """;
+    private static final String H2_GENERATIONS = """
+            SELECT lower(sequence_name) AS name, base_value - increment AS generation
+            FROM information_schema.sequences
+            WHERE sequence_schema = current_schema()
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    // Counts changes seen by this node, the generations are current while it equals the one they were read at
+    private final AtomicLong changes = new AtomicLong();
+    private volatile Generations current;
+    // Generations in effect when another node's change arrived. Its notification is delivered at commit and
+    // the sequences move a moment later, values read in between are used but not kept
+    private final AtomicReference<Generations> beforeRemote = new AtomicReference<>();
+    private volatile String generationsQuery = POSTGRES_GENERATIONS;
+
+    private record Generations(long changes, long books, long authors) {
+
+        private boolean sameAs(Generations other) {
+            return books == other.books && authors == other.authors;
+        }
+
+    }
+
+    public CatalogGenerations(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Sequences are created once, another node may have created them first
+    @EventListener(ApplicationReadyEvent.class)
+    public void createSequences() {
+        for (String sequence : List.of(BOOKS, AUTHORS)) {
+            try {
+                jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence);
+            } catch (DataIntegrityViolationException ex) {
+                logger.debug("Sequence {} was created concurrently", sequence);
+            }
+        }
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        generationsQuery = "PostgreSQL".equals(database) ? POSTGRES_GENERATIONS : H2_GENERATIONS;
+    }
+
+    // Book listings show author names, so they change with both tables
+    public String booksEtag() {
+        Generations generations = generations();
+        return ETags.of(generations.books(), generations.authors());
+    }
+
+    public String authorsEtag() {
+        return ETags.of(generations().authors());
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        touch(BOOKS);
+    }
+
+    @EventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        touch(AUTHORS);
+    }
+
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        touch(BOOKS);
+        touch(AUTHORS);
+    }
+
+    @EventListener({ RemoteBookChangedEvent.class, RemoteAuthorChangedEvent.class, CatalogResyncEvent.class })
+    public void onRemoteChange() {
+        Generations generations = current;
+        if (generations != null) {
+            beforeRemote.compareAndSet(null, generations);
+        }
+        changes.incrementAndGet();
+    }
+
+    // The changes counter is read before the query, so a change committed meanwhile makes the next call read again
+    private Generations generations() {
+        Generations generations = current;
+        long seen = changes.get();
+        if (generations != null && generations.changes() == seen) {
+            return generations;
+        }
+        Map<String, Long> values = new HashMap<>();
+        jdbcTemplate.query(generationsQuery, rs -> {
+            values.put(rs.getString("name"), rs.getLong("generation"));
+        });
+        generations = new Generations(seen, values.getOrDefault(BOOKS, 0L), values.getOrDefault(AUTHORS, 0L));
+        Generations before = beforeRemote.get();
+        if (before != null && generations.sameAs(before)) {
+            return generations;
+        }
+        beforeRemote.compareAndSet(before, null);
+        current = generations;
+        return generations;
+    }
+
+    private void touch(String sequence) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TouchedTables touched = (TouchedTables) TransactionSynchronizationManager.getResource(this);
+        if (touched == null) {
+            touched = new TouchedTables();
+            TransactionSynchronizationManager.bindResource(this, touched);
+            TransactionSynchronizationManager.registerSynchronization(touched);
+        }
+        touched.sequences.add(sequence);
+    }
+
+    // Tables written by a transaction, their generations are bumped once after it commits.
+    // nextval is never rolled back, so it doesn't matter that the connection may still be in the
+    // finished transaction here. The local counter moves only after the bump, so this node never keeps
+    // old generations for the committed rows
+    private class TouchedTables implements TransactionSynchronization {
+
+        private final Set<String> sequences = new HashSet<>();
+
+        @Override
+        public void afterCommit() {
+            for (String sequence : sequences) {
+                jdbcTemplate.queryForObject("SELECT nextval('" + sequence + "')", Long.class);
+            }
+            changes.incrementAndGet();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(CatalogGenerations.this);
+        }
+
+    }
+
+}
@@ -0,0 +1,113 @@
+package ru.bicev.book_catalog.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import ru.bicev.book_catalog.event.AuthorChangedEvent;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.RemoteAuthorChangedEvent;
+import ru.bicev.book_catalog.event.RemoteBookChangedEvent;
+import ru.bicev.book_catalog.event.RemoteUserChangedEvent;
+import ru.bicev.book_catalog.event.UserChangedEvent;
+
+// Keeps listing counts per table and filter until a committed write touches the table.
+// Each table has a generation that every eviction bumps; counts are stored under the generation read
+// before counting, so a count that raced with a write is never served after that write's eviction
+@Component
+public class CountCache {
+
+    public static final String BOOKS = "books";
+    public static final String AUTHORS = "authors";
+    public static final String USERS = "users";
+
+    private static final Logger logger = LoggerFactory.getLogger(CountCache.class);
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Cache<CountKey, Long> counts;
+
+    private record CountKey(String table, long generation, String filterKey) {
+    }
+
+    public CountCache(@Value("${catalog.count-cache.max-entries:10000}") long maxEntries) {
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    public long get(String table, String filterKey, LongSupplier counter) {
+        AtomicLong generation = generation(table);
+        long before = generation.get();
+        CountKey key = new CountKey(table, before, filterKey);
+        Long cached = counts.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long count = counter.getAsLong();
+        if (generation.get() == before) {
+            counts.put(key, count);
+        }
+        return count;
+    }
+
+    // Entries of older generations are never read again and are left to size based eviction
+    public void evict(String table) {
+        generation(table).incrementAndGet();
+        logger.debug("Cached counts evicted for {}", table);
+    }
+
+    private AtomicLong generation(String table) {
+        return generations.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        evict(BOOKS);
+    }
+
+    // Book filters by author name depend on author rows too
+    @TransactionalEventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        evict(AUTHORS);
+        evict(BOOKS);
+    }
+
+    @EventListener
+    public void onRemoteBookChanged(RemoteBookChangedEvent event) {
+        evict(BOOKS);
+    }
+
+    @EventListener
+    public void onRemoteAuthorChanged(RemoteAuthorChangedEvent event) {
+        evict(AUTHORS);
+        evict(BOOKS);
+    }
+
+    @EventListener
+    public void onResync(CatalogResyncEvent event) {
+        generations.values().forEach(AtomicLong::incrementAndGet);
+        counts.invalidateAll();
+    }
+
+    @TransactionalEventListener
+    public void onUserChanged(UserChangedEvent event) {
+        evict(USERS);
+    }
+
+    @EventListener
+    public void onRemoteUserChanged(RemoteUserChangedEvent event) {
+        evict(USERS);
+    }
+
+}
@@ -0,0 +1,281 @@
+package ru.bicev.book_catalog.cache;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PreDestroy;
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.event.AuthorChangedEvent;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogImportedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.RemoteAuthorChangedEvent;
+import ru.bicev.book_catalog.event.RemoteBookChangedEvent;
+import ru.bicev.book_catalog.event.RemoteUserChangedEvent;
+import ru.bicev.book_catalog.event.UserChangedEvent;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+
+// Keeps local caches and indexes of several nodes coherent over Postgres LISTEN/NOTIFY.
+// User changes travel the same way, so a revoked token stops working on every node once the change commits.
+// Ids changed by a transaction are collected and sent with a few NOTIFYs right before it commits,
+// Postgres delivers them only after the commit.
+// Every node LISTENs on its own connection opened outside the pool, so the pool keeps its size and
+// maxLifetime keeps retiring pooled connections. Notifications are handed to a single worker that
+// reads the changed rows and republishes them as local Remote*ChangedEvents in order, so a slow
+// listener or resync doesn't hold up reading notifications. When the connection drops, messages may be
+// lost, so after reconnecting the node publishes CatalogResyncEvent and everything is reloaded.
+// Disabled on other databases
+@Component
+public class InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 2000;
+
+    private final DataSource dataSource;
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String channel;
+    private final boolean enabled;
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile boolean active;
+    private Thread listener;
+    private ExecutorService worker;
+
+    public InvalidationBus(DataSource dataSource, DataSourceProperties dataSourceProperties,
+            JdbcTemplate jdbcTemplate, BookRepository bookRepository,
+            AuthorRepository authorRepository, ApplicationEventPublisher eventPublisher,
+            @Value("${catalog.invalidation.channel:catalog_changes}") String channel,
+            @Value("${catalog.invalidation.enabled:true}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.eventPublisher = eventPublisher;
+        this.channel = channel;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || !isPostgres()) {
+            logger.info("Cache invalidation bus is disabled");
+            return;
+        }
+        active = true;
+        worker = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "catalog-invalidation-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        listener = new Thread(this::listen, "catalog-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+        logger.info("Cache invalidation bus started, node: {}, channel: {}", nodeId, channel);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        active = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        enqueue(InvalidationMessage.Kind.BOOK, event.bookId());
+    }
+
+    @EventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        enqueue(InvalidationMessage.Kind.AUTHOR, event.authorId());
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        enqueue(InvalidationMessage.Kind.USER, event.userId());
+    }
+
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        PendingChanges pending = pending();
+        if (pending != null) {
+            pending.resync = true;
+        }
+    }
+
+    // Changes are events of a write transaction, they are collected until it commits
+    private void enqueue(InvalidationMessage.Kind kind, Object id) {
+        PendingChanges pending = pending();
+        if (pending != null) {
+            pending.add(kind, id.toString());
+        }
+    }
+
+    private PendingChanges pending() {
+        if (!active || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final Map<InvalidationMessage.Kind, Set<String>> ids = new EnumMap<>(InvalidationMessage.Kind.class);
+        private boolean resync;
+
+        private void add(InvalidationMessage.Kind kind, String id) {
+            ids.computeIfAbsent(kind, k -> new LinkedHashSet<>()).add(id);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (resync) {
+                send(new InvalidationMessage(nodeId, InvalidationMessage.Kind.CATALOG, List.of()));
+                ids.remove(InvalidationMessage.Kind.BOOK);
+                ids.remove(InvalidationMessage.Kind.AUTHOR);
+            }
+            ids.forEach((kind, changed) -> {
+                List<String> all = List.copyOf(changed);
+                for (int from = 0; from < all.size(); from += InvalidationMessage.MAX_IDS) {
+                    List<String> part = all.subList(from, Math.min(all.size(), from + InvalidationMessage.MAX_IDS));
+                    send(new InvalidationMessage(nodeId, kind, part));
+                }
+            });
+        }
+
+        private void send(InvalidationMessage message) {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, message.encode());
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(InvalidationBus.this);
+        }
+
+    }
+
+    private void listen() {
+        boolean connectedBefore = false;
+        while (active) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (connectedBefore) {
+                    logger.warn("Invalidation listener reconnected, resyncing local caches");
+                    worker.execute(() -> eventPublisher.publishEvent(new CatalogResyncEvent()));
+                }
+                connectedBefore = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (active) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            String payload = notification.getParameter();
+                            worker.execute(() -> handle(payload));
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                if (!active) {
+                    return;
+                }
+                logger.warn("Invalidation listener connection lost: {}", ex.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        InvalidationMessage message = InvalidationMessage.parse(payload);
+        if (message == null || nodeId.equals(message.nodeId())) {
+            return;
+        }
+        logger.debug("Remote change: {} {}", message.kind(), message.ids());
+        try {
+            publish(message);
+        } catch (RuntimeException ex) {
+            // the change is lost for this node, reload everything rather than serve it stale
+            logger.warn("Failed to apply remote change {}, resyncing local caches: {}", message.kind(),
+                    ex.getMessage());
+            eventPublisher.publishEvent(new CatalogResyncEvent());
+        }
+    }
+
+    private void publish(InvalidationMessage message) {
+        if (message.kind() == InvalidationMessage.Kind.CATALOG) {
+            eventPublisher.publishEvent(new CatalogResyncEvent());
+        } else if (message.kind() == InvalidationMessage.Kind.USER) {
+            message.ids().forEach(id -> eventPublisher.publishEvent(new RemoteUserChangedEvent(Long.valueOf(id))));
+        } else if (message.kind() == InvalidationMessage.Kind.BOOK) {
+            List<UUID> ids = message.ids().stream().map(UUID::fromString).toList();
+            Map<UUID, BookDto> books = new HashMap<>();
+            bookRepository.findDtosByIdIn(ids).forEach(book -> books.put(book.id(), book));
+            ids.forEach(id -> eventPublisher.publishEvent(new RemoteBookChangedEvent(id, books.get(id))));
+        } else {
+            List<UUID> ids = message.ids().stream().map(UUID::fromString).toList();
+            Map<UUID, AuthorDto> authors = new HashMap<>();
+            authorRepository.findDtosByIdIn(ids).forEach(author -> authors.put(author.id(), author));
+            ids.forEach(id -> eventPublisher.publishEvent(new RemoteAuthorChangedEvent(id, authors.get(id))));
+        }
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package ru.bicev.book_catalog.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// NOTIFY payload: sending node, entity kind and changed ids, e.g. "3f2c...:BOOK:9a1b...,77c0...".
+// Books and authors are keyed by UUID, users by their numeric id.
+// CATALOG messages carry no ids and make receivers reload everything
+public record InvalidationMessage(String nodeId, Kind kind, List<String> ids) {
+
+    // Keeps a payload well below the 8000 byte NOTIFY limit
+    public static final int MAX_IDS = 100;
+
+    public enum Kind {
+        BOOK,
+        AUTHOR,
+        USER,
+        CATALOG
+    }
+
+    public String encode() {
+        StringBuilder payload = new StringBuilder(nodeId).append(':').append(kind).append(':');
+        for (int i = 0; i < ids.size(); i++) {
+            payload.append(i == 0 ? "" : ",").append(ids.get(i));
+        }
+        return payload.toString();
+    }
+
+    // Returns null for payloads this version doesn't understand
+    public static InvalidationMessage parse(String payload) {
+        String[] parts = payload.split(":", -1);
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            Kind kind = Kind.valueOf(parts[1]);
+            if (parts[2].isEmpty() != (kind == Kind.CATALOG)) {
+                return null;
+            }
+            List<String> ids = new ArrayList<>();
+            if (!parts[2].isEmpty()) {
+                for (String id : parts[2].split(",")) {
+                    if (kind == Kind.USER) {
+                        Long.parseLong(id);
+                    } else {
+                        UUID.fromString(id);
+                    }
+                    ids.add(id);
+                }
+            }
+            return new InvalidationMessage(parts[0], kind, ids);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+}
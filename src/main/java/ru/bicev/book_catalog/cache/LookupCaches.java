@@ -0,0 +1,90 @@
+package ru.bicev.book_catalog.cache;
+
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ru.bicev.book_catalog.event.AuthorChangedEvent;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.ChangeType;
+import ru.bicev.book_catalog.event.RemoteAuthorChangedEvent;
+import ru.bicev.book_catalog.event.RemoteBookChangedEvent;
+
+// Names of the by-id lookup caches and their invalidation after committed writes. Each cached value depends
+// on its own row only, so every write evicts just the keys it changed.
+// Size and expiry come from spring.cache.caffeine.spec
+@Component
+public class LookupCaches {
+
+    public static final String BOOKS = "books";
+    public static final String AUTHORS = "authors";
+    public static final String AUTHOR_VERSIONS = "authorVersions";
+
+    private static final Logger logger = LoggerFactory.getLogger(LookupCaches.class);
+    private final CacheManager cacheManager;
+
+    public LookupCaches(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.type() != ChangeType.CREATED) {
+            evictBook(event.bookId());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        if (event.type() == ChangeType.CREATED) {
+            return;
+        }
+        evictAuthor(event.authorId());
+    }
+
+    @EventListener
+    public void onRemoteBookChanged(RemoteBookChangedEvent event) {
+        evictBook(event.bookId());
+    }
+
+    @EventListener
+    public void onRemoteAuthorChanged(RemoteAuthorChangedEvent event) {
+        evictAuthor(event.authorId());
+    }
+
+    @EventListener
+    public void onResync(CatalogResyncEvent event) {
+        cache(BOOKS).clear();
+        cache(AUTHORS).clear();
+        cache(AUTHOR_VERSIONS).clear();
+    }
+
+    private void evictBook(UUID bookId) {
+        cache(BOOKS).evict(bookId);
+    }
+
+    // Cached books hold only the author id and take the author from these caches when a response is built.
+    // Evicting a single key also waits for a load of that key in progress and drops what it loaded,
+    // so a load that read the author before the change can't put it back
+    private void evictAuthor(UUID authorId) {
+        cache(AUTHORS).evict(authorId);
+        cache(AUTHOR_VERSIONS).evict(authorId);
+        logger.debug("Lookup caches evicted for author {}", authorId);
+    }
+
+    private Cache cache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache == null) {
+            throw new IllegalStateException("Cache is not configured: " + name);
+        }
+        return cache;
+    }
+
+}
@@ -1,5 +1,6 @@
 package ru.bicev.book_catalog.controller;
 
+import java.io.InputStream;
 import java.net.URI;
 import java.util.UUID;
 
@@ -8,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -16,8 +18,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -29,19 +34,29 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import ru.bicev.book_catalog.dto.AuthorDto;
 import ru.bicev.book_catalog.dto.AuthorRequest;
+import ru.bicev.book_catalog.dto.CopyImportResultDto;
+import ru.bicev.book_catalog.dto.CursorResponse;
 import ru.bicev.book_catalog.dto.ErrorDto;
 import ru.bicev.book_catalog.dto.PagedResponse;
 import ru.bicev.book_catalog.service.AuthorService;
+import ru.bicev.book_catalog.service.CatalogCopyService;
+import ru.bicev.book_catalog.util.CountMode;
+import ru.bicev.book_catalog.util.ETags;
 
 @RestController
 @RequestMapping("/api/authors")
 public class AuthorRestController {
 
     private final AuthorService authorService;
+    private final HttpCaching httpCaching;
+    private final CatalogCopyService catalogCopyService;
     private static final Logger logger = LoggerFactory.getLogger(AuthorRestController.class);
 
-    public AuthorRestController(AuthorService authorService) {
+    public AuthorRestController(AuthorService authorService, HttpCaching httpCaching,
+            CatalogCopyService catalogCopyService) {
         this.authorService = authorService;
+        this.httpCaching = httpCaching;
+        this.catalogCopyService = catalogCopyService;
     }
 
     @Operation(summary = "Create author", security = @SecurityRequirement(name = "bearerAuth"), description = "Create new author and return his AuthorDto")
@@ -60,47 +75,88 @@ public class AuthorRestController {
         return ResponseEntity.created(location).body(created);
     }
 
-    @Operation(summary = "Get author by Id", description = "Find author by id return AuthorDto")
+    @Operation(summary = "Copy authors", security = @SecurityRequirement(name = "bearerAuth"), description = "Load authors with Postgres COPY for initial catalog seeding. The body is CSV with a header line and the columns id,firstName,lastName,birthYear,country in this order, an empty id gets generated. Authors already in the catalog are skipped, rows reusing a taken id are counted as conflicting")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Copy finished", content = @Content(schema = @Schema(implementation = CopyImportResultDto.class))),
+            @ApiResponse(responseCode = "400", description = "CSV could not be parsed", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+            @ApiResponse(responseCode = "401", description = "Invalid token", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+            @ApiResponse(responseCode = "403", description = "Current user is not an admin", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+            @ApiResponse(responseCode = "501", description = "Database is not PostgreSQL", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
+    })
+    @PostMapping(value = "/copy", consumes = "text/csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CopyImportResultDto> copyAuthors(InputStream body) {
+        logger.info("POST /api/authors/copy");
+        CopyImportResultDto result = catalogCopyService.copyAuthors(body);
+        logger.info("Copied {} authors, skipped: {}, conflicting: {}", result.inserted(), result.skipped(),
+                result.conflicting());
+        return ResponseEntity.ok().body(result);
+    }
+
+    @Operation(summary = "Get author by Id", description = "Find author by id return AuthorDto. The response carries an ETag, a matching If-None-Match returns 304 without a body")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Author found", content = @Content(schema = @Schema(implementation = AuthorDto.class))),
+            @ApiResponse(responseCode = "304", description = "Author was not modified"),
             @ApiResponse(responseCode = "404", description = "Author was not found", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
     })
     @GetMapping("/{authorId}")
-    public ResponseEntity<AuthorDto> getAuthorById(@PathVariable UUID authorId) {
+    public ResponseEntity<AuthorDto> getAuthorById(@PathVariable UUID authorId, WebRequest request) {
         logger.info("GET /api/authors authorId: {}", authorId);
-        AuthorDto author = authorService.findAuthorById(authorId);
-        return ResponseEntity.ok().body(author);
+        String etag = ETags.of(authorService.findAuthorVersion(authorId));
+        return httpCaching.item(request, etag, () -> authorService.findAuthorById(authorId));
     }
 
-    @Operation(summary = "Get all authors", description = "Find all authors and return PagedResponse")
+    @Operation(summary = "Get all authors", description = "Find all authors and return PagedResponse. Totals are calculated according to count: EXACT (default), NONE, CACHED until the next write, or ESTIMATED from table statistics. withTotals=false is accepted as a shorthand for count=NONE. The ETag changes with every author write")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Authors retrieved", content = @Content(schema = @Schema(implementation = PagedResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Authors were not modified"),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
     })
     @GetMapping
     public ResponseEntity<PagedResponse<AuthorDto>> getAllAuthors(
-            @ParameterObject @PageableDefault(page = 0, size = 10, sort = "lastName") Pageable pageable) {
-        logger.info("GET /api/authors");
-        PagedResponse<AuthorDto> authors = authorService.findAll(pageable);
-        return ResponseEntity.ok().body(authors);
+            @RequestParam(required = false) CountMode count,
+            @RequestParam(required = false) Boolean withTotals,
+            @ParameterObject @PageableDefault(page = 0, size = 10, sort = "lastName") Pageable pageable,
+            WebRequest request) {
+        CountMode countMode = CountMode.of(count, withTotals);
+        logger.info("GET /api/authors count: {}", countMode);
+        return httpCaching.authorListing(request, () -> authorService.findAll(pageable, countMode));
+
+    }
 
+    @Operation(summary = "Get all authors with cursor", description = "Find all authors using keyset pagination. Pass an empty 'after' for the first page, then the returned nextCursor. No total count is calculated")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Authors retrieved", content = @Content(schema = @Schema(implementation = CursorResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
+    })
+    @GetMapping(params = "after")
+    public ResponseEntity<CursorResponse<AuthorDto>> getAllAuthorsAfter(@RequestParam String after,
+            @ParameterObject @PageableDefault(size = 10, sort = "lastName") Pageable pageable) {
+        logger.info("GET /api/authors after: {}", after);
+        CursorResponse<AuthorDto> authors = authorService.findAllAfter(after, pageable);
+        return ResponseEntity.ok().body(authors);
     }
 
-    @Operation(summary = "Update author", security = @SecurityRequirement(name = "bearerAuth"), description = "Update existing author and return updated AuthorDto")
+    @Operation(summary = "Update author", security = @SecurityRequirement(name = "bearerAuth"), description = "Update existing author and return updated AuthorDto. With If-Match the author is updated only if its ETag still matches. Without it no lock is taken and the update fails with 409 when the author changes concurrently, it is not retried")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Author updated", content = @Content(schema = @Schema(implementation = AuthorDto.class))),
             @ApiResponse(responseCode = "401", description = "Invalid token", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
             @ApiResponse(responseCode = "403", description = "Current user is not Admin", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
             @ApiResponse(responseCode = "404", description = "Author was not found", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+            @ApiResponse(responseCode = "409", description = "Author was changed by a concurrent update, only without If-Match", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+            @ApiResponse(responseCode = "412", description = "Author was modified since If-Match ETag", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
     })
     @PutMapping("/{authorId}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<AuthorDto> updateAuthor(@PathVariable UUID authorId,
-            @Valid @RequestBody AuthorRequest authorRequest) {
-        logger.info("PUT /api/authors authorId: {}", authorId);
-        AuthorDto updated = authorService.updateAuthor(authorId, authorRequest);
+            @Valid @RequestBody AuthorRequest authorRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        logger.info("PUT /api/authors authorId: {}, If-Match: {}", authorId, ifMatch);
+        AuthorDto updated = authorService.updateAuthor(authorId, authorRequest, ifMatch);
         return ResponseEntity.ok().body(updated);
     }
 
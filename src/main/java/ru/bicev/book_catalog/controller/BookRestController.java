@@ -1,6 +1,9 @@
 package ru.bicev.book_catalog.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.List;
 import java.util.UUID;
 
 import org.slf4j.Logger;
@@ -8,6 +11,9 @@ import org.slf4j.LoggerFactory;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -16,11 +22,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -28,21 +38,46 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.BookFacetsDto;
+import ru.bicev.book_catalog.dto.BookFilter;
 import ru.bicev.book_catalog.dto.BookRequest;
+import ru.bicev.book_catalog.dto.BulkImportResultDto;
+import ru.bicev.book_catalog.dto.CopyImportResultDto;
+import ru.bicev.book_catalog.dto.CursorResponse;
 import ru.bicev.book_catalog.dto.ErrorDto;
 import ru.bicev.book_catalog.dto.PagedResponse;
+import ru.bicev.book_catalog.dto.SuggestionDto;
+import ru.bicev.book_catalog.search.SuggestService;
+import ru.bicev.book_catalog.service.BookExportService;
+import ru.bicev.book_catalog.service.BookImportService;
+import ru.bicev.book_catalog.service.CatalogCopyService;
 import ru.bicev.book_catalog.service.BookService;
-import ru.bicev.book_catalog.util.Genre;
+import ru.bicev.book_catalog.util.CountMode;
+import ru.bicev.book_catalog.util.ImportFormat;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookRestController {
 
         private final BookService bookService;
+        private final SuggestService suggestService;
+        private final HttpCaching httpCaching;
+        private final BookImportService bookImportService;
+        private final CatalogCopyService catalogCopyService;
+        private final BookExportService bookExportService;
         private static final Logger logger = LoggerFactory.getLogger(BookRestController.class);
+        private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+        private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
-        public BookRestController(BookService bookService) {
+        public BookRestController(BookService bookService, SuggestService suggestService, HttpCaching httpCaching,
+                        BookImportService bookImportService, CatalogCopyService catalogCopyService,
+                        BookExportService bookExportService) {
                 this.bookService = bookService;
+                this.suggestService = suggestService;
+                this.httpCaching = httpCaching;
+                this.bookImportService = bookImportService;
+                this.catalogCopyService = catalogCopyService;
+                this.bookExportService = bookExportService;
         }
 
         @Operation(summary = "Create book", security = @SecurityRequirement(name = "bearerAuth"), description = "Create new book and return its BookDto")
@@ -61,33 +96,100 @@ public class BookRestController {
                 return ResponseEntity.created(location).body(created);
         }
 
-        @Operation(summary = "Get book by id", description = "Find book by id and return its BookDto")
+        @Operation(summary = "Import books", security = @SecurityRequirement(name = "bearerAuth"), description = "Stream books as NDJSON (one BookRequest per line) or CSV with a title,releaseYear,genre,authorId header and insert them in batches. Rejected rows are reported with their line numbers and do not stop the import")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Import finished", content = @Content(schema = @Schema(implementation = BulkImportResultDto.class))),
+                        @ApiResponse(responseCode = "400", description = "CSV header is missing required columns", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "401", description = "Invalid token", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "403", description = "Current user is not an admin", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
+        })
+        @PostMapping(value = "/bulk", consumes = { "application/x-ndjson", "text/csv" })
+        @PreAuthorize("hasRole('ADMIN')")
+        public ResponseEntity<BulkImportResultDto> importBooks(InputStream body,
+                        @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) throws IOException {
+                ImportFormat format = CSV.isCompatibleWith(contentType)
+                                ? ImportFormat.CSV
+                                : ImportFormat.NDJSON;
+                logger.info("POST /api/books/bulk format: {}", format);
+                BulkImportResultDto result = bookImportService.importBooks(body, format);
+                logger.info("Imported {} books, {} rows failed", result.imported(), result.failed());
+                return ResponseEntity.ok().body(result);
+        }
+
+        @Operation(summary = "Copy books", security = @SecurityRequirement(name = "bearerAuth"), description = "Load books with Postgres COPY for initial catalog seeding. The body is CSV with a header line and the columns id,title,releaseYear,genre,authorId in this order, an empty id gets generated. Books already in the catalog are skipped, rows clashing with other books or naming unknown authors are counted as conflicting")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Copy finished", content = @Content(schema = @Schema(implementation = CopyImportResultDto.class))),
+                        @ApiResponse(responseCode = "400", description = "CSV could not be parsed", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "401", description = "Invalid token", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "403", description = "Current user is not an admin", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "501", description = "Database is not PostgreSQL", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
+        })
+        @PostMapping(value = "/copy", consumes = "text/csv")
+        @PreAuthorize("hasRole('ADMIN')")
+        public ResponseEntity<CopyImportResultDto> copyBooks(InputStream body) {
+                logger.info("POST /api/books/copy");
+                CopyImportResultDto result = catalogCopyService.copyBooks(body);
+                logger.info("Copied {} books, skipped: {}, conflicting: {}", result.inserted(), result.skipped(),
+                                result.conflicting());
+                return ResponseEntity.ok().body(result);
+        }
+
+        @Operation(summary = "Export books", security = @SecurityRequirement(name = "bearerAuth"), description = "Stream the whole catalog in id order as NDJSON (one BookDto per line) or, with Accept: text/csv, as CSV with a header line. Rows are written while they are read, so the export starts at once and needs no paging")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Books are streamed", content = {
+                                        @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = BookDto.class)),
+                                        @Content(mediaType = "text/csv") }),
+                        @ApiResponse(responseCode = "401", description = "Invalid token", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "403", description = "Current user is not an admin", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
+        })
+        @GetMapping(value = "/export", produces = { "application/x-ndjson", "text/csv" })
+        @PreAuthorize("hasRole('ADMIN')")
+        public ResponseEntity<StreamingResponseBody> exportBooks(
+                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+                boolean csv = accept != null && MediaType.parseMediaTypes(accept).stream()
+                                .anyMatch(type -> type.equalsTypeAndSubtype(CSV));
+                logger.info("GET /api/books/export format: {}", csv ? "csv" : "ndjson");
+                StreamingResponseBody body = csv ? bookExportService::exportCsv : bookExportService::exportNdjson;
+                return ResponseEntity.ok()
+                                .contentType(csv ? CSV : NDJSON)
+                                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                                .filename(csv ? "books.csv" : "books.ndjson").build().toString())
+                                .body(body);
+        }
+
+        @Operation(summary = "Get book by id", description = "Find book by id and return its BookDto. The response carries an ETag, a matching If-None-Match returns 304 without a body")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Book was found", content = @Content(schema = @Schema(implementation = BookDto.class))),
+                        @ApiResponse(responseCode = "304", description = "Book was not modified"),
                         @ApiResponse(responseCode = "404", description = "Book was not found", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
                         @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
         })
         @GetMapping("/{bookId}")
-        public ResponseEntity<BookDto> getBookById(@PathVariable UUID bookId) {
+        public ResponseEntity<BookDto> getBookById(@PathVariable UUID bookId, WebRequest request) {
                 logger.info("GET /api/books bookId: {}", bookId);
-                BookDto book = bookService.findBookById(bookId);
-                return ResponseEntity.ok().body(book);
+                String etag = bookService.findBookVersion(bookId).etag();
+                return httpCaching.item(request, etag, () -> bookService.findBookById(bookId));
         }
 
-        @Operation(summary = "Update book", security = @SecurityRequirement(name = "bearerAuth"), description = "Update book and return updated BookDto")
+        @Operation(summary = "Update book", security = @SecurityRequirement(name = "bearerAuth"), description = "Update book and return updated BookDto. With If-Match the book is updated only if its ETag still matches. Without it no lock is taken and the update fails with 409 when the book changes concurrently, it is not retried")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "201", description = "Book was updated", content = @Content(schema = @Schema(implementation = BookDto.class))),
                         @ApiResponse(responseCode = "401", description = "Invalid token", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
                         @ApiResponse(responseCode = "403", description = "Current user is not an admin", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
                         @ApiResponse(responseCode = "404", description = "Book was not found", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "409", description = "Book was changed by a concurrent update, only without If-Match", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "412", description = "Book was modified since If-Match ETag", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
                         @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
         })
         @PutMapping("/{bookId}")
         @PreAuthorize("hasRole('ADMIN')")
         public ResponseEntity<BookDto> updateBook(@PathVariable UUID bookId,
-                        @Valid @RequestBody BookRequest bookRequest) {
-                logger.info("PUT /api/books bookId: {}", bookId);
-                BookDto updated = bookService.updateBook(bookId, bookRequest);
+                        @Valid @RequestBody BookRequest bookRequest,
+                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+                logger.info("PUT /api/books bookId: {}, If-Match: {}", bookId, ifMatch);
+                BookDto updated = bookService.updateBook(bookId, bookRequest, ifMatch);
                 return ResponseEntity.ok().body(updated);
         }
 
@@ -107,30 +209,78 @@ public class BookRestController {
                 return ResponseEntity.noContent().build();
         }
 
-        @Operation(summary = "Get books by parameters", description = "Find books by parameters and return PagedResponse")
+        @Operation(summary = "Get books by parameters", description = "Find books matching all supplied parameters and return PagedResponse. With fuzzy=true the title may contain typos in its words. Totals are calculated according to count: EXACT (default), NONE, CACHED until the next write, or ESTIMATED from table statistics. withTotals=false is accepted as a shorthand for count=NONE. The ETag changes with every book or author write")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Books was found", content = @Content(schema = @Schema(implementation = BookDto.class))),
+                        @ApiResponse(responseCode = "304", description = "Books were not modified"),
                         @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
         })
 
         @GetMapping
         public ResponseEntity<PagedResponse<BookDto>> getBooks(
-                        @RequestParam(required = false) UUID authorId,
-                        @RequestParam(required = false) String name,
-                        @RequestParam(required = false) Integer releaseYear,
-                        @RequestParam(required = false) Integer startYear,
-                        @RequestParam(required = false) Integer endYear,
-                        @RequestParam(required = false) Genre genre,
-                        @RequestParam(required = false) String title,
-                        @ParameterObject @PageableDefault(page = 0, size = 10, sort = "title") Pageable pageable) {
-                logger.info(
-                                "GET /api/books authorId: {}, name: {}, releaseYear: {}, startYear: {}, endYear: {}, genre: {}, title: {}",
-                                authorId, name, releaseYear, startYear, endYear, genre, title);
-                PagedResponse<BookDto> response = bookService.findBooks(authorId, name, releaseYear, startYear, endYear,
-                                genre,
-                                title,
-                                pageable);
+                        @ParameterObject BookFilter filter,
+                        @RequestParam(defaultValue = "false") boolean fuzzy,
+                        @RequestParam(required = false) CountMode count,
+                        @RequestParam(required = false) Boolean withTotals,
+                        @ParameterObject @PageableDefault(page = 0, size = 10, sort = "title") Pageable pageable,
+                        WebRequest request) {
+                CountMode countMode = CountMode.of(count, withTotals);
+                logger.info("GET /api/books filter: {}, fuzzy: {}, count: {}", filter, fuzzy, countMode);
 
+                return httpCaching.bookListing(request, () -> bookService.findBooks(filter, fuzzy, pageable, countMode));
+        }
+
+        @Operation(summary = "Search books", description = "Search books by part of title or author name, ranked by similarity on Postgres. Totals are not calculated")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Books was found", content = @Content(schema = @Schema(implementation = PagedResponse.class))),
+                        @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
+        })
+        @GetMapping("/search")
+        public ResponseEntity<PagedResponse<BookDto>> searchBooks(
+                        @RequestParam String q,
+                        @ParameterObject @PageableDefault(page = 0, size = 10) Pageable pageable) {
+                logger.info("GET /api/books/search q: {}", q);
+                PagedResponse<BookDto> response = bookService.searchBooks(q, pageable);
+                return ResponseEntity.ok(response);
+        }
+
+        @Operation(summary = "Get book facets", description = "Count books matching all supplied parameters per genre, release decade and author country")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Facets were counted", content = @Content(schema = @Schema(implementation = BookFacetsDto.class))),
+                        @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
+        })
+        @GetMapping("/facets")
+        public ResponseEntity<BookFacetsDto> getFacets(@ParameterObject BookFilter filter) {
+                logger.info("GET /api/books/facets filter: {}", filter);
+                return ResponseEntity.ok(bookService.getFacets(filter));
+        }
+
+        @Operation(summary = "Suggest titles and authors", description = "Return book titles and author names having a word that starts with prefix. Names shared by more books or authors come first, then alphabetical order. Served from memory, limit is capped at 50")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Suggestions", content = @Content(array = @ArraySchema(schema = @Schema(implementation = SuggestionDto.class)))),
+                        @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
+        })
+        @GetMapping("/suggest")
+        public ResponseEntity<List<SuggestionDto>> suggest(
+                        @RequestParam String prefix,
+                        @RequestParam(defaultValue = "10") int limit) {
+                logger.info("GET /api/books/suggest prefix: {}, limit: {}", prefix, limit);
+                return ResponseEntity.ok(suggestService.suggest(prefix, limit));
+        }
+
+        @Operation(summary = "Get books by parameters with cursor", description = "Find books matching all supplied parameters using keyset pagination. Pass an empty 'after' for the first page, then the returned nextCursor. No total count is calculated")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Books was found", content = @Content(schema = @Schema(implementation = CursorResponse.class))),
+                        @ApiResponse(responseCode = "400", description = "Invalid cursor", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+                        @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
+        })
+        @GetMapping(params = "after")
+        public ResponseEntity<CursorResponse<BookDto>> getBooksAfter(
+                        @ParameterObject BookFilter filter,
+                        @RequestParam String after,
+                        @ParameterObject @PageableDefault(size = 10, sort = "title") Pageable pageable) {
+                logger.info("GET /api/books filter: {}, after: {}", filter, after);
+                CursorResponse<BookDto> response = bookService.findBooksAfter(filter, after, pageable);
                 return ResponseEntity.ok(response);
         }
 
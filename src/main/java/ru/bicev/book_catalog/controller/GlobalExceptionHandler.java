@@ -7,6 +7,8 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -18,6 +20,11 @@ import ru.bicev.book_catalog.dto.ErrorDto;
 import ru.bicev.book_catalog.dto.ValidationErrorDto;
 import ru.bicev.book_catalog.exception.AuthorNotFoundException;
 import ru.bicev.book_catalog.exception.BookNotFoundException;
+import ru.bicev.book_catalog.exception.InvalidCursorException;
+import ru.bicev.book_catalog.exception.CopyNotSupportedException;
+import ru.bicev.book_catalog.exception.InvalidImportException;
+import ru.bicev.book_catalog.exception.PasswordHashingBusyException;
+import ru.bicev.book_catalog.exception.PreconditionFailedException;
 import ru.bicev.book_catalog.exception.UserNotFoundException;
 import ru.bicev.book_catalog.exception.UsernameAlreadyExistsException;
 
@@ -42,6 +49,14 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(status).body(error);
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorDto> handleInvalidCursorException(InvalidCursorException ex) {
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        ErrorDto error = extractError(ex, "INVALID_CURSOR", status);
+        logger.error("InvalidCursorException: {}", ex.getMessage());
+        return ResponseEntity.status(status).body(error);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<List<ValidationErrorDto>> handleValidationException(MethodArgumentNotValidException ex) {
         List<ValidationErrorDto> errors = ex.getBindingResult().getFieldErrors()
@@ -73,6 +88,46 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(status).body(error);
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorDto> handlePreconditionFailedException(PreconditionFailedException ex) {
+        HttpStatus status = HttpStatus.PRECONDITION_FAILED;
+        ErrorDto error = extractError(ex, "PRECONDITION_FAILED", status);
+        logger.error("PreconditionFailedException: {}", ex.getMessage());
+        return ResponseEntity.status(status).body(error);
+    }
+
+    @ExceptionHandler(InvalidImportException.class)
+    public ResponseEntity<ErrorDto> handleInvalidImportException(InvalidImportException ex) {
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        ErrorDto error = extractError(ex, "INVALID_IMPORT", status);
+        logger.error("InvalidImportException: {}", ex.getMessage());
+        return ResponseEntity.status(status).body(error);
+    }
+
+    @ExceptionHandler(CopyNotSupportedException.class)
+    public ResponseEntity<ErrorDto> handleCopyNotSupportedException(CopyNotSupportedException ex) {
+        HttpStatus status = HttpStatus.NOT_IMPLEMENTED;
+        ErrorDto error = extractError(ex, "COPY_NOT_SUPPORTED", status);
+        logger.error("CopyNotSupportedException: {}", ex.getMessage());
+        return ResponseEntity.status(status).body(error);
+    }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ErrorDto> handlePasswordHashingBusyException(PasswordHashingBusyException ex) {
+        HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+        ErrorDto error = extractError(ex, "TOO_MANY_REQUESTS", status);
+        logger.error("PasswordHashingBusyException: {}", ex.getMessage());
+        return ResponseEntity.status(status).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorDto> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        HttpStatus status = HttpStatus.CONFLICT;
+        ErrorDto error = extractError(ex, "CONCURRENT_MODIFICATION", status);
+        logger.error("OptimisticLockingFailureException: {}", ex.getMessage());
+        return ResponseEntity.status(status).body(error);
+    }
+
     @ExceptionHandler(UsernameAlreadyExistsException.class)
     public ResponseEntity<ErrorDto> handleUsernameAlreadyExistsException(UsernameAlreadyExistsException ex) {
         HttpStatus status = HttpStatus.CONFLICT;
@@ -0,0 +1,59 @@
+package ru.bicev.book_catalog.controller;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import ru.bicev.book_catalog.cache.CatalogGenerations;
+
+// Conditional GET support for public catalog reads.
+// The ETag is known before the body is loaded, so a matching If-None-Match gets 304 without reading
+// or serializing it. Single books and authors are tagged with their row versions, listings with the
+// write generations of the tables they show, which are the same on every node and across restarts
+@Component
+public class HttpCaching {
+
+    private final CatalogGenerations catalogGenerations;
+    private final CacheControl itemCacheControl;
+    private final CacheControl listingCacheControl;
+
+    public HttpCaching(CatalogGenerations catalogGenerations,
+            @Value("${catalog.http.cache.item-max-age:60s}") Duration itemMaxAge,
+            @Value("${catalog.http.cache.listing-max-age:10s}") Duration listingMaxAge) {
+        this.catalogGenerations = catalogGenerations;
+        this.itemCacheControl = cacheControl(itemMaxAge);
+        this.listingCacheControl = cacheControl(listingMaxAge);
+    }
+
+    public <T> ResponseEntity<T> item(WebRequest request, String etag, Supplier<T> body) {
+        return conditional(request, etag, itemCacheControl, body);
+    }
+
+    public <T> ResponseEntity<T> bookListing(WebRequest request, Supplier<T> body) {
+        return conditional(request, catalogGenerations.booksEtag(), listingCacheControl, body);
+    }
+
+    public <T> ResponseEntity<T> authorListing(WebRequest request, Supplier<T> body) {
+        return conditional(request, catalogGenerations.authorsEtag(), listingCacheControl, body);
+    }
+
+    private static <T> ResponseEntity<T> conditional(WebRequest request, String etag, CacheControl cacheControl,
+            Supplier<T> body) {
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(body.get());
+    }
+
+    // Zero max-age still lets caches keep the response but makes them revalidate it on every request
+    private static CacheControl cacheControl(Duration maxAge) {
+        return maxAge.isZero() ? CacheControl.noCache().cachePublic() : CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+}
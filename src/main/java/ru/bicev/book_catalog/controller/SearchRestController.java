@@ -0,0 +1,46 @@
+package ru.bicev.book_catalog.controller;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import ru.bicev.book_catalog.dto.ErrorDto;
+import ru.bicev.book_catalog.dto.SearchHitDto;
+import ru.bicev.book_catalog.search.CatalogSearchService;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchRestController {
+
+    private final CatalogSearchService catalogSearchService;
+    private static final Logger logger = LoggerFactory.getLogger(SearchRestController.class);
+
+    public SearchRestController(CatalogSearchService catalogSearchService) {
+        this.catalogSearchService = catalogSearchService;
+    }
+
+    @Operation(summary = "Full text search", description = "Search books by words of title, author name and genre, ranked by BM25. Served from memory, limit is capped at 100")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Search hits", content = @Content(array = @ArraySchema(schema = @Schema(implementation = SearchHitDto.class)))),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
+    })
+    @GetMapping
+    public ResponseEntity<List<SearchHitDto>> search(@RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        logger.info("GET /api/search q: {}, limit: {}", q, limit);
+        return ResponseEntity.ok(catalogSearchService.search(q, limit));
+    }
+
+}
@@ -6,4 +6,11 @@ import ru.bicev.book_catalog.util.Genre;
 
 public record BookDto(UUID id, String title, int releaseYear, Genre genre, AuthorDto author) {
 
+    // Flat form for constructor expressions in queries, author columns are null for books without an author
+    public BookDto(UUID id, String title, int releaseYear, Genre genre, UUID authorId, String authorFirstName,
+            String authorLastName, Integer authorBirthYear, String authorCountry) {
+        this(id, title, releaseYear, genre, authorId == null ? null
+                : new AuthorDto(authorId, authorFirstName, authorLastName, authorBirthYear, authorCountry));
+    }
+
 }
@@ -0,0 +1,16 @@
+package ru.bicev.book_catalog.dto;
+
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import ru.bicev.book_catalog.util.Genre;
+
+@Schema(description = "Numbers of books matching a filter, grouped by genre, release decade and author country")
+public record BookFacetsDto(
+
+        @Schema(description = "Total number of matching books", example = "42") long total,
+        @Schema(description = "Books per genre") Map<Genre, Long> genres,
+        @Schema(description = "Books per release decade, keyed by its first year", example = "{\"1930\": 3}") Map<Integer, Long> decades,
+        @Schema(description = "Books per author country") Map<String, Long> countries) {
+
+}
@@ -0,0 +1,31 @@
+package ru.bicev.book_catalog.dto;
+
+import java.util.UUID;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import ru.bicev.book_catalog.util.Genre;
+
+@Schema(description = "Book search filters, all supplied filters are combined with AND")
+public record BookFilter(
+
+        @Schema(description = "Author id") UUID authorId,
+        @Schema(description = "Part of author full name, case insensitive", example = "tolkien") String name,
+        @Schema(description = "Exact release year", example = "1937") Integer releaseYear,
+        @Schema(description = "Release year lower bound, inclusive", example = "1900") Integer startYear,
+        @Schema(description = "Release year upper bound, inclusive", example = "2000") Integer endYear,
+        @Schema(description = "Genre", example = "FANTASY") Genre genre,
+        @Schema(description = "Part of title, case insensitive", example = "hobbit") String title) {
+
+    public static BookFilter empty() {
+        return new BookFilter(null, null, null, null, null, null, null);
+    }
+
+    public boolean isEmpty() {
+        return equals(empty());
+    }
+
+    public BookFilter withoutTitle() {
+        return new BookFilter(authorId, name, releaseYear, startYear, endYear, genre, null);
+    }
+
+}
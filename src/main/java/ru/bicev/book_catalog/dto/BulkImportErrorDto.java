@@ -0,0 +1,11 @@
+package ru.bicev.book_catalog.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Row of a bulk import that was not imported")
+public record BulkImportErrorDto(
+
+        @Schema(description = "Line number in the uploaded file, starting from 1", example = "17") long line,
+        @Schema(description = "Why the row was rejected", example = "Author not found: 123e4567-e89b-12d3-a456-426655440000") String message) {
+
+}
@@ -0,0 +1,17 @@
+package ru.bicev.book_catalog.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of a bulk book import")
+public record BulkImportResultDto(
+
+        @Schema(description = "Number of data rows read", example = "500000") long rows,
+        @Schema(description = "Number of books inserted", example = "499990") long imported,
+        @Schema(description = "Number of rejected rows", example = "10") long failed,
+        @Schema(description = "Import duration in milliseconds", example = "41250") long elapsedMillis,
+        @Schema(description = "Rows read per second", example = "12121.2") double rowsPerSecond,
+        @Schema(description = "Rejected rows, only the first ones when there are many") List<BulkImportErrorDto> errors) {
+
+}
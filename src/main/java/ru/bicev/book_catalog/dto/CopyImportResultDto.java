@@ -0,0 +1,16 @@
+package ru.bicev.book_catalog.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of a COPY import")
+public record CopyImportResultDto(
+
+        @Schema(description = "Number of data rows read", example = "10000000") long rows,
+        @Schema(description = "Number of rows inserted", example = "9999000") long inserted,
+        @Schema(description = "Rows already present in the table or earlier in the file", example = "900") long skipped,
+        @Schema(description = "Rows clashing with other rows: a taken id, the same book by another author, an unknown author", example = "90") long conflicting,
+        @Schema(description = "Rows with missing or malformed values", example = "10") long invalid,
+        @Schema(description = "Import duration in milliseconds", example = "95000") long elapsedMillis,
+        @Schema(description = "Rows read per second", example = "105263.2") double rowsPerSecond) {
+
+}
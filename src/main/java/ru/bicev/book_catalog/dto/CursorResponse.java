@@ -0,0 +1,15 @@
+package ru.bicev.book_catalog.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Keyset page with content and an opaque cursor for the next page")
+public record CursorResponse<T>(
+
+        @Schema(description = "List of items", example = "[items]") List<T> content,
+        @Schema(description = "Requested page size", example = "10") int size,
+        @Schema(description = "Cursor to pass as 'after' for the next page, null on the last page") String nextCursor,
+        @Schema(description = "Has next page", example = "true") boolean hasNext) {
+
+}
@@ -2,7 +2,11 @@ package ru.bicev.book_catalog.dto;
 
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
 import io.swagger.v3.oas.annotations.media.Schema;
+import ru.bicev.book_catalog.util.CountMode;
 
 @Schema(description = "Paged response with content, page info and metadata")
 public record PagedResponse<T>(
@@ -10,9 +14,36 @@ public record PagedResponse<T>(
         @Schema(description = "List of items",example = "[items]") List<T> content,
         @Schema(description = "Current page number", example = "0") int page,
         @Schema(description = "Current page size", example = "10") int size,
-        @Schema(description = "Total number of elements", example = "100") long totalElements,
-        @Schema(description = "Total number of pages", example = "3") int totalPages,
+        @Schema(description = "Total number of elements, -1 when totals were not requested", example = "100") long totalElements,
+        @Schema(description = "Total number of pages, -1 when totals were not requested", example = "3") int totalPages,
         @Schema(description = "Is first page", example = "false") boolean isFirst,
-        @Schema(description = "Is last page", example = "true") boolean last) {
+        @Schema(description = "Is last page", example = "true") boolean last,
+        @Schema(description = "How totals were calculated", example = "EXACT") CountMode countMode) {
+
+    public static <T> PagedResponse<T> of(Page<T> page) {
+        return new PagedResponse<>(
+                page.getContent(),
+                page.getNumber(),
+                page.getSize(),
+                page.getTotalElements(),
+                page.getTotalPages(),
+                page.isFirst(),
+                page.isLast(),
+                CountMode.EXACT);
+    }
+
+    public static <T> PagedResponse<T> of(Slice<T> slice, long totalElements, CountMode countMode) {
+        int totalPages = totalElements < 0 ? -1
+                : slice.getSize() == 0 ? 1 : (int) Math.ceil((double) totalElements / slice.getSize());
+        return new PagedResponse<>(
+                slice.getContent(),
+                slice.getNumber(),
+                slice.getSize(),
+                totalElements,
+                totalPages,
+                slice.isFirst(),
+                slice.isLast(),
+                countMode);
+    }
 
 }
@@ -0,0 +1,11 @@
+package ru.bicev.book_catalog.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Search result with its BM25 relevance score")
+public record SearchHitDto(
+
+        @Schema(description = "Relevance score, higher is better", example = "2.13") float score,
+        @Schema(description = "Found book") BookDto book) {
+
+}
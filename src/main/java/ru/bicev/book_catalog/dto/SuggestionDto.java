@@ -0,0 +1,12 @@
+package ru.bicev.book_catalog.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import ru.bicev.book_catalog.search.SuggestionType;
+
+@Schema(description = "Typeahead suggestion")
+public record SuggestionDto(
+
+        @Schema(description = "Book title or author full name", example = "The Hobbit") String text,
+        @Schema(description = "What the suggestion is", example = "TITLE") SuggestionType type) {
+
+}
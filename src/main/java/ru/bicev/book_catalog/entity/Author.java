@@ -1,17 +1,29 @@
 package ru.bicev.book_catalog.entity;
 
+import java.util.Locale;
 import java.util.UUID;
 
+import org.springframework.data.domain.Persistable;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.persistence.UniqueConstraint;
-import lombok.AllArgsConstructor;
+import jakarta.persistence.Version;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 @Entity
 @Table(name = "authors", uniqueConstraints = {
@@ -21,9 +33,7 @@ import lombok.NoArgsConstructor;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
-@Builder
-public class Author {
+public class Author implements Persistable<UUID> {
 
     @Id
     @EqualsAndHashCode.Include
@@ -41,4 +51,57 @@ public class Author {
     @Column(nullable = false)
     private String country;
 
+    // Lowercased "first last" kept for indexed substring search by name
+    @Column(name = "full_name")
+    @Setter(AccessLevel.NONE)
+    private String fullName;
+
+    // Incremented by every update, the author ETag is built from it
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    @Setter(AccessLevel.NONE)
+    private long version;
+
+    // Tells save() to persist rather than merge an author with an assigned id, see Book.newEntity
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private boolean newEntity = true;
+
+    @Builder
+    public Author(UUID id, String firstName, String lastName, int birthYear, String country) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.birthYear = birthYear;
+        this.country = country;
+        normalizeFullName();
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalizeFullName() {
+        this.fullName = fullName(firstName, lastName);
+    }
+
+    public static String fullName(String firstName, String lastName) {
+        return normalize(firstName + " " + lastName);
+    }
+
+    public static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+
 }
@@ -2,20 +2,30 @@ package ru.bicev.book_catalog.entity;
 
 import java.util.UUID;
 
+import org.springframework.data.domain.Persistable;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.persistence.UniqueConstraint;
-import lombok.AllArgsConstructor;
+import jakarta.persistence.Version;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import ru.bicev.book_catalog.util.Genre;
 
 @Entity
@@ -25,9 +35,7 @@ import ru.bicev.book_catalog.util.Genre;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
-@Builder
-public class Book {
+public class Book implements Persistable<UUID> {
 
     @Id
     @EqualsAndHashCode.Include
@@ -43,8 +51,43 @@ public class Book {
     @Column(nullable = false)
     private Genre genre;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id")
+    @ToString.Exclude
     private Author author;
 
+    // Incremented by every update, the book ETag is built from it
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    @Setter(AccessLevel.NONE)
+    private long version;
+
+    // Ids are assigned before save, so Spring Data can't tell a new entity by a null id and would merge it,
+    // selecting the row before the INSERT. Entities are new until they are persisted or loaded
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private boolean newEntity = true;
+
+    @Builder
+    public Book(UUID id, String title, int releaseYear, Genre genre, Author author) {
+        this.id = id;
+        this.title = title;
+        this.releaseYear = releaseYear;
+        this.genre = genre;
+        this.author = author;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+
 }
@@ -0,0 +1,11 @@
+package ru.bicev.book_catalog.event;
+
+import java.util.UUID;
+
+import ru.bicev.book_catalog.dto.AuthorDto;
+
+// Published by AuthorService inside the write transaction, listeners react after commit.
+// previous is null for created and deleted authors, current is null for deleted ones
+public record AuthorChangedEvent(ChangeType type, UUID authorId, AuthorDto previous, AuthorDto current) {
+
+}
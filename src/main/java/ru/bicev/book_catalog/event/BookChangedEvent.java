@@ -0,0 +1,11 @@
+package ru.bicev.book_catalog.event;
+
+import java.util.UUID;
+
+import ru.bicev.book_catalog.dto.BookDto;
+
+// Published by BookService inside the write transaction, listeners react after commit.
+// previous is null for created books, current is null for deleted ones
+public record BookChangedEvent(ChangeType type, UUID bookId, BookDto previous, BookDto current) {
+
+}
@@ -0,0 +1,6 @@
+package ru.bicev.book_catalog.event;
+
+// Published inside a transaction of a COPY or bulk import, the rows it loaded are not announced one by one
+public record CatalogImportedEvent() {
+
+}
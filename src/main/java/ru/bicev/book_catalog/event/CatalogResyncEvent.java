@@ -0,0 +1,8 @@
+package ru.bicev.book_catalog.event;
+
+// Published by InvalidationBus when notifications from other nodes may have been missed,
+// and after COPY imports on any node.
+// Every local cache and index reloads its state from the database
+public record CatalogResyncEvent() {
+
+}
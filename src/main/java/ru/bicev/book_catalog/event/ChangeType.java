@@ -0,0 +1,9 @@
+package ru.bicev.book_catalog.event;
+
+public enum ChangeType {
+
+    CREATED,
+    UPDATED,
+    DELETED
+
+}
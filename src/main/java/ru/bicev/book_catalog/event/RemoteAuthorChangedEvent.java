@@ -0,0 +1,11 @@
+package ru.bicev.book_catalog.event;
+
+import java.util.UUID;
+
+import ru.bicev.book_catalog.dto.AuthorDto;
+
+// Published by InvalidationBus when another node committed an author write.
+// current is read from the database after the notification and is null for deleted authors
+public record RemoteAuthorChangedEvent(UUID authorId, AuthorDto current) {
+
+}
@@ -0,0 +1,11 @@
+package ru.bicev.book_catalog.event;
+
+import java.util.UUID;
+
+import ru.bicev.book_catalog.dto.BookDto;
+
+// Published by InvalidationBus when another node committed a book write.
+// current is read from the database after the notification and is null for deleted books
+public record RemoteBookChangedEvent(UUID bookId, BookDto current) {
+
+}
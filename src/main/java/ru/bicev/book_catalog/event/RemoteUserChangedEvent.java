@@ -0,0 +1,7 @@
+package ru.bicev.book_catalog.event;
+
+// Published by InvalidationBus when another node committed a user write,
+// e.g. a password change that revoked the user's tokens
+public record RemoteUserChangedEvent(Long userId) {
+
+}
@@ -0,0 +1,6 @@
+package ru.bicev.book_catalog.event;
+
+// Published by UserService inside the write transaction, listeners react after commit
+public record UserChangedEvent(ChangeType type, Long userId) {
+
+}
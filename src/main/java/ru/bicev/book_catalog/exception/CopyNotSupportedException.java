@@ -0,0 +1,9 @@
+package ru.bicev.book_catalog.exception;
+
+public class CopyNotSupportedException extends RuntimeException {
+
+    public CopyNotSupportedException(String message) {
+        super(message);
+    }
+
+}
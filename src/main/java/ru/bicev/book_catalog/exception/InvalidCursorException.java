@@ -0,0 +1,9 @@
+package ru.bicev.book_catalog.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+}
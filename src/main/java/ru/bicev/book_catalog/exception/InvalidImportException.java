@@ -0,0 +1,9 @@
+package ru.bicev.book_catalog.exception;
+
+public class InvalidImportException extends RuntimeException {
+
+    public InvalidImportException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package ru.bicev.book_catalog.exception;
+
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package ru.bicev.book_catalog.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+}
@@ -1,11 +1,74 @@
 package ru.bicev.book_catalog.repo;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import ru.bicev.book_catalog.dto.AuthorDto;
 import ru.bicev.book_catalog.entity.Author;
 
 public interface AuthorRepository extends JpaRepository<Author, UUID> {
 
+    Window<Author> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    @Query("""
+            SELECT new ru.bicev.book_catalog.dto.AuthorDto(a.id, a.firstName, a.lastName, a.birthYear, a.country)
+            FROM Author a
+            WHERE a.id = :id
+            """)
+    Optional<AuthorDto> findDtoById(UUID id);
+
+    @Query("SELECT a.version FROM Author a WHERE a.id = :id")
+    Optional<Long> findVersionById(UUID id);
+
+    @Query("""
+            SELECT new ru.bicev.book_catalog.repo.VersionedAuthor(a.id, a.firstName, a.lastName, a.birthYear, a.country,
+                a.version)
+            FROM Author a
+            WHERE a.id = :id
+            """)
+    Optional<VersionedAuthor> findVersionedById(UUID id);
+
+    // Changes the row only if it is still at the given version, returns the number of updated rows
+    @Modifying
+    @Query("""
+            UPDATE Author a
+            SET a.firstName = :firstName, a.lastName = :lastName, a.birthYear = :birthYear, a.country = :country,
+                a.fullName = :fullName, a.version = a.version + 1
+            WHERE a.id = :id AND a.version = :version
+            """)
+    int updateIfVersion(UUID id, long version, String firstName, String lastName, int birthYear, String country,
+            String fullName);
+
+    @Query(value = """
+            SELECT new ru.bicev.book_catalog.dto.AuthorDto(a.id, a.firstName, a.lastName, a.birthYear, a.country)
+            FROM Author a
+            """, countQuery = "SELECT count(a) FROM Author a")
+    Page<AuthorDto> findDtoPage(Pageable pageable);
+
+    @Query("""
+            SELECT new ru.bicev.book_catalog.dto.AuthorDto(a.id, a.firstName, a.lastName, a.birthYear, a.country)
+            FROM Author a
+            """)
+    Slice<AuthorDto> findDtoSlice(Pageable pageable);
+
+    @Query("""
+            SELECT new ru.bicev.book_catalog.dto.AuthorDto(a.id, a.firstName, a.lastName, a.birthYear, a.country)
+            FROM Author a
+            WHERE a.id IN :ids
+            """)
+    List<AuthorDto> findDtosByIdIn(Collection<UUID> ids);
+
 }
@@ -0,0 +1,36 @@
+package ru.bicev.book_catalog.repo;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.bicev.book_catalog.dto.BookDto;
+
+// Plain JDBC batch inserts for bulk loads, bypassing the persistence context.
+// With reWriteBatchedInserts on the Postgres URL the driver sends every batch as multi-row INSERTs
+@Repository
+public class BookBatchRepository {
+
+    private static final String INSERT = """
+            INSERT INTO books (id, title, release_year, genre, author_id, version)
+            VALUES (?, ?, ?, ?, ?, 0)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertAll(List<BookDto> books, int batchSize) {
+        jdbcTemplate.batchUpdate(INSERT, books, batchSize, (statement, book) -> {
+            statement.setObject(1, book.id());
+            statement.setString(2, book.title());
+            statement.setInt(3, book.releaseYear());
+            statement.setString(4, book.genre().name());
+            statement.setObject(5, book.author().id());
+        });
+    }
+
+}
@@ -0,0 +1,10 @@
+package ru.bicev.book_catalog.repo;
+
+import java.util.UUID;
+
+import ru.bicev.book_catalog.util.Genre;
+
+// Number of books sharing genre, release year and author, with the author fields facets are built from
+public record BookFacetRow(Genre genre, int releaseYear, UUID authorId, String country, String fullName, long count) {
+
+}
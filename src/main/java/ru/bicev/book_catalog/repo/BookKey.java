@@ -0,0 +1,8 @@
+package ru.bicev.book_catalog.repo;
+
+import ru.bicev.book_catalog.util.Genre;
+
+// Columns of the books unique constraint
+public record BookKey(String title, int releaseYear, Genre genre) {
+
+}
@@ -0,0 +1,63 @@
+package ru.bicev.book_catalog.repo;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.entity.Book;
+
+// Book listings selected straight into BookDto with a constructor expression,
+// so no entities are instantiated, put into the persistence context or dirty checked
+@Repository
+public class BookProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public List<BookDto> findAll(Specification<Book> specification, Pageable pageable) {
+        return query(specification, pageable, pageable.getPageSize());
+    }
+
+    // Reads one extra row to tell whether a next slice exists
+    public Slice<BookDto> findSlice(Specification<Book> specification, Pageable pageable) {
+        List<BookDto> rows = query(specification, pageable, pageable.getPageSize() + 1);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    private List<BookDto> query(Specification<Book> specification, Pageable pageable, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookDto> query = cb.createQuery(BookDto.class);
+        Root<Book> root = query.from(Book.class);
+        Join<Book, Author> author = root.join("author", JoinType.LEFT);
+        query.select(cb.construct(BookDto.class,
+                root.get("id"), root.get("title"), root.get("releaseYear"), root.get("genre"),
+                author.get("id"), author.get("firstName"), author.get("lastName"), author.get("birthYear"),
+                author.get("country")));
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        return entityManager.createQuery(query)
+                .setFirstResult(Math.toIntExact(pageable.getOffset()))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+}
@@ -1,34 +1,107 @@
 package ru.bicev.book_catalog.repo;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import jakarta.persistence.QueryHint;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.entity.Author;
 import ru.bicev.book_catalog.entity.Book;
 import ru.bicev.book_catalog.util.Genre;
 
-public interface BookRepository extends JpaRepository<Book, UUID> {
+// Book.author is lazy. Entity reads that map the author get it in the same statement, either through
+// the entity graph below or through the fetch join in BookSpecifications; listings select DTOs
+public interface BookRepository extends JpaRepository<Book, UUID>, JpaSpecificationExecutor<Book> {
 
-    Page<Book> findByAuthorId(UUID authorId, Pageable pageable);
+    @Override
+    @EntityGraph(attributePaths = "author")
+    Optional<Book> findById(UUID id);
 
     @Query("""
-            SELECT b
+            SELECT new ru.bicev.book_catalog.dto.BookDto(b.id, b.title, b.releaseYear, b.genre,
+                a.id, a.firstName, a.lastName, a.birthYear, a.country)
+            FROM Book b LEFT JOIN b.author a
+            WHERE b.id = :id
+            """)
+    Optional<BookDto> findDtoById(UUID id);
+
+    @Query("""
+            SELECT new ru.bicev.book_catalog.repo.BookVersion(b.version, a.id, a.version)
+            FROM Book b LEFT JOIN b.author a
+            WHERE b.id = :id
+            """)
+    Optional<BookVersion> findVersionById(UUID id);
+
+    @Query("""
+            SELECT new ru.bicev.book_catalog.repo.BookRow(b.id, b.title, b.releaseYear, b.genre, b.author.id, b.version)
             FROM Book b
-            JOIN b.author a
-            WHERE LOWER(CONCAT(a.firstName,' ',a.lastName))
-            LIKE LOWER(CONCAT('%',:name,'%'))
+            WHERE b.id = :id
             """)
-    Page<Book> findByAuthorName(String name, Pageable pageable);
+    Optional<BookRow> findRowById(UUID id);
 
-    Page<Book> findByReleaseYear(int releaseYear, Pageable pageable);
+    @Query("""
+            SELECT new ru.bicev.book_catalog.repo.VersionedBook(b.id, b.title, b.releaseYear, b.genre,
+                a.id, a.firstName, a.lastName, a.birthYear, a.country, b.version, a.version)
+            FROM Book b LEFT JOIN b.author a
+            WHERE b.id = :id
+            """)
+    Optional<VersionedBook> findVersionedById(UUID id);
 
-    Page<Book> findByReleaseYearBetween(int startYear, int endYear, Pageable pageable);
+    // Changes the row only if it is still at the given version, returns the number of updated rows
+    @Modifying
+    @Query("""
+            UPDATE Book b
+            SET b.title = :title, b.releaseYear = :releaseYear, b.genre = :genre, b.author = :author,
+                b.version = b.version + 1
+            WHERE b.id = :id AND b.version = :version
+            """)
+    int updateIfVersion(UUID id, long version, String title, int releaseYear, Genre genre, Author author);
 
-    Page<Book> findByGenre(Genre genre, Pageable pageable);
+    @Query("""
+            SELECT new ru.bicev.book_catalog.dto.BookDto(b.id, b.title, b.releaseYear, b.genre,
+                a.id, a.firstName, a.lastName, a.birthYear, a.country)
+            FROM Book b LEFT JOIN b.author a
+            WHERE b.id IN :ids
+            """)
+    List<BookDto> findDtosByIdIn(Collection<UUID> ids);
+
+    // Forward-only cursor over all books in id order, must be consumed inside a transaction and closed.
+    // Postgres fetches rows in chunks of the fetch size only with autocommit off
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("""
+            SELECT new ru.bicev.book_catalog.dto.BookDto(b.id, b.title, b.releaseYear, b.genre,
+                a.id, a.firstName, a.lastName, a.birthYear, a.country)
+            FROM Book b LEFT JOIN b.author a
+            ORDER BY b.id
+            """)
+    Stream<BookDto> streamAllDtos();
+
+    @Query("SELECT new ru.bicev.book_catalog.repo.BookKey(b.title, b.releaseYear, b.genre) FROM Book b WHERE b.title IN :titles")
+    List<BookKey> findKeysByTitleIn(Collection<String> titles);
 
-    Page<Book> findByTitleContainingIgnoreCase(String title, Pageable pageable);
+    @Query("""
+            SELECT new ru.bicev.book_catalog.repo.BookFacetRow(b.genre, b.releaseYear, a.id, a.country, a.fullName, count(b))
+            FROM Book b LEFT JOIN b.author a
+            GROUP BY b.genre, b.releaseYear, a.id, a.country, a.fullName
+            """)
+    List<BookFacetRow> findFacetRows();
+
+    @Query("""
+            SELECT new ru.bicev.book_catalog.repo.BookFacetRow(b.genre, b.releaseYear, a.id, a.country, a.fullName, count(b))
+            FROM Book b LEFT JOIN b.author a
+            WHERE lower(b.title) LIKE :pattern ESCAPE '\\'
+            GROUP BY b.genre, b.releaseYear, a.id, a.country, a.fullName
+            """)
+    List<BookFacetRow> findFacetRowsByTitleLike(String pattern);
 
 }
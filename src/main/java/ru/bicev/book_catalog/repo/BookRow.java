@@ -0,0 +1,11 @@
+package ru.bicev.book_catalog.repo;
+
+import java.util.UUID;
+
+import ru.bicev.book_catalog.util.Genre;
+
+// Columns of a book row as cached by id. The author is referenced by id only, responses take it from
+// the author caches when they are built, so an author change never has to find the books that embed it
+public record BookRow(UUID id, String title, int releaseYear, Genre genre, UUID authorId, long version) {
+
+}
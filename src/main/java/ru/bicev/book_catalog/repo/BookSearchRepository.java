@@ -0,0 +1,184 @@
+package ru.bicev.book_catalog.repo;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ru.bicev.book_catalog.entity.Author;
+
+// Substring and similarity search over book titles and author names.
+// On Postgres both columns get pg_trgm GiST indexes, so LIKE '%q%' and the % operator use index scans
+// and results are ranked by trigram distance. Other databases (H2 in tests) fall back to plain LIKE ordered by title
+@Repository
+public class BookSearchRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchRepository.class);
+
+    // Ranking every match before OFFSET/LIMIT sorts the whole result of a common word, so each branch reads
+    // only the offset + limit nearest matches straight from the GiST index (KNN ORDER BY <-> ... LIMIT).
+    // An OR can't be served by one ordered index scan, so substring and similarity matches are separate branches.
+    // Authors are matched the same way and expanded to their books, a book keeps the distance of its best branch
+    private static final String TRIGRAM_SEARCH = """
+            WITH author_matches AS (
+                (SELECT a.id, a.full_name <-> :query AS distance
+                 FROM authors a
+                 WHERE a.full_name LIKE :pattern
+                   AND EXISTS (SELECT 1 FROM books b WHERE b.author_id = a.id)
+                 ORDER BY distance
+                 LIMIT :candidates)
+                UNION ALL
+                (SELECT a.id, a.full_name <-> :query AS distance
+                 FROM authors a
+                 WHERE a.full_name % :query
+                   AND EXISTS (SELECT 1 FROM books b WHERE b.author_id = a.id)
+                 ORDER BY distance
+                 LIMIT :candidates)
+            ), matches AS (
+                (SELECT b.id, lower(b.title) <-> :query AS distance
+                 FROM books b
+                 WHERE lower(b.title) LIKE :pattern
+                 ORDER BY distance
+                 LIMIT :candidates)
+                UNION ALL
+                (SELECT b.id, lower(b.title) <-> :query AS distance
+                 FROM books b
+                 WHERE lower(b.title) % :query
+                 ORDER BY distance
+                 LIMIT :candidates)
+                UNION ALL
+                SELECT b.id, m.distance
+                FROM author_matches m
+                JOIN books b ON b.author_id = m.id
+            )
+            SELECT CAST(b.id AS varchar)
+            FROM (SELECT id, min(distance) AS distance FROM matches GROUP BY id) m
+            JOIN books b ON b.id = m.id
+            ORDER BY m.distance, b.title, b.id
+            OFFSET :offset LIMIT :limit
+            """;
+
+    private static final String LIKE_SEARCH = """
+            SELECT b.id
+            FROM Book b
+            JOIN b.author a
+            WHERE lower(b.title) LIKE :pattern ESCAPE '\\'
+               OR a.fullName LIKE :pattern ESCAPE '\\'
+            ORDER BY b.title, b.id
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private volatile boolean trigramAvailable;
+
+    public BookSearchRepository(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareIndexes() {
+        jdbcTemplate.update(
+                "UPDATE authors SET full_name = lower(first_name || ' ' || last_name) WHERE full_name IS NULL");
+        if (!isPostgres()) {
+            logger.info("Trigram search is not available, using LIKE search");
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            // GIN indexes of earlier versions can't return rows in distance order
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS idx_books_title_trgm");
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS idx_authors_full_name_trgm");
+            // the default 12-byte signature is saturated by the trigrams of a whole title and every
+            // similarity probe rechecks most of the table, a wider one keeps rare words cheap
+            createIndex("idx_books_title_trgm_gist", "books USING gist (lower(title) gist_trgm_ops(siglen = 128))");
+            createIndex("idx_authors_full_name_trgm_gist",
+                    "authors USING gist (full_name gist_trgm_ops(siglen = 128))");
+            // the author branch of the search goes from matching authors to their books
+            createIndex("idx_books_author_id", "books (author_id)");
+            trigramAvailable = true;
+            logger.info("Trigram indexes are ready");
+        } catch (DataAccessException ex) {
+            logger.warn("Could not create trigram indexes, using LIKE search: {}", ex.getMessage());
+        }
+    }
+
+    // Every node runs this on startup, so the build must not lock out writers: CONCURRENTLY only waits for
+    // running transactions and needs autocommit, which holds here as the listener runs outside any transaction.
+    // A concurrent build that failed leaves an invalid index behind that IF NOT EXISTS would keep forever,
+    // it is dropped and built again unless another node is still building it
+    private void createIndex(String name, String definition) {
+        Boolean abandoned = jdbcTemplate.query("""
+                SELECT NOT i.indisvalid
+                       AND NOT EXISTS (SELECT 1 FROM pg_stat_progress_create_index p WHERE p.index_relid = i.indexrelid)
+                FROM pg_index i
+                JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE c.relname = ? AND pg_table_is_visible(c.oid)
+                """, rs -> rs.next() && rs.getBoolean(1), name);
+        if (Boolean.TRUE.equals(abandoned)) {
+            logger.warn("Index {} was left invalid by an interrupted build, rebuilding it", name);
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        }
+        jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + definition);
+    }
+
+    public boolean isTrigramAvailable() {
+        return trigramAvailable;
+    }
+
+    // Returns ids of matching books in rank order, the caller loads the books themselves
+    public List<UUID> search(String query, long offset, int limit) {
+        return trigramAvailable ? rankedSearch(query, offset, limit) : likeSearch(query, offset, limit);
+    }
+
+    // Postgres only: matches by substring or similarity, best match first
+    @SuppressWarnings("unchecked")
+    public List<UUID> rankedSearch(String query, long offset, int limit) {
+        String normalized = Author.normalize(query.trim());
+        List<String> ids = entityManager.createNativeQuery(TRIGRAM_SEARCH)
+                .setParameter("pattern", "%" + escape(normalized) + "%")
+                .setParameter("query", normalized)
+                .setParameter("candidates", offset + limit)
+                .setParameter("offset", offset)
+                .setParameter("limit", limit)
+                .getResultList();
+        return ids.stream().map(UUID::fromString).toList();
+    }
+
+    // Substring matches ordered by title, used where pg_trgm is not available
+    public List<UUID> likeSearch(String query, long offset, int limit) {
+        String normalized = Author.normalize(query.trim());
+        return entityManager.createQuery(LIKE_SEARCH, UUID.class)
+                .setParameter("pattern", "%" + escape(normalized) + "%")
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+}
@@ -0,0 +1,103 @@
+package ru.bicev.book_catalog.repo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import ru.bicev.book_catalog.dto.BookFilter;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.entity.Book;
+
+public final class BookSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private BookSpecifications() {
+    }
+
+    // Builds one statement for any combination of filters. The author is fetch joined for
+    // entity queries so that listing pages don't load authors one by one, count and projection
+    // queries only join it when the name filter needs it, reusing a join the query already has.
+    // Title and name predicates match the trigram index expressions created by BookSearchRepository.
+    public static Specification<Book> matching(BookFilter filter) {
+        return (root, query, cb) -> {
+            Join<Book, Author> author = isEntityQuery(query) ? fetchAuthor(root) : null;
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (filter.authorId() != null) {
+                predicates.add(cb.equal(root.get("author").get("id"), filter.authorId()));
+            }
+            if (filter.name() != null) {
+                if (author == null) {
+                    author = authorJoin(root);
+                }
+                predicates.add(containsIgnoreCase(cb, author.get("fullName"), filter.name()));
+            }
+            if (filter.releaseYear() != null) {
+                predicates.add(cb.equal(root.get("releaseYear"), filter.releaseYear()));
+            }
+            if (filter.startYear() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("releaseYear"), filter.startYear()));
+            }
+            if (filter.endYear() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("releaseYear"), filter.endYear()));
+            }
+            if (filter.genre() != null) {
+                predicates.add(cb.equal(root.get("genre"), filter.genre()));
+            }
+            if (filter.title() != null) {
+                predicates.add(containsIgnoreCase(cb, cb.lower(root.get("title")), filter.title()));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    // Exact match against lowercased titles, used for the candidates of a fuzzy title search
+    public static Specification<Book> titleIn(Collection<String> lowercasedTitles) {
+        return (root, query, cb) -> lowercasedTitles.isEmpty()
+                ? cb.disjunction()
+                : cb.lower(root.get("title")).in(lowercasedTitles);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Join<Book, Author> fetchAuthor(Root<Book> root) {
+        return (Join<Book, Author>) root.<Book, Author>fetch("author", JoinType.LEFT);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Join<Book, Author> authorJoin(Root<Book> root) {
+        for (Join<Book, ?> join : root.getJoins()) {
+            if ("author".equals(join.getAttribute().getName())) {
+                return (Join<Book, Author>) join;
+            }
+        }
+        return root.join("author");
+    }
+
+    private static boolean isEntityQuery(CriteriaQuery<?> query) {
+        return query.getResultType() == Book.class;
+    }
+
+    // LIKE pattern for a lowercased column, with backslash as the escape character
+    public static String containsPattern(String value) {
+        return "%" + escape(Author.normalize(value)) + "%";
+    }
+
+    private static Predicate containsIgnoreCase(CriteriaBuilder cb, Expression<String> lowered, String value) {
+        return cb.like(lowered, containsPattern(value), ESCAPE);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+}
@@ -0,0 +1,14 @@
+package ru.bicev.book_catalog.repo;
+
+import java.util.UUID;
+
+import ru.bicev.book_catalog.util.ETags;
+
+// Versions a book response depends on, authorVersion is null for books without an author
+public record BookVersion(long version, UUID authorId, Long authorVersion) {
+
+    public String etag() {
+        return ETags.of(version, authorVersion);
+    }
+
+}
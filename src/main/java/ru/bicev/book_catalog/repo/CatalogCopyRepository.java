@@ -0,0 +1,234 @@
+package ru.bicev.book_catalog.repo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.bicev.book_catalog.exception.InvalidImportException;
+import ru.bicev.book_catalog.util.Genre;
+
+// Initial loads through Postgres COPY. Every call must run inside a transaction:
+// the CSV is streamed into an ON COMMIT DROP staging table of text columns, malformed rows are dropped,
+// and the rest are merged with set-based DELETEs that sort rows out by the unique constraints
+// and a single INSERT ... SELECT. Rows are never read back into the application
+@Repository
+public class CatalogCopyRepository {
+
+    private static final String UUID_PATTERN = "'^\\s*[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\s*$'";
+    private static final String INT_PATTERN = "'^\\s*-?[0-9]{1,9}\\s*$'";
+
+    // UuidV7 in SQL for rows without an id: the random bytes of a v4 UUID with the first 48 bits replaced
+    // by the current Unix milliseconds and the version bits turned from 4 into 7
+    private static final String UUID_V7 = """
+            encode(set_bit(set_bit(overlay(uuid_send(gen_random_uuid())
+                placing substring(int8send(floor(extract(epoch FROM clock_timestamp()) * 1000)::bigint) FROM 3)
+                FROM 1 FOR 6), 52, 1), 53, 1), 'hex')::uuid""";
+
+    private static final String STAGE_AUTHORS = """
+            CREATE TEMP TABLE staged_authors (
+                line bigserial, id text, first_name text, last_name text, birth_year text, country text
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_AUTHORS = """
+            COPY staged_authors (id, first_name, last_name, birth_year, country)
+            FROM STDIN WITH (FORMAT csv, HEADER true)
+            """;
+
+    private static final String DROP_INVALID_AUTHORS = """
+            DELETE FROM staged_authors
+            WHERE NOT (
+                (coalesce(trim(id), '') = '' OR id ~ %1$s)
+                AND coalesce(trim(first_name), '') <> ''
+                AND coalesce(trim(last_name), '') <> ''
+                AND coalesce(trim(country), '') <> ''
+                AND CASE WHEN birth_year ~ %2$s THEN trim(birth_year)::int BETWEEN -2600 AND ? ELSE false END
+            )
+            """.formatted(UUID_PATTERN, INT_PATTERN);
+
+    private static final String TYPE_AUTHORS = """
+            CREATE TEMP TABLE author_rows ON COMMIT DROP AS
+            SELECT line, coalesce(nullif(trim(id), '')::uuid, %s) AS id,
+                   first_name, last_name, trim(birth_year)::int AS birth_year, country
+            FROM staged_authors
+            """.formatted(UUID_V7);
+
+    private static final String DROP_REPEATED_AUTHORS = """
+            DELETE FROM author_rows r
+            USING author_rows o
+            WHERE o.first_name = r.first_name AND o.last_name = r.last_name
+              AND o.birth_year = r.birth_year AND o.country = r.country
+              AND o.line < r.line
+            """;
+
+    private static final String DROP_EXISTING_AUTHORS = """
+            DELETE FROM author_rows r
+            USING authors a
+            WHERE a.first_name = r.first_name AND a.last_name = r.last_name
+              AND a.birth_year = r.birth_year AND a.country = r.country
+            """;
+
+    private static final String DROP_TAKEN_AUTHOR_IDS = """
+            DELETE FROM author_rows r
+            WHERE EXISTS (SELECT 1 FROM authors a WHERE a.id = r.id)
+               OR EXISTS (SELECT 1 FROM author_rows o WHERE o.id = r.id AND o.line < r.line)
+            """;
+
+    private static final String MERGE_AUTHORS = """
+            INSERT INTO authors (id, first_name, last_name, birth_year, country, full_name, version)
+            SELECT id, first_name, last_name, birth_year, country, lower(first_name || ' ' || last_name), 0
+            FROM author_rows
+            ORDER BY line
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String STAGE_BOOKS = """
+            CREATE TEMP TABLE staged_books (
+                line bigserial, id text, title text, release_year text, genre text, author_id text
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_BOOKS = """
+            COPY staged_books (id, title, release_year, genre, author_id)
+            FROM STDIN WITH (FORMAT csv, HEADER true)
+            """;
+
+    private static final String DROP_INVALID_BOOKS = """
+            DELETE FROM staged_books
+            WHERE NOT (
+                (coalesce(trim(id), '') = '' OR id ~ %1$s)
+                AND coalesce(trim(title), '') <> ''
+                AND coalesce(trim(genre), '') IN (%3$s)
+                AND coalesce(author_id, '') ~ %1$s
+                AND CASE WHEN release_year ~ %2$s THEN trim(release_year)::int BETWEEN 0 AND ? ELSE false END
+            )
+            """.formatted(UUID_PATTERN, INT_PATTERN, Arrays.stream(Genre.values())
+            .map(genre -> "'" + genre.name() + "'")
+            .collect(Collectors.joining(", ")));
+
+    private static final String TYPE_BOOKS = """
+            CREATE TEMP TABLE book_rows ON COMMIT DROP AS
+            SELECT line, coalesce(nullif(trim(id), '')::uuid, %s) AS id,
+                   title, trim(release_year)::int AS release_year, trim(genre) AS genre, trim(author_id)::uuid AS author_id
+            FROM staged_books
+            """.formatted(UUID_V7);
+
+    // Repeats of a book already in the file or the table are skipped when they name the same author
+    // and conflict when they name another one
+    private static final String DROP_REPEATED_BOOKS = """
+            DELETE FROM book_rows r
+            USING book_rows o
+            WHERE o.title = r.title AND o.release_year = r.release_year AND o.genre = r.genre
+              AND o.line < r.line AND o.author_id %s r.author_id
+            """;
+
+    private static final String DROP_EXISTING_BOOKS = """
+            DELETE FROM book_rows r
+            USING books b
+            WHERE b.title = r.title AND b.release_year = r.release_year AND b.genre = r.genre
+              AND (b.author_id IS NOT DISTINCT FROM r.author_id) = ?
+            """;
+
+    private static final String DROP_ORPHAN_BOOKS = """
+            DELETE FROM book_rows r
+            WHERE NOT EXISTS (SELECT 1 FROM authors a WHERE a.id = r.author_id)
+            """;
+
+    private static final String DROP_TAKEN_BOOK_IDS = """
+            DELETE FROM book_rows r
+            WHERE EXISTS (SELECT 1 FROM books b WHERE b.id = r.id)
+               OR EXISTS (SELECT 1 FROM book_rows o WHERE o.id = r.id AND o.line < r.line)
+            """;
+
+    private static final String MERGE_BOOKS = """
+            INSERT INTO books (id, title, release_year, genre, author_id, version)
+            SELECT id, title, release_year, genre, author_id, 0
+            FROM book_rows
+            ORDER BY line
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    public CatalogCopyRepository(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    public boolean isSupported() {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    public CopyCounts copyAuthors(InputStream csv) {
+        jdbcTemplate.execute(STAGE_AUTHORS);
+        long rows = copy(COPY_AUTHORS, csv);
+        jdbcTemplate.execute("ANALYZE staged_authors");
+        long invalid = jdbcTemplate.update(DROP_INVALID_AUTHORS, Year.now().getValue() - 10);
+
+        jdbcTemplate.execute(TYPE_AUTHORS);
+        jdbcTemplate.execute("ANALYZE author_rows");
+        long skipped = jdbcTemplate.update(DROP_REPEATED_AUTHORS);
+        skipped += jdbcTemplate.update(DROP_EXISTING_AUTHORS);
+        long conflicting = jdbcTemplate.update(DROP_TAKEN_AUTHOR_IDS);
+
+        long candidates = rows - invalid - skipped - conflicting;
+        long inserted = jdbcTemplate.update(MERGE_AUTHORS);
+        // rows committed by concurrent writers since the checks above are left out by ON CONFLICT
+        return new CopyCounts(rows, inserted, skipped, conflicting + candidates - inserted, invalid);
+    }
+
+    public CopyCounts copyBooks(InputStream csv) {
+        jdbcTemplate.execute(STAGE_BOOKS);
+        long rows = copy(COPY_BOOKS, csv);
+        jdbcTemplate.execute("ANALYZE staged_books");
+        long invalid = jdbcTemplate.update(DROP_INVALID_BOOKS, Year.now().getValue());
+
+        jdbcTemplate.execute(TYPE_BOOKS);
+        jdbcTemplate.execute("ANALYZE book_rows");
+        long skipped = jdbcTemplate.update(DROP_REPEATED_BOOKS.formatted("="));
+        long conflicting = jdbcTemplate.update(DROP_REPEATED_BOOKS.formatted("<>"));
+        skipped += jdbcTemplate.update(DROP_EXISTING_BOOKS, true);
+        conflicting += jdbcTemplate.update(DROP_EXISTING_BOOKS, false);
+        conflicting += jdbcTemplate.update(DROP_ORPHAN_BOOKS);
+        conflicting += jdbcTemplate.update(DROP_TAKEN_BOOK_IDS);
+
+        long candidates = rows - invalid - skipped - conflicting;
+        long inserted = jdbcTemplate.update(MERGE_BOOKS);
+        return new CopyCounts(rows, inserted, skipped, conflicting + candidates - inserted, invalid);
+    }
+
+    private long copy(String sql, InputStream csv) {
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, csv);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } catch (SQLException ex) {
+                // class 22 is data exceptions: wrong column count, unterminated quotes, bad encoding
+                if (ex.getSQLState() != null && ex.getSQLState().startsWith("22")) {
+                    throw new InvalidImportException("Malformed CSV: " + ex.getMessage());
+                }
+                throw ex;
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+
+}
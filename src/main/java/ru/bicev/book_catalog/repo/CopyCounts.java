@@ -0,0 +1,6 @@
+package ru.bicev.book_catalog.repo;
+
+// Outcome of one COPY load: rows read, inserted, already present, clashing with other rows and malformed
+public record CopyCounts(long rows, long inserted, long skipped, long conflicting, long invalid) {
+
+}
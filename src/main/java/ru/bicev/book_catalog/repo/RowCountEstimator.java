@@ -0,0 +1,34 @@
+package ru.bicev.book_catalog.repo;
+
+import java.util.OptionalLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class RowCountEstimator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowCountEstimator.class);
+    private final JdbcTemplate jdbcTemplate;
+
+    public RowCountEstimator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Planner statistics from Postgres, kept up to date by autovacuum/ANALYZE.
+    // Empty when the table was never analyzed or the database is not Postgres
+    public OptionalLong estimate(String table) {
+        try {
+            Long estimate = jdbcTemplate.queryForObject(
+                    "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)", Long.class, table);
+            return estimate == null || estimate < 0 ? OptionalLong.empty() : OptionalLong.of(estimate);
+        } catch (DataAccessException ex) {
+            logger.debug("Row estimate is not available for {}: {}", table, ex.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+
+}
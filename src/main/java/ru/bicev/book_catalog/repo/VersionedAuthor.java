@@ -0,0 +1,14 @@
+package ru.bicev.book_catalog.repo;
+
+import java.util.UUID;
+
+import ru.bicev.book_catalog.dto.AuthorDto;
+
+// Current state of an author read before a conditional update, together with the version it was read at
+public record VersionedAuthor(AuthorDto author, long version) {
+
+    public VersionedAuthor(UUID id, String firstName, String lastName, int birthYear, String country, long version) {
+        this(new AuthorDto(id, firstName, lastName, birthYear, country), version);
+    }
+
+}
@@ -0,0 +1,17 @@
+package ru.bicev.book_catalog.repo;
+
+import java.util.UUID;
+
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.util.Genre;
+
+// Current state of a book read before a conditional update, together with the versions it was read at
+public record VersionedBook(BookDto book, BookVersion version) {
+
+    public VersionedBook(UUID id, String title, int releaseYear, Genre genre, UUID authorId, String authorFirstName,
+            String authorLastName, Integer authorBirthYear, String authorCountry, long version, Long authorVersion) {
+        this(new BookDto(id, title, releaseYear, genre, authorId, authorFirstName, authorLastName, authorBirthYear,
+                authorCountry), new BookVersion(version, authorId, authorVersion));
+    }
+
+}
@@ -0,0 +1,106 @@
+package ru.bicev.book_catalog.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Burkhard-Keller tree over words with Levenshtein distance. A lookup only descends into children
+// whose edge distance is within maxDistance of the distance to the current node, so small radii
+// visit a small part of the tree. Lookups may run concurrently, adding a word needs exclusive access
+public class BkTree {
+
+    private Node root;
+    private int size;
+
+    private static final class Node {
+
+        private final String word;
+        private final Map<Integer, Node> children = new HashMap<>(4);
+
+        private Node(String word) {
+            this.word = word;
+        }
+
+    }
+
+    // Returns false when the word is already in the tree
+    public boolean add(String word) {
+        if (root == null) {
+            root = new Node(word);
+            size++;
+            return true;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(word, node.word);
+            if (distance == 0) {
+                return false;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(word));
+                size++;
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    public record Match(String word, int distance) {
+    }
+
+    public List<String> search(String query, int maxDistance) {
+        return match(query, maxDistance).stream().map(Match::word).toList();
+    }
+
+    // Words within maxDistance of the query together with their distance
+    public List<Match> match(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int distance = distance(query, node.word);
+            if (distance <= maxDistance) {
+                matches.add(new Match(node.word, distance));
+            }
+            for (int edge = Math.max(1, distance - maxDistance); edge <= distance + maxDistance; edge++) {
+                Node child = node.children.get(edge);
+                if (child != null) {
+                    stack.push(child);
+                }
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+}
@@ -0,0 +1,41 @@
+package ru.bicev.book_catalog.search;
+
+import java.util.function.Consumer;
+
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+
+import ru.bicev.book_catalog.dto.BookFilter;
+import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.repo.BookSpecifications;
+
+// Reads all books in id order with keyset pagination, used to build the in-memory indexes at startup
+@Component
+public class BookScanner {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final BookRepository bookRepository;
+
+    public BookScanner(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    public void forEach(Consumer<Book> consumer) {
+        ScrollPosition position = ScrollPosition.keyset();
+        Window<Book> window;
+        do {
+            ScrollPosition current = position;
+            window = bookRepository.findBy(BookSpecifications.matching(BookFilter.empty()),
+                    query -> query.sortBy(Sort.by("id")).limit(BATCH_SIZE).scroll(current));
+            window.forEach(consumer);
+            if (!window.isEmpty()) {
+                position = window.positionAt(window.size() - 1);
+            }
+        } while (window.hasNext());
+    }
+
+}
@@ -0,0 +1,175 @@
+package ru.bicev.book_catalog.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.SearchHitDto;
+import ru.bicev.book_catalog.event.AuthorChangedEvent;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.ChangeType;
+import ru.bicev.book_catalog.event.RemoteAuthorChangedEvent;
+import ru.bicev.book_catalog.event.RemoteBookChangedEvent;
+import ru.bicev.book_catalog.util.BookMapper;
+
+// Full text search over titles, author names and genres served from memory.
+// The index is built from the database at startup and kept up to date by committed write events
+@Service
+public class CatalogSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSearchService.class);
+    private static final int MAX_LIMIT = 100;
+
+    private final BookScanner bookScanner;
+    private final Object reloadLock = new Object();
+    private volatile Documents documents = new Documents();
+    // Changes applied while a reload scans the table, replayed on the new documents before they are published
+    private List<Consumer<Documents>> pending;
+
+    // The index with the maps needed to update it. A reload builds a new instance and swaps it in,
+    // so searches keep reading the previous one until the new one is complete
+    private static class Documents {
+
+        private final InvertedIndex<UUID, BookDto> index = new InvertedIndex<>();
+        private final Map<UUID, BookDto> books = new HashMap<>();
+        private final Map<UUID, Set<UUID>> authorBooks = new HashMap<>();
+
+        private void put(BookDto book) {
+            remove(book.id());
+            index.put(book.id(), book, tokens(book));
+            books.put(book.id(), book);
+            authorBooks.computeIfAbsent(book.author().id(), id -> new HashSet<>()).add(book.id());
+        }
+
+        private void remove(UUID bookId) {
+            BookDto book = books.remove(bookId);
+            if (book == null) {
+                return;
+            }
+            index.remove(bookId);
+            Set<UUID> ids = authorBooks.get(book.author().id());
+            ids.remove(bookId);
+            if (ids.isEmpty()) {
+                authorBooks.remove(book.author().id());
+            }
+        }
+
+        private void reindexAuthor(AuthorDto author) {
+            for (UUID bookId : List.copyOf(authorBooks.getOrDefault(author.id(), Set.of()))) {
+                BookDto book = books.get(bookId);
+                put(new BookDto(book.id(), book.title(), book.releaseYear(), book.genre(), author));
+            }
+        }
+
+    }
+
+    public CatalogSearchService(BookScanner bookScanner) {
+        this.bookScanner = bookScanner;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        synchronized (reloadLock) {
+            long started = System.currentTimeMillis();
+            Documents loaded = new Documents();
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+            try {
+                bookScanner.forEach(book -> loaded.put(BookMapper.toDto(book)));
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    pending = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                pending.forEach(change -> change.accept(loaded));
+                pending = null;
+                documents = loaded;
+            }
+            logger.info("Search index loaded: {} books, {} terms in {} ms", loaded.index.size(),
+                    loaded.index.termCount(), System.currentTimeMillis() - started);
+        }
+    }
+
+    public List<SearchHitDto> search(String query, int limit) {
+        List<SearchHitDto> hits = new ArrayList<>();
+        for (InvertedIndex.Hit<BookDto> hit : documents.index.search(Tokenizer.tokenize(query),
+                Math.min(limit, MAX_LIMIT))) {
+            hits.add(new SearchHitDto(hit.score(), hit.payload()));
+        }
+        logger.debug("Searched index by query: {}, hits: {}", query, hits.size());
+        return hits;
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.type() == ChangeType.DELETED) {
+            apply(documents -> documents.remove(event.bookId()));
+        } else {
+            apply(documents -> documents.put(event.current()));
+        }
+    }
+
+    // Author names are part of every book document, so their books are reindexed
+    @TransactionalEventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        if (event.type() == ChangeType.UPDATED) {
+            apply(documents -> documents.reindexAuthor(event.current()));
+        }
+    }
+
+    @EventListener
+    public void onRemoteBookChanged(RemoteBookChangedEvent event) {
+        if (event.current() == null) {
+            apply(documents -> documents.remove(event.bookId()));
+        } else {
+            apply(documents -> documents.put(event.current()));
+        }
+    }
+
+    // A deleted author has no books left, their removals arrive as book changes
+    @EventListener
+    public void onRemoteAuthorChanged(RemoteAuthorChangedEvent event) {
+        if (event.current() != null) {
+            apply(documents -> documents.reindexAuthor(event.current()));
+        }
+    }
+
+    @EventListener
+    public void onResync(CatalogResyncEvent event) {
+        loadIndex();
+    }
+
+    private synchronized void apply(Consumer<Documents> change) {
+        change.accept(documents);
+        if (pending != null) {
+            pending.add(change);
+        }
+    }
+
+    private static List<String> tokens(BookDto book) {
+        List<String> tokens = new ArrayList<>(Tokenizer.tokenize(book.title()));
+        tokens.addAll(Tokenizer.tokenize(book.author().firstName()));
+        tokens.addAll(Tokenizer.tokenize(book.author().lastName()));
+        tokens.addAll(Tokenizer.tokenize(book.genre().name()));
+        return tokens;
+    }
+
+}
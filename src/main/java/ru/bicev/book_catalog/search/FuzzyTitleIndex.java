@@ -0,0 +1,220 @@
+package ru.bicev.book_catalog.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.ChangeType;
+import ru.bicev.book_catalog.event.RemoteBookChangedEvent;
+
+// Typo tolerant title lookup. Title words are kept in a BK-tree, every query word is matched against
+// it within an edit distance that grows with the word length up to max-distance, and the titles
+// containing a match for every query word are returned lowercased for a title IN query.
+// Queries share a read lock and run concurrently, writes take the write lock
+@Service
+public class FuzzyTitleIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(FuzzyTitleIndex.class);
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private final BookScanner bookScanner;
+    private final int maxDistance;
+    private final int maxCandidates;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object reloadLock = new Object();
+    private Words index = new Words();
+    // Changes applied while a reload scans the table, replayed on the new words before they are swapped in
+    private List<Consumer<Words>> pending;
+
+    // The tree with the maps needed to update it. A reload builds a new instance without holding the lock
+    // and swaps it in under the write lock, so lookups only wait for the swap
+    private static class Words {
+
+        private BkTree tree = new BkTree();
+        private final Map<String, Map<String, Integer>> titlesByWord = new HashMap<>();
+        private final Map<UUID, String> titles = new HashMap<>();
+        private int deadWords;
+
+        private void put(UUID bookId, String title) {
+            remove(bookId);
+            String normalized = Author.normalize(title);
+            titles.put(bookId, normalized);
+            for (String word : Set.copyOf(Tokenizer.tokenize(normalized))) {
+                Map<String, Integer> wordTitles = titlesByWord.computeIfAbsent(word, w -> new HashMap<>());
+                if (wordTitles.isEmpty() && !tree.add(word)) {
+                    deadWords--;
+                }
+                wordTitles.merge(normalized, 1, Integer::sum);
+            }
+        }
+
+        private void remove(UUID bookId) {
+            String normalized = titles.remove(bookId);
+            if (normalized == null) {
+                return;
+            }
+            for (String word : Set.copyOf(Tokenizer.tokenize(normalized))) {
+                Map<String, Integer> wordTitles = titlesByWord.get(word);
+                wordTitles.computeIfPresent(normalized, (title, count) -> count > 1 ? count - 1 : null);
+                if (wordTitles.isEmpty()) {
+                    titlesByWord.remove(word);
+                    deadWords++;
+                }
+            }
+            if (deadWords > COMPACT_THRESHOLD && deadWords > titlesByWord.size()) {
+                compact();
+            }
+        }
+
+        // BK-trees can't delete words, so the tree is rebuilt once most of its words are gone
+        private void compact() {
+            BkTree compacted = new BkTree();
+            titlesByWord.keySet().forEach(compacted::add);
+            tree = compacted;
+            deadWords = 0;
+        }
+
+    }
+
+    public FuzzyTitleIndex(BookScanner bookScanner,
+            @Value("${catalog.search.fuzzy.max-distance:1}") int maxDistance,
+            @Value("${catalog.search.fuzzy.max-candidates:1000}") int maxCandidates) {
+        this.bookScanner = bookScanner;
+        this.maxDistance = maxDistance;
+        this.maxCandidates = maxCandidates;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        synchronized (reloadLock) {
+            long started = System.currentTimeMillis();
+            Words loaded = new Words();
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                bookScanner.forEach(book -> loaded.put(book.getId(), book.getTitle()));
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+            lock.writeLock().lock();
+            try {
+                pending.forEach(change -> change.accept(loaded));
+                pending = null;
+                index = loaded;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Fuzzy title index loaded: {} titles, {} words in {} ms", loaded.titles.size(),
+                    loaded.tree.size(), System.currentTimeMillis() - started);
+        }
+    }
+
+    // When more titles match than max-candidates, the closest ones are kept: titles are ordered by the
+    // summed edit distance of their best match for each query word, then alphabetically
+    public Set<String> findTitles(String query) {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> result = null;
+            for (String token : Set.copyOf(Tokenizer.tokenize(query))) {
+                Map<String, Integer> matching = new HashMap<>();
+                for (BkTree.Match match : index.tree.match(token, distanceFor(token))) {
+                    for (String title : index.titlesByWord.getOrDefault(match.word(), Map.of()).keySet()) {
+                        matching.merge(title, match.distance(), Math::min);
+                    }
+                }
+                if (result == null) {
+                    result = matching;
+                } else {
+                    Map<String, Integer> matched = matching;
+                    result.keySet().retainAll(matched.keySet());
+                    result.replaceAll((title, distance) -> distance + matched.get(title));
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            if (result == null) {
+                return Set.of();
+            }
+            if (result.size() > maxCandidates) {
+                logger.debug("Fuzzy query: {} matched {} titles, keeping {}", query, result.size(), maxCandidates);
+                return Set.copyOf(result.entrySet().stream()
+                        .sorted(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                        .limit(maxCandidates)
+                        .map(Map.Entry::getKey)
+                        .toList());
+            }
+            return Set.copyOf(result.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.type() == ChangeType.DELETED) {
+            apply(words -> words.remove(event.bookId()));
+        } else {
+            apply(words -> words.put(event.bookId(), event.current().title()));
+        }
+    }
+
+    @EventListener
+    public void onRemoteBookChanged(RemoteBookChangedEvent event) {
+        if (event.current() == null) {
+            apply(words -> words.remove(event.bookId()));
+        } else {
+            apply(words -> words.put(event.bookId(), event.current().title()));
+        }
+    }
+
+    @EventListener
+    public void onResync(CatalogResyncEvent event) {
+        loadIndex();
+    }
+
+    // Short words tolerate fewer typos, otherwise almost every short word would match
+    int distanceFor(String token) {
+        return Math.min(maxDistance, token.length() / 4);
+    }
+
+    private void apply(Consumer<Words> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+package ru.bicev.book_catalog.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index with BM25 ranking, documents are added, replaced and removed by key.
+// Documents get increasing int slots, so every posting list stays sorted and queries merge them
+// document-at-a-time without per-query score arrays. Removed documents are skipped at query time;
+// once they make up half of the index the live ones are renumbered into a dense range, so memory
+// follows the number of documents rather than the number of writes
+public class InvertedIndex<K, T> {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_COMPACTION_SIZE = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<K, Integer> slots = new HashMap<>();
+    private final List<K> keys = new ArrayList<>();
+    private final List<T> payloads = new ArrayList<>();
+    private final List<String[]> documentTerms = new ArrayList<>();
+    private int[] lengths = new int[64];
+    private long totalLength;
+    private int liveDocuments;
+    private int removedDocuments;
+
+    public record Hit<T>(T payload, float score) {
+    }
+
+    public void put(K key, T payload, List<String> tokens) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(key);
+            compactIfSparse();
+            int docId = payloads.size();
+            slots.put(key, docId);
+            keys.add(key);
+            payloads.add(payload);
+            if (docId == lengths.length) {
+                lengths = Arrays.copyOf(lengths, lengths.length * 2);
+            }
+            lengths[docId] = tokens.size();
+            totalLength += tokens.size();
+            liveDocuments++;
+
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : tokens) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            frequencies.forEach((term, frequency) -> postings
+                    .computeIfAbsent(term, t -> new PostingList())
+                    .append(docId, frequency));
+            documentTerms.add(frequencies.keySet().toArray(String[]::new));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(key);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Hit<T>> search(List<String> tokens, int limit) {
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>();
+            for (String term : new LinkedHashSet<>(tokens)) {
+                PostingList list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            float[] idfs = new float[lists.size()];
+            for (int i = 0; i < idfs.length; i++) {
+                int live = lists.get(i).live;
+                idfs[i] = (float) Math.log(1 + (liveDocuments - live + 0.5) / (live + 0.5));
+            }
+            if (lists.isEmpty() || limit <= 0) {
+                return List.of();
+            }
+            float averageLength = liveDocuments == 0 ? 1 : (float) totalLength / liveDocuments;
+            int[] cursors = new int[lists.size()];
+            PriorityQueue<Hit<T>> top = new PriorityQueue<>(limit + 1,
+                    (left, right) -> Float.compare(left.score(), right.score()));
+
+            while (true) {
+                int docId = Integer.MAX_VALUE;
+                for (int i = 0; i < lists.size(); i++) {
+                    PostingList list = lists.get(i);
+                    if (cursors[i] < list.size && list.docs[cursors[i]] < docId) {
+                        docId = list.docs[cursors[i]];
+                    }
+                }
+                if (docId == Integer.MAX_VALUE) {
+                    break;
+                }
+                float score = 0;
+                for (int i = 0; i < lists.size(); i++) {
+                    PostingList list = lists.get(i);
+                    if (cursors[i] < list.size && list.docs[cursors[i]] == docId) {
+                        int frequency = list.frequencies[cursors[i]];
+                        float norm = K1 * (1 - B + B * lengths[docId] / averageLength);
+                        score += idfs[i] * frequency * (K1 + 1) / (frequency + norm);
+                        cursors[i]++;
+                    }
+                }
+                T payload = payloads.get(docId);
+                if (payload != null) {
+                    top.offer(new Hit<>(payload, score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            List<Hit<T>> hits = new ArrayList<>(top);
+            hits.sort((left, right) -> Float.compare(right.score(), left.score()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Slots in use including removed documents that are not compacted yet
+    public int slotCount() {
+        lock.readLock().lock();
+        try {
+            return payloads.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeSlot(K key) {
+        Integer docId = slots.remove(key);
+        if (docId == null) {
+            return;
+        }
+        keys.set(docId, null);
+        payloads.set(docId, null);
+        for (String term : documentTerms.get(docId)) {
+            PostingList list = postings.get(term);
+            list.live--;
+            if (list.live == 0) {
+                postings.remove(term);
+            }
+        }
+        documentTerms.set(docId, null);
+        totalLength -= lengths[docId];
+        liveDocuments--;
+        removedDocuments++;
+    }
+
+    private void compactIfSparse() {
+        if (removedDocuments > MIN_COMPACTION_SIZE && removedDocuments > liveDocuments) {
+            compact();
+        }
+    }
+
+    // Renumbers live documents in their current order, so posting lists stay sorted
+    private void compact() {
+        int[] renumbered = new int[payloads.size()];
+        int next = 0;
+        for (int docId = 0; docId < payloads.size(); docId++) {
+            if (payloads.get(docId) == null) {
+                renumbered[docId] = -1;
+                continue;
+            }
+            renumbered[docId] = next;
+            keys.set(next, keys.get(docId));
+            payloads.set(next, payloads.get(docId));
+            documentTerms.set(next, documentTerms.get(docId));
+            lengths[next] = lengths[docId];
+            slots.put(keys.get(next), next);
+            next++;
+        }
+        keys.subList(next, keys.size()).clear();
+        payloads.subList(next, payloads.size()).clear();
+        documentTerms.subList(next, documentTerms.size()).clear();
+        lengths = Arrays.copyOf(lengths, Math.max(64, next));
+        for (PostingList list : postings.values()) {
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                int docId = renumbered[list.docs[i]];
+                if (docId >= 0) {
+                    list.docs[kept] = docId;
+                    list.frequencies[kept] = list.frequencies[i];
+                    kept++;
+                }
+            }
+            list.size = kept;
+            list.trim();
+        }
+        removedDocuments = 0;
+    }
+
+    private static class PostingList {
+
+        private int[] docs = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+        private int live;
+
+        private void append(int docId, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = docId;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+
+        private void trim() {
+            int capacity = Math.max(4, size);
+            docs = Arrays.copyOf(docs, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+        }
+
+    }
+
+}
@@ -0,0 +1,188 @@
+package ru.bicev.book_catalog.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import ru.bicev.book_catalog.dto.SuggestionDto;
+
+// Sorted map of normalized phrases for typeahead. Every phrase is stored once per word start,
+// so a prefix matches the beginning of any word, and counts how many books or authors share it.
+// Prefixes of up to CACHED_PREFIX_LENGTH characters match most of the map, so their top TOP_SIZE
+// phrases are kept ranked and a short prefix is answered without scanning its range.
+// Reads are lock free, writers must be serialized by the caller
+public class PrefixIndex {
+
+    public static final int TOP_SIZE = 50;
+    static final int CACHED_PREFIX_LENGTH = 3;
+    private static final int MAX_WORD_STARTS = 8;
+    private static final char SEPARATOR = '\u0000';
+    private static final Comparator<Entry> RANKING = Comparator.comparingInt(Entry::count).reversed()
+            .thenComparing(Entry::phrase)
+            .thenComparing(Entry::type);
+
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final Map<String, List<Entry>> tops = new ConcurrentHashMap<>();
+
+    private record Entry(String text, SuggestionType type, String phrase, int count) {
+    }
+
+    public void add(String text, SuggestionType type) {
+        String phrase = normalize(text);
+        if (phrase.isEmpty()) {
+            return;
+        }
+        Entry entry = null;
+        for (String key : keys(phrase, type)) {
+            entry = entries.merge(key, new Entry(text, type, phrase, 1),
+                    (existing, added) -> new Entry(existing.text(), type, phrase, existing.count() + 1));
+        }
+        updateTops(entry, false);
+    }
+
+    public void remove(String text, SuggestionType type) {
+        String phrase = normalize(text);
+        Entry entry = null;
+        for (String key : keys(phrase, type)) {
+            Entry existing = entries.get(key);
+            if (existing == null) {
+                return;
+            }
+            entry = new Entry(existing.text(), type, phrase, existing.count() - 1);
+            if (entry.count() > 0) {
+                entries.put(key, entry);
+            } else {
+                entries.remove(key);
+            }
+        }
+        if (entry != null) {
+            updateTops(entry, true);
+        }
+    }
+
+    // Returns up to limit distinct phrases, the most frequent first and alphabetically among equal counts
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        List<Entry> ranked;
+        if (normalized.length() <= CACHED_PREFIX_LENGTH && limit <= TOP_SIZE) {
+            ranked = tops.getOrDefault(normalized, List.of());
+            ranked = ranked.subList(0, Math.min(limit, ranked.size()));
+        } else {
+            ranked = scan(normalized, limit);
+        }
+        List<SuggestionDto> suggestions = new ArrayList<>(ranked.size());
+        for (Entry entry : ranked) {
+            suggestions.add(new SuggestionDto(entry.text(), entry.type()));
+        }
+        return suggestions;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // The prefix range is scanned once into a min-heap of limit entries; copies of a phrase under
+    // its other word starts compare equal, so only the heap's own contents need checking for duplicates
+    private List<Entry> scan(String prefix, int limit) {
+        ConcurrentNavigableMap<String, Entry> range = entries.subMap(prefix, true,
+                prefix + Character.MAX_VALUE, false);
+        PriorityQueue<Entry> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        Set<String> inTop = new HashSet<>();
+        for (Entry entry : range.values()) {
+            if (top.size() == limit && RANKING.compare(entry, top.peek()) >= 0) {
+                continue;
+            }
+            if (!inTop.add(identity(entry))) {
+                continue;
+            }
+            top.offer(entry);
+            if (top.size() > limit) {
+                inTop.remove(identity(top.poll()));
+            }
+        }
+        List<Entry> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        return ranked;
+    }
+
+    // A phrase that gained a copy only moves up, so it is placed into each short prefix list it belongs to.
+    // When it lost a copy and was listed in a full list, a phrase outside the list may now rank higher,
+    // and that prefix is rescanned
+    private void updateTops(Entry entry, boolean decreased) {
+        String identity = identity(entry);
+        for (String prefix : shortPrefixes(entry.phrase())) {
+            List<Entry> current = tops.getOrDefault(prefix, List.of());
+            List<Entry> updated = new ArrayList<>(current.size() + 1);
+            for (Entry other : current) {
+                if (!identity(other).equals(identity)) {
+                    updated.add(other);
+                }
+            }
+            boolean listed = updated.size() < current.size();
+            if (decreased && !listed) {
+                continue;
+            }
+            if (decreased && current.size() == TOP_SIZE) {
+                updated = scan(prefix, TOP_SIZE);
+            } else if (entry.count() > 0) {
+                updated.add(entry);
+                updated.sort(RANKING);
+                if (updated.size() > TOP_SIZE) {
+                    updated.remove(TOP_SIZE);
+                }
+            }
+            if (updated.isEmpty()) {
+                tops.remove(prefix);
+            } else {
+                tops.put(prefix, List.copyOf(updated));
+            }
+        }
+    }
+
+    private static Set<String> shortPrefixes(String phrase) {
+        Set<String> prefixes = new HashSet<>();
+        int start = 0;
+        for (int words = 0; start >= 0 && words < MAX_WORD_STARTS; words++) {
+            for (int end = start + 1; end <= Math.min(phrase.length(), start + CACHED_PREFIX_LENGTH); end++) {
+                String prefix = phrase.substring(start, end);
+                if (!prefix.endsWith(" ")) {
+                    prefixes.add(prefix);
+                }
+            }
+            int space = phrase.indexOf(' ', start);
+            start = space < 0 ? -1 : space + 1;
+        }
+        return prefixes;
+    }
+
+    private static String identity(Entry entry) {
+        return entry.type().name() + SEPARATOR + entry.phrase();
+    }
+
+    static String normalize(String text) {
+        return String.join(" ", Tokenizer.tokenize(text));
+    }
+
+    private static List<String> keys(String phrase, SuggestionType type) {
+        List<String> keys = new ArrayList<>();
+        String tail = SEPARATOR + type.name() + SEPARATOR + phrase;
+        int start = 0;
+        while (start >= 0 && keys.size() < MAX_WORD_STARTS) {
+            keys.add(phrase.substring(start) + tail);
+            int space = phrase.indexOf(' ', start);
+            start = space < 0 ? -1 : space + 1;
+        }
+        return keys;
+    }
+
+}
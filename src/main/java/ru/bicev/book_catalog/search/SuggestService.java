@@ -0,0 +1,191 @@
+package ru.bicev.book_catalog.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.SuggestionDto;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.event.AuthorChangedEvent;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.ChangeType;
+import ru.bicev.book_catalog.event.RemoteAuthorChangedEvent;
+import ru.bicev.book_catalog.event.RemoteBookChangedEvent;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+
+// Typeahead over book titles and author names served from memory.
+// Built from the database at startup and kept up to date by committed write events
+@Service
+public class SuggestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestService.class);
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int MAX_LIMIT = 50;
+
+    private final BookScanner bookScanner;
+    private final AuthorRepository authorRepository;
+    private final Object reloadLock = new Object();
+    private volatile Suggestions suggestions = new Suggestions();
+    // Changes applied while a reload scans the tables, replayed on the new index before it is published
+    private List<Consumer<Suggestions>> pending;
+
+    // The prefix index with the names it holds per id. A reload builds a new instance and swaps it in,
+    // so lookups keep reading the previous one until the new one is complete
+    private static class Suggestions {
+
+        private final PrefixIndex index = new PrefixIndex();
+        private final Map<UUID, String> titles = new HashMap<>();
+        private final Map<UUID, String> authorNames = new HashMap<>();
+
+        private void putTitle(UUID bookId, String title) {
+            removeTitle(bookId);
+            titles.put(bookId, title);
+            index.add(title, SuggestionType.TITLE);
+        }
+
+        private void removeTitle(UUID bookId) {
+            String title = titles.remove(bookId);
+            if (title != null) {
+                index.remove(title, SuggestionType.TITLE);
+            }
+        }
+
+        private void putAuthor(UUID authorId, String name) {
+            removeAuthor(authorId);
+            authorNames.put(authorId, name);
+            index.add(name, SuggestionType.AUTHOR);
+        }
+
+        private void removeAuthor(UUID authorId) {
+            String name = authorNames.remove(authorId);
+            if (name != null) {
+                index.remove(name, SuggestionType.AUTHOR);
+            }
+        }
+
+    }
+
+    public SuggestService(BookScanner bookScanner, AuthorRepository authorRepository) {
+        this.bookScanner = bookScanner;
+        this.authorRepository = authorRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        synchronized (reloadLock) {
+            long started = System.currentTimeMillis();
+            Suggestions loaded = new Suggestions();
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+            try {
+                load(loaded);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    pending = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                pending.forEach(change -> change.accept(loaded));
+                pending = null;
+                suggestions = loaded;
+            }
+            logger.info("Suggest index loaded: {} titles, {} authors in {} ms", loaded.titles.size(),
+                    loaded.authorNames.size(), System.currentTimeMillis() - started);
+        }
+    }
+
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        List<SuggestionDto> found = suggestions.index.suggest(prefix, Math.min(limit, MAX_LIMIT));
+        logger.debug("Suggested for prefix: {}, found: {}", prefix, found.size());
+        return found;
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.type() == ChangeType.DELETED) {
+            apply(suggestions -> suggestions.removeTitle(event.bookId()));
+        } else {
+            apply(suggestions -> suggestions.putTitle(event.bookId(), event.current().title()));
+        }
+    }
+
+    @TransactionalEventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        if (event.type() == ChangeType.DELETED) {
+            apply(suggestions -> suggestions.removeAuthor(event.authorId()));
+        } else {
+            AuthorDto author = event.current();
+            String name = fullName(author.firstName(), author.lastName());
+            apply(suggestions -> suggestions.putAuthor(author.id(), name));
+        }
+    }
+
+    @EventListener
+    public void onRemoteBookChanged(RemoteBookChangedEvent event) {
+        if (event.current() == null) {
+            apply(suggestions -> suggestions.removeTitle(event.bookId()));
+        } else {
+            apply(suggestions -> suggestions.putTitle(event.bookId(), event.current().title()));
+        }
+    }
+
+    @EventListener
+    public void onRemoteAuthorChanged(RemoteAuthorChangedEvent event) {
+        if (event.current() == null) {
+            apply(suggestions -> suggestions.removeAuthor(event.authorId()));
+        } else {
+            String name = fullName(event.current().firstName(), event.current().lastName());
+            apply(suggestions -> suggestions.putAuthor(event.authorId(), name));
+        }
+    }
+
+    @EventListener
+    public void onResync(CatalogResyncEvent event) {
+        loadIndex();
+    }
+
+    private void load(Suggestions loaded) {
+        bookScanner.forEach(book -> loaded.putTitle(book.getId(), book.getTitle()));
+
+        ScrollPosition position = ScrollPosition.keyset();
+        Window<Author> authors;
+        do {
+            authors = authorRepository.findAllBy(position, Sort.by("id"), Limit.of(LOAD_BATCH_SIZE));
+            authors.forEach(author -> loaded.putAuthor(author.getId(),
+                    fullName(author.getFirstName(), author.getLastName())));
+            if (!authors.isEmpty()) {
+                position = authors.positionAt(authors.size() - 1);
+            }
+        } while (authors.hasNext());
+    }
+
+    private synchronized void apply(Consumer<Suggestions> change) {
+        change.accept(suggestions);
+        if (pending != null) {
+            pending.add(change);
+        }
+    }
+
+    private static String fullName(String firstName, String lastName) {
+        return firstName + " " + lastName;
+    }
+
+}
@@ -0,0 +1,8 @@
+package ru.bicev.book_catalog.search;
+
+public enum SuggestionType {
+
+    TITLE,
+    AUTHOR
+
+}
@@ -0,0 +1,28 @@
+package ru.bicev.book_catalog.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class Tokenizer {
+
+    // Splits on anything that is not a letter or a digit and lowercases the tokens
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+}
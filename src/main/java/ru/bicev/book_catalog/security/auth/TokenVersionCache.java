@@ -0,0 +1,65 @@
+package ru.bicev.book_catalog.security.auth;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.RemoteUserChangedEvent;
+import ru.bicev.book_catalog.event.UserChangedEvent;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+
+// Current token version per user id, so authenticated requests skip the users table.
+// Local writes evict after commit, writes on other nodes arrive over InvalidationBus, and a resync after
+// lost notifications clears everything. The expiry only matters when the bus is disabled (several nodes
+// on a database other than Postgres): it bounds how long a node keeps accepting a token revoked elsewhere
+@Component
+public class TokenVersionCache {
+
+    private static final long MISSING = -1;
+    private static final Logger logger = LoggerFactory.getLogger(TokenVersionCache.class);
+    private final LoadingCache<Long, Long> versions;
+
+    public TokenVersionCache(UserRepository userRepository,
+            @Value("${catalog.token-versions.max-entries:10000}") long maxEntries,
+            @Value("${catalog.token-versions.expire-after-write:30s}") Duration expireAfterWrite) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(expireAfterWrite)
+                .build(id -> userRepository.findTokenVersionById(id).orElse(MISSING));
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        return tokenVersion != MISSING && versions.get(userId) == tokenVersion;
+    }
+
+    public void evict(Long userId) {
+        versions.invalidate(userId);
+    }
+
+    @TransactionalEventListener
+    public void onUserChanged(UserChangedEvent event) {
+        evict(event.userId());
+        logger.debug("Token version evicted for user {}", event.userId());
+    }
+
+    @EventListener
+    public void onRemoteUserChanged(RemoteUserChangedEvent event) {
+        evict(event.userId());
+        logger.debug("Token version evicted for user {} changed on another node", event.userId());
+    }
+
+    @EventListener
+    public void onResync(CatalogResyncEvent event) {
+        versions.invalidateAll();
+    }
+
+}
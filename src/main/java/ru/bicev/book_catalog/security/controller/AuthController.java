@@ -16,6 +16,9 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import ru.bicev.book_catalog.dto.ErrorDto;
+import ru.bicev.book_catalog.exception.PasswordHashingBusyException;
+import ru.bicev.book_catalog.security.auth.CustomUserDetails;
 import ru.bicev.book_catalog.security.dto.TokenDto;
 import ru.bicev.book_catalog.security.dto.UserRequest;
 import ru.bicev.book_catalog.security.jwt.JwtUtil;
@@ -36,17 +39,25 @@ public class AuthController {
     @Operation(summary = "Login")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User succesfully logged in", content = @Content(schema = @Schema(implementation = TokenDto.class))),
-            @ApiResponse(responseCode = "401", description = "Bad credentials")
+            @ApiResponse(responseCode = "401", description = "Bad credentials"),
+            @ApiResponse(responseCode = "429", description = "Too many password checks in progress", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
     })
     @PostMapping("/login")
     public ResponseEntity<TokenDto> login(@RequestBody(required = true) UserRequest userRequest) {
         try {
             Authentication auth = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(userRequest.username(), userRequest.password()));
-            TokenDto token = new TokenDto(jwtUtil.generateToken(userRequest.username()));
+            CustomUserDetails userDetails = (CustomUserDetails) auth.getPrincipal();
+            TokenDto token = new TokenDto(jwtUtil.generateToken(userDetails.getUser()));
             logger.debug("User logged in: {}", userRequest.username());
             return ResponseEntity.ok(token);
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
+            // failures while loading the user reach here wrapped by the provider
+            if (e.getCause() instanceof PasswordHashingBusyException busy) {
+                throw busy;
+            }
             logger.error("Exception in AuthController: {}", e);
             return ResponseEntity.status(401).build();
         }
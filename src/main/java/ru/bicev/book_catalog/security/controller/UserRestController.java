@@ -10,9 +10,6 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -35,9 +32,11 @@ import ru.bicev.book_catalog.dto.ErrorDto;
 import ru.bicev.book_catalog.dto.PagedResponse;
 import ru.bicev.book_catalog.security.dto.UserDto;
 import ru.bicev.book_catalog.security.dto.UserRequest;
+import ru.bicev.book_catalog.security.entity.User;
 import ru.bicev.book_catalog.security.jwt.JwtUtil;
 import ru.bicev.book_catalog.security.service.UserService;
 import ru.bicev.book_catalog.security.util.Role;
+import ru.bicev.book_catalog.util.CountMode;
 
 @RestController
 @RequestMapping("/api/users")
@@ -46,20 +45,18 @@ public class UserRestController {
     private static final Logger logger = LoggerFactory.getLogger(UserRestController.class);
 
     private final UserService userService;
-    private final AuthenticationManager manager;
     private final JwtUtil jwtUtil;
 
-    public UserRestController(UserService userService, AuthenticationManager manager, JwtUtil jwtUtil) {
+    public UserRestController(UserService userService, JwtUtil jwtUtil) {
         this.userService = userService;
-        this.manager = manager;
         this.jwtUtil = jwtUtil;
     }
 
     @Operation(summary = "Register user", description = "Register new user and return JWT token and UserDto")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "User successfully registered", content = @Content(schema = @Schema(implementation = AuthResponse.class))),
-            @ApiResponse(responseCode = "401", description = "Bad credentials"),
             @ApiResponse(responseCode = "409", description = "Username already in use", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
+            @ApiResponse(responseCode = "429", description = "Too many password checks in progress", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = ErrorDto.class)))
     })
     @PostMapping
@@ -72,10 +69,8 @@ public class UserRestController {
         URI location = URI.create("/api/users/" + createdUser.id());
         logger.info("User registered: {}", location);
 
-        Authentication auth = manager.authenticate(
-                new UsernamePasswordAuthenticationToken(userRequest.username(), userRequest.password()));
-
-        String token = jwtUtil.generateToken(createdUser.username());
+        // the password was just hashed, checking it again through the authentication manager would cost another BCrypt round
+        String token = jwtUtil.generateToken(new User(createdUser.id(), createdUser.username(), null, role));
 
         AuthResponse response = new AuthResponse(token, createdUser.id(), createdUser.username());
 
@@ -98,7 +93,7 @@ public class UserRestController {
         return ResponseEntity.ok().body(foundUser);
     }
 
-    @Operation(summary = "Get all users", security = @SecurityRequirement(name = "bearerAuth"), description = "Find all users and return PagedResponse")
+    @Operation(summary = "Get all users", security = @SecurityRequirement(name = "bearerAuth"), description = "Find all users and return PagedResponse. Totals are calculated according to count: EXACT (default), NONE, CACHED until the next write, or ESTIMATED from table statistics. withTotals=false is accepted as a shorthand for count=NONE")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Users found", content = @Content(schema = @Schema(implementation = PagedResponse.class))),
             @ApiResponse(responseCode = "401", description = "Invalid token", content = @Content(schema = @Schema(implementation = ErrorDto.class))),
@@ -108,9 +103,11 @@ public class UserRestController {
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<PagedResponse<UserDto>> getAllUsers(
+            @RequestParam(required = false) CountMode count,
+            @RequestParam(required = false) Boolean withTotals,
             @ParameterObject @PageableDefault(page = 0, size = 10, sort = "username", direction = Sort.Direction.ASC) Pageable pageable) {
         logger.info("All users retrieved");
-        PagedResponse<UserDto> users = userService.getAllUsers(pageable);
+        PagedResponse<UserDto> users = userService.getAllUsers(pageable, CountMode.of(count, withTotals));
         return ResponseEntity.ok().body(users);
     }
 
@@ -38,4 +38,12 @@ public class User {
     @Enumerated(EnumType.STRING)
     private Role role;
 
+    // Signed into every token; bumping it revokes the tokens issued before
+    @Column(name = "token_version", nullable = false, columnDefinition = "bigint default 0")
+    private long tokenVersion;
+
+    public User(Long id, String username, String password, Role role) {
+        this(id, username, password, role, 0);
+    }
+
 }
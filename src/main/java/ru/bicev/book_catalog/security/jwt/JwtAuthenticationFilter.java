@@ -1,32 +1,41 @@
 package ru.bicev.book_catalog.security.jwt;
 
 import java.io.IOException;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
+import org.springframework.util.function.SingletonSupplier;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import ru.bicev.book_catalog.security.auth.CustomUserDetailsService;
+import ru.bicev.book_catalog.security.auth.CustomUserDetails;
+import ru.bicev.book_catalog.security.auth.TokenVersionCache;
+import ru.bicev.book_catalog.security.entity.User;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // Set once the deferred context has verified the token, so later filters can tell a resolved user
+    // without resolving it themselves
+    public static final String USER_ID_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".userId";
+
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     private final JwtUtil jwtUtil;
-    private final CustomUserDetailsService userDetailsService;
+    private final TokenVersionCache tokenVersionCache;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, TokenVersionCache tokenVersionCache) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.tokenVersionCache = tokenVersionCache;
     }
 
     @Override
@@ -49,23 +58,37 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
+        // The token is verified only when the authorization rule or a @PreAuthorize check reads the context,
+        // so public routes never pay for it
         String token = authHeader.substring(7);
-        String username = jwtUtil.extractUsername(token);
-
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(token)) {
-                logger.debug("Token: {} was validated", token);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        SecurityContextHolderStrategy strategy = SecurityContextHolder.getContextHolderStrategy();
+        Supplier<SecurityContext> deferredContext = strategy.getDeferredContext();
+        strategy.setDeferredContext(SingletonSupplier.of(() -> authenticate(token, request, deferredContext.get())));
+        filterChain.doFilter(request, response);
+    }
 
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails,
-                        null, userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+    private SecurityContext authenticate(String token, HttpServletRequest request, SecurityContext context) {
+        if (context.getAuthentication() != null) {
+            return context;
+        }
+        User user = jwtUtil.parseUser(token);
+        if (user == null) {
+            return context;
+        }
+        if (!tokenVersionCache.isCurrent(user.getId(), user.getTokenVersion())) {
+            logger.debug("Revoked token for user: {}", user.getId());
+            return context;
+        }
+        logger.debug("Token was validated for user: {}", user.getId());
+        CustomUserDetails userDetails = new CustomUserDetails(user);
 
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails,
+                null, userDetails.getAuthorities());
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-        }
-        filterChain.doFilter(request, response);
+        context.setAuthentication(authToken);
+        request.setAttribute(USER_ID_ATTRIBUTE, user.getId());
+        return context;
     }
 
 }
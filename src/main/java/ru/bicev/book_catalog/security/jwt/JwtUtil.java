@@ -1,57 +1,141 @@
 package ru.bicev.book_catalog.security.jwt;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.util.Role;
 
 @Component
 public class JwtUtil {
 
+    private static final String USER_ID = "uid";
+    private static final String ROLE = "role";
+    private static final String TOKEN_VERSION = "ver";
+
     private final Key key;
     private final long expiration;
+    private final JwtParser parser;
+    private final Cache<String, VerifiedToken> verifiedTokens;
 
     public JwtUtil(@Value("${token.key:your_super_secret_key_must_be_long_enough_123456}") String secret,
-            @Value("${token.expiration:3600000}") long expiration) {
+            @Value("${token.expiration:3600000}") long expiration,
+            @Value("${token.verified-cache.max-entries:10000}") long verifiedCacheSize) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.expiration = expiration;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.verifiedTokens = verifiedCacheSize <= 0 ? null
+                : Caffeine.newBuilder()
+                        .maximumSize(verifiedCacheSize)
+                        .expireAfter(new UntilTokenExpiry())
+                        .build();
     }
-    
-    public String generateToken(String username) {
+
+    public String generateToken(User user) {
         return Jwts.builder()
-                .setSubject(username)
+                .setSubject(user.getUsername())
+                .claim(USER_ID, user.getId())
+                .claim(ROLE, user.getRole().name())
+                .claim(TOKEN_VERSION, user.getTokenVersion())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String extractUsername(String token) {
-        return parseClaims(token).getBody().getSubject();
+    // Rebuilds the user from the verified claims, returns null for invalid, expired or pre-claims tokens.
+    // Tokens verified before are looked up by their digest and skip the signature check and JSON decoding
+    public User parseUser(String token) {
+        if (verifiedTokens == null) {
+            VerifiedToken verified = verify(token);
+            return verified == null ? null : verified.toUser();
+        }
+        String digest = digest(token);
+        VerifiedToken verified = verifiedTokens.getIfPresent(digest);
+        if (verified == null) {
+            verified = verify(token);
+            if (verified == null) {
+                return null;
+            }
+            verifiedTokens.put(digest, verified);
+        }
+        return verified.toUser();
     }
 
-    public boolean validateToken(String token) {
+    private VerifiedToken verify(String token) {
         try {
-            parseClaims(token);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Number id = claims.get(USER_ID, Number.class);
+            String role = claims.get(ROLE, String.class);
+            Number tokenVersion = claims.get(TOKEN_VERSION, Number.class);
+            if (id == null || role == null || tokenVersion == null || claims.getSubject() == null
+                    || claims.getExpiration() == null) {
+                return null;
+            }
+            return new VerifiedToken(id.longValue(), claims.getSubject(), Role.valueOf(role),
+                    tokenVersion.longValue(), claims.getExpiration().getTime());
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
         }
     }
 
-    private Jws<Claims> parseClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token);
+    // The cache keeps digests rather than the bearer tokens themselves
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record VerifiedToken(Long id, String username, Role role, long tokenVersion, long expiresAt) {
+
+        // A fresh entity per request, the cached entry is shared between threads
+        private User toUser() {
+            return new User(id, username, null, role, tokenVersion);
+        }
+
+    }
+
+    private static class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String digest, VerifiedToken token, long currentTime) {
+            long remaining = token.expiresAt() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+        }
+
+        @Override
+        public long expireAfterUpdate(String digest, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String digest, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
     }
 
 }
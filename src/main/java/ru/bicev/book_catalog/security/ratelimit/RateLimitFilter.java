@@ -0,0 +1,133 @@
+package ru.bicev.book_catalog.security.ratelimit;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.bicev.book_catalog.dto.ErrorDto;
+import ru.bicev.book_catalog.security.jwt.JwtAuthenticationFilter;
+
+// Limits the configured routes per remote address, and additionally per user when the request's token has
+// already been verified. Public routes never verify tokens, so a new or rotated token doesn't buy a new bucket.
+// The remote address is the client's only when server.forward-headers-strategy resolves it behind a proxy,
+// otherwise every client behind the same proxy shares one bucket.
+// Buckets of clients that stay idle longer than the idle timeout are dropped
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+    private final boolean enabled;
+    private final List<LimitedRoute> routes;
+    private final Cache<String, TokenBucket> buckets;
+    private final ObjectMapper objectMapper;
+
+    private record LimitedRoute(RateLimitProperties.Route route, List<PathPattern> patterns, Counter rejected) {
+
+        private boolean matches(HttpServletRequest request, PathContainer path) {
+            if (route.method() != null && !route.method().equalsIgnoreCase(request.getMethod())) {
+                return false;
+            }
+            for (PathPattern pattern : patterns) {
+                if (pattern.matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.objectMapper = objectMapper;
+        this.routes = properties.routes().stream()
+                .map(route -> new LimitedRoute(route,
+                        route.paths().stream().map(PathPatternParser.defaultInstance::parse).toList(),
+                        Counter.builder("rate.limit.rejected")
+                                .description("Requests rejected by the rate limiter")
+                                .tag("route", route.name())
+                                .register(meterRegistry)))
+                .toList();
+        // an evicted bucket starts full again, so it must not expire before it would have refilled anyway
+        Duration idleTimeout = properties.routes().stream()
+                .map(RateLimitProperties.Route::period)
+                .reduce(properties.idleTimeout(), (left, right) -> left.compareTo(right) >= 0 ? left : right);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.maxClients())
+                .expireAfterAccess(idleTimeout)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || routes.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (LimitedRoute limited : routes) {
+            if (!limited.matches(request, path)) {
+                continue;
+            }
+            RateLimitProperties.Route route = limited.route();
+            Object userId = request.getAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE);
+            if (!acquire(limited, route.name() + "|ip:" + request.getRemoteAddr(), response)
+                    || userId != null && !acquire(limited, route.name() + "|user:" + userId, response)) {
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private boolean acquire(LimitedRoute limited, String key, HttpServletResponse response) throws IOException {
+        RateLimitProperties.Route route = limited.route();
+        TokenBucket bucket = buckets.get(key, k -> new TokenBucket(route.capacity(), route.period(), System.nanoTime()));
+        long wait = bucket.tryAcquire(System.nanoTime());
+        if (wait > 0) {
+            limited.rejected().increment();
+            logger.debug("Rate limit exceeded: {}", key);
+            reject(response, wait);
+            return false;
+        }
+        return true;
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        ErrorDto error = new ErrorDto("Too many requests, try again in " + retryAfter + " s", "TOO_MANY_REQUESTS", 429,
+                LocalDateTime.now());
+
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+}
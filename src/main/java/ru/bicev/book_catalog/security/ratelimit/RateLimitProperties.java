@@ -0,0 +1,20 @@
+package ru.bicev.book_catalog.security.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Per-route limits under catalog.rate-limit, each route allows capacity requests per period and client
+@ConfigurationProperties(prefix = "catalog.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10m") Duration idleTimeout,
+        @DefaultValue("100000") long maxClients,
+        @DefaultValue List<Route> routes) {
+
+    public record Route(String name, String method, List<String> paths, long capacity, Duration period) {
+    }
+
+}
@@ -0,0 +1,38 @@
+package ru.bicev.book_catalog.security.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket in its GCRA form: the whole state is the time at which the bucket is full again.
+// Up to capacity requests pass at once, after that one token comes back every period / capacity
+public class TokenBucket {
+
+    private final long interval;
+    private final long tolerance;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(long capacity, Duration period, long nowNanos) {
+        if (capacity <= 0 || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Capacity and period must be positive");
+        }
+        this.interval = Math.max(1, period.toNanos() / capacity);
+        this.tolerance = interval * capacity;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    // Takes a token and returns 0, or returns how many nanoseconds to wait for the next one
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - nowNanos > 0 ? current : nowNanos) + interval;
+            long wait = next - nowNanos - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+}
@@ -2,8 +2,9 @@ package ru.bicev.book_catalog.security.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -11,7 +12,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
+import ru.bicev.book_catalog.cache.CountCache;
 import ru.bicev.book_catalog.dto.PagedResponse;
+import ru.bicev.book_catalog.event.ChangeType;
+import ru.bicev.book_catalog.event.UserChangedEvent;
 import ru.bicev.book_catalog.exception.UserNotFoundException;
 import ru.bicev.book_catalog.exception.UsernameAlreadyExistsException;
 import ru.bicev.book_catalog.security.auth.CustomUserDetails;
@@ -20,6 +24,8 @@ import ru.bicev.book_catalog.security.dto.UserRequest;
 import ru.bicev.book_catalog.security.entity.User;
 import ru.bicev.book_catalog.security.repo.UserRepository;
 import ru.bicev.book_catalog.security.util.Role;
+import ru.bicev.book_catalog.service.PageCounter;
+import ru.bicev.book_catalog.util.CountMode;
 
 // I'm using security context in this service to validate a user within the business logic rather than in controller layer
 // This is not recommended architecture, but is used purely for educational purposes
@@ -30,10 +36,15 @@ public class UserService {
     private final Logger logger = LoggerFactory.getLogger(UserService.class);
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PageCounter pageCounter;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, PageCounter pageCounter,
+            ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.pageCounter = pageCounter;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -52,6 +63,7 @@ public class UserService {
 
         User savedUser = userRepository.save(user);
         logger.debug("User registered: {}", savedUser.getUsername());
+        eventPublisher.publishEvent(new UserChangedEvent(ChangeType.CREATED, savedUser.getId()));
 
         return new UserDto(savedUser.getId(), userRequest.username());
     }
@@ -72,8 +84,10 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
         user.setPassword(passwordEncoder.encode(newPassword));
+        user.setTokenVersion(user.getTokenVersion() + 1);
         logger.debug("Password was changed: {}", user.getUsername());
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(ChangeType.UPDATED, userId));
     }
 
     @Transactional
@@ -87,22 +101,20 @@ public class UserService {
         }
         logger.debug("User was deleted: {}", userId);
         userRepository.deleteById(userId);
+        eventPublisher.publishEvent(new UserChangedEvent(ChangeType.DELETED, userId));
     }
 
-    public PagedResponse<UserDto> getAllUsers(Pageable pageable) {
-        logger.debug("All users were retrieved");
-        return toPagedResponse(
-                userRepository.findAll(pageable)
-                        .map(user -> new UserDto(user.getId(), user.getUsername())));
+    public PagedResponse<UserDto> getAllUsers(Pageable pageable, CountMode countMode) {
+        logger.debug("All users were retrieved, count mode: {}", countMode);
+        if (countMode == CountMode.EXACT) {
+            return PagedResponse.of(userRepository.findAll(pageable).map(this::toDto));
+        }
+        Slice<UserDto> slice = userRepository.findAllBy(pageable).map(this::toDto);
+        return pageCounter.toPagedResponse(slice, countMode, CountCache.USERS, null, userRepository::count);
     }
 
-    private PagedResponse<UserDto> toPagedResponse(Page<UserDto> page) {
-        return new PagedResponse<>(page.getContent(), page.getNumber(),
-                page.getSize(),
-                page.getTotalElements(),
-                page.getTotalPages(),
-                page.isFirst(),
-                page.isLast());
+    private UserDto toDto(User user) {
+        return new UserDto(user.getId(), user.getUsername());
     }
 
     private boolean isCurrentUserOrAdmin(Long targetId) {
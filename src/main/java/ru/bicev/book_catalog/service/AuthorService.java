@@ -4,27 +4,48 @@ import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import ru.bicev.book_catalog.cache.CountCache;
+import ru.bicev.book_catalog.cache.LookupCaches;
 import ru.bicev.book_catalog.dto.AuthorDto;
 import ru.bicev.book_catalog.dto.AuthorRequest;
+import ru.bicev.book_catalog.dto.CursorResponse;
 import ru.bicev.book_catalog.dto.PagedResponse;
 import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.event.AuthorChangedEvent;
+import ru.bicev.book_catalog.event.ChangeType;
 import ru.bicev.book_catalog.exception.AuthorNotFoundException;
+import ru.bicev.book_catalog.exception.PreconditionFailedException;
 import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.VersionedAuthor;
 import ru.bicev.book_catalog.util.AuthorMapper;
+import ru.bicev.book_catalog.util.CountMode;
+import ru.bicev.book_catalog.util.CursorCodec;
+import ru.bicev.book_catalog.util.ETags;
 
 @Service
 public class AuthorService {
 
     private final AuthorRepository authorRepository;
+    private final PageCounter pageCounter;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger logger = LoggerFactory.getLogger(AuthorService.class);
 
-    public AuthorService(AuthorRepository authorRepository) {
+    public AuthorService(AuthorRepository authorRepository, PageCounter pageCounter,
+            ApplicationEventPublisher eventPublisher) {
         this.authorRepository = authorRepository;
+        this.pageCounter = pageCounter;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -33,39 +54,81 @@ public class AuthorService {
         Author author = AuthorMapper.toEntityFromRequest(authorRequest);
         Author savedAuthor = authorRepository.save(author);
         logger.info("Author created: {}", savedAuthor.getId());
-        return AuthorMapper.toDto(savedAuthor);
+        AuthorDto created = AuthorMapper.toDto(savedAuthor);
+        eventPublisher.publishEvent(new AuthorChangedEvent(ChangeType.CREATED, created.id(), null, created));
+        return created;
     }
 
+    @Cacheable(cacheNames = LookupCaches.AUTHOR_VERSIONS, sync = true)
+    @Transactional(readOnly = true)
+    public long findAuthorVersion(UUID authorId) {
+        return authorRepository.findVersionById(authorId)
+                .orElseThrow(() -> new AuthorNotFoundException(String.format("Author not found: %s", authorId)));
+    }
+
+    @Cacheable(cacheNames = LookupCaches.AUTHORS, sync = true)
+    @Transactional(readOnly = true)
     public AuthorDto findAuthorById(UUID authorId) {
-        Author foundAuthor = authorRepository.findById(authorId)
+        AuthorDto foundAuthor = authorRepository.findDtoById(authorId)
                 .orElseThrow(() -> new AuthorNotFoundException(String.format("Author not found: %s", authorId)));
         logger.debug("Fetched author by id {}: {}", authorId, foundAuthor);
-        return AuthorMapper.toDto(foundAuthor);
+        return foundAuthor;
+    }
+
+    @Transactional(readOnly = true)
+    public PagedResponse<AuthorDto> findAll(Pageable pageable, CountMode countMode) {
+        logger.debug("Fetched all authors - page number: {}, count mode: {}", pageable.getPageNumber(), countMode);
+        if (countMode == CountMode.EXACT) {
+            return PagedResponse.of(authorRepository.findDtoPage(pageable));
+        }
+        Slice<AuthorDto> slice = authorRepository.findDtoSlice(pageable);
+        return pageCounter.toPagedResponse(slice, countMode, CountCache.AUTHORS, null, authorRepository::count);
     }
 
-    public PagedResponse<AuthorDto> findAll(Pageable pageable) {
-        Page<AuthorDto> page = authorRepository.findAll(pageable).map(AuthorMapper::toDto);
-        PagedResponse<AuthorDto> result = new PagedResponse<>(
-                page.getContent(),
-                page.getNumber(),
-                page.getSize(),
-                page.getTotalElements(),
-                page.getTotalPages(),
-                page.isFirst(),
-                page.isLast());
-        logger.debug("Fetched all authors - page number: {}, total pages: {}", page.getNumber(), page.getTotalPages());
-        return result;
+    @Transactional(readOnly = true)
+    public CursorResponse<AuthorDto> findAllAfter(String after, Pageable pageable) {
+        KeysetScrollPosition position = CursorCodec.decode(after, pageable.getSort(), Author.class);
+        Window<Author> window = authorRepository.findAllBy(position, pageable.getSort(),
+                Limit.of(pageable.getPageSize()));
+        String nextCursor = window.hasNext() ? CursorCodec.encode(window.positionAt(window.size() - 1)) : null;
+        logger.debug("Fetched keyset page of authors, hasNext: {}", window.hasNext());
+        return new CursorResponse<>(
+                window.map(AuthorMapper::toDto).getContent(),
+                pageable.getPageSize(),
+                nextCursor,
+                window.hasNext());
     }
 
     @Transactional
     public AuthorDto updateAuthor(UUID authorId, AuthorRequest authorRequest) {
+        return updateAuthor(authorId, authorRequest, null);
+    }
+
+    // Same conditional UPDATE as for books: a change since the read fails it with 412 under If-Match
+    // and with 409 without it
+    @Transactional
+    public AuthorDto updateAuthor(UUID authorId, AuthorRequest authorRequest, String ifMatch) {
         logger.info("Updating author: {}", authorId);
-        Author foundAuthor = authorRepository.findById(authorId)
+        VersionedAuthor found = authorRepository.findVersionedById(authorId)
                 .orElseThrow(() -> new AuthorNotFoundException(String.format("Author not found: %s", authorId)));
-        AuthorMapper.updateEntity(foundAuthor, authorRequest);
-        Author updatedAuthor = authorRepository.save(foundAuthor);
-        logger.info("Author updated: {}", updatedAuthor.getId());
-        return AuthorMapper.toDto(updatedAuthor);
+        if (ifMatch != null && !ETags.matches(ifMatch, ETags.of(found.version()))) {
+            throw new PreconditionFailedException(String.format("Author was modified: %s", authorId));
+        }
+        int updatedRows = authorRepository.updateIfVersion(authorId, found.version(), authorRequest.firstName(),
+                authorRequest.lastName(), authorRequest.birthYear(), authorRequest.country(),
+                Author.fullName(authorRequest.firstName(), authorRequest.lastName()));
+        if (updatedRows == 0) {
+            if (ifMatch != null) {
+                throw new PreconditionFailedException(String.format("Author was modified: %s", authorId));
+            }
+            throw new OptimisticLockingFailureException(
+                    String.format("Author is being updated concurrently: %s", authorId));
+        }
+        logger.info("Author updated: {}", authorId);
+        AuthorDto updated = new AuthorDto(authorId, authorRequest.firstName(), authorRequest.lastName(),
+                authorRequest.birthYear(), authorRequest.country());
+        eventPublisher.publishEvent(new AuthorChangedEvent(ChangeType.UPDATED, authorId, found.author(), updated));
+        return updated;
     }
 
     @Transactional
@@ -75,6 +138,7 @@ public class AuthorService {
         }
         authorRepository.deleteById(authorId);
         logger.info("Author: {} was deleted", authorId);
+        eventPublisher.publishEvent(new AuthorChangedEvent(ChangeType.DELETED, authorId, null, null));
     }
 
 }
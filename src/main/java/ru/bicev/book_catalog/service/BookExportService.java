@@ -0,0 +1,116 @@
+package ru.bicev.book_catalog.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.util.CsvLine;
+
+// Full catalog export. Books come from a forward-only cursor inside one read-only transaction
+// and are written to the response as they arrive, so memory use doesn't depend on the catalog size
+@Service
+public class BookExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookExportService.class);
+    private static final List<String> CSV_HEADER = List.of("id", "title", "releaseYear", "genre", "authorId",
+            "authorFirstName", "authorLastName", "authorBirthYear", "authorCountry");
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public BookExportService(BookRepository bookRepository, PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    // One BookDto JSON object per line
+    public long exportNdjson(OutputStream output) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            long rows = forEachBook(book -> {
+                try {
+                    generator.writeObject(book);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            if (rows > 0) {
+                generator.writeRaw('\n');
+            }
+            return rows;
+        }
+    }
+
+    // Header line and one flat row per book, the columns can be read back by the bulk import
+    public long exportCsv(OutputStream output) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+            writer.write(CsvLine.join(CSV_HEADER));
+            writer.write('\n');
+            return forEachBook(book -> {
+                try {
+                    writer.write(CsvLine.join(csvFields(book)));
+                    writer.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+    }
+
+    private long forEachBook(Consumer<BookDto> consumer) throws IOException {
+        long started = System.currentTimeMillis();
+        try {
+            long rows = transactionTemplate.execute(status -> {
+                long count = 0;
+                try (Stream<BookDto> books = bookRepository.streamAllDtos()) {
+                    for (BookDto book : (Iterable<BookDto>) books::iterator) {
+                        consumer.accept(book);
+                        count++;
+                    }
+                }
+                return count;
+            });
+            logger.info("Exported {} books in {} ms", rows, System.currentTimeMillis() - started);
+            return rows;
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static List<String> csvFields(BookDto book) {
+        AuthorDto author = book.author();
+        return Arrays.asList(book.id().toString(), book.title(), String.valueOf(book.releaseYear()),
+                book.genre().name(),
+                author == null ? null : author.id().toString(),
+                author == null ? null : author.firstName(),
+                author == null ? null : author.lastName(),
+                author == null ? null : String.valueOf(author.birthYear()),
+                author == null ? null : author.country());
+    }
+
+}
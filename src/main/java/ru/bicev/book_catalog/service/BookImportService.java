@@ -0,0 +1,252 @@
+package ru.bicev.book_catalog.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.BookRequest;
+import ru.bicev.book_catalog.dto.BulkImportErrorDto;
+import ru.bicev.book_catalog.dto.BulkImportResultDto;
+import ru.bicev.book_catalog.event.CatalogImportedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.exception.InvalidImportException;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookBatchRepository;
+import ru.bicev.book_catalog.repo.BookKey;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.util.CsvLine;
+import ru.bicev.book_catalog.util.Genre;
+import ru.bicev.book_catalog.util.ImportFormat;
+import ru.bicev.book_catalog.util.UuidV7;
+
+// Bulk book import from an NDJSON or CSV stream.
+// Rows are read one at a time and written in chunks of batch-size rows, each chunk in its own transaction:
+// one query resolves the chunk's authors, one finds the unique keys already taken, and the remaining rows
+// go out as a single JDBC batch. Rejected rows are reported with their line numbers and never stop the import.
+// Imported rows are not announced one by one: once the import ends, caches and indexes of every node reload once
+@Service
+public class BookImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+    private static final List<String> CSV_COLUMNS = List.of("title", "releaseYear", "genre", "authorId");
+
+    private final AuthorRepository authorRepository;
+    private final BookRepository bookRepository;
+    private final BookBatchRepository bookBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxErrors;
+
+    private record Row(long line, BookRequest request) {
+    }
+
+    private record ChunkResult(int imported, List<BulkImportErrorDto> errors) {
+    }
+
+    public BookImportService(AuthorRepository authorRepository, BookRepository bookRepository,
+            BookBatchRepository bookBatchRepository, PlatformTransactionManager transactionManager,
+            Validator validator, ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+            @Value("${catalog.import.batch-size:1000}") int batchSize,
+            @Value("${catalog.import.max-errors:1000}") int maxErrors) {
+        this.authorRepository = authorRepository;
+        this.bookRepository = bookRepository;
+        this.bookBatchRepository = bookBatchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public BulkImportResultDto importBooks(InputStream input, ImportFormat format) throws IOException {
+        long started = System.nanoTime();
+        Progress progress = new Progress();
+        List<Row> chunk = new ArrayList<>(batchSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> columns = null;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == ImportFormat.CSV && columns == null) {
+                    columns = header(line);
+                    continue;
+                }
+                progress.rows++;
+                try {
+                    BookRequest request = format == ImportFormat.NDJSON
+                            ? objectMapper.readValue(line, BookRequest.class)
+                            : fromCsv(line, columns);
+                    validate(request);
+                    chunk.add(new Row(lineNumber, request));
+                } catch (JsonProcessingException ex) {
+                    progress.reject(new BulkImportErrorDto(lineNumber, "Malformed JSON: " + ex.getOriginalMessage()));
+                } catch (IllegalArgumentException ex) {
+                    progress.reject(new BulkImportErrorDto(lineNumber, ex.getMessage()));
+                }
+                if (chunk.size() == batchSize) {
+                    write(chunk, progress);
+                    chunk.clear();
+                }
+            }
+            write(chunk, progress);
+        } finally {
+            // Chunks committed before a failure are announced as well
+            if (progress.imported > 0) {
+                announceImport();
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        double rowsPerSecond = progress.rows * 1000.0 / Math.max(1, elapsedMillis);
+        logger.info("Imported {} of {} books in {} ms, {} rows/s", progress.imported, progress.rows, elapsedMillis,
+                Math.round(rowsPerSecond));
+        return new BulkImportResultDto(progress.rows, progress.imported, progress.failed, elapsedMillis,
+                rowsPerSecond, progress.errors);
+    }
+
+    // One notification for the whole import instead of one event per imported row: other nodes and the local
+    // caches and indexes reload once, and listing ETags move with a single generation bump
+    private void announceImport() {
+        transactionTemplate.executeWithoutResult(status -> eventPublisher.publishEvent(new CatalogImportedEvent()));
+        eventPublisher.publishEvent(new CatalogResyncEvent());
+    }
+
+    private void write(List<Row> chunk, Progress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            progress.apply(transactionTemplate.execute(status -> insert(chunk)));
+        } catch (DataIntegrityViolationException ex) {
+            // Another writer took a key after it was checked, rows are retried one by one to find the conflict
+            logger.debug("Chunk of {} rows conflicted, retrying row by row", chunk.size());
+            for (Row row : chunk) {
+                try {
+                    progress.apply(transactionTemplate.execute(status -> insert(List.of(row))));
+                } catch (DataIntegrityViolationException rowEx) {
+                    progress.reject(new BulkImportErrorDto(row.line(), "Book already exists"));
+                }
+            }
+        }
+    }
+
+    private ChunkResult insert(List<Row> rows) {
+        Map<UUID, AuthorDto> authors = new HashMap<>();
+        authorRepository.findDtosByIdIn(rows.stream().map(row -> row.request().authorId()).collect(Collectors.toSet()))
+                .forEach(author -> authors.put(author.id(), author));
+        Set<BookKey> taken = new HashSet<>(bookRepository.findKeysByTitleIn(
+                rows.stream().map(row -> row.request().title()).collect(Collectors.toSet())));
+
+        List<BookDto> books = new ArrayList<>(rows.size());
+        List<BulkImportErrorDto> errors = new ArrayList<>();
+        for (Row row : rows) {
+            BookRequest request = row.request();
+            AuthorDto author = authors.get(request.authorId());
+            if (author == null) {
+                errors.add(new BulkImportErrorDto(row.line(), "Author not found: " + request.authorId()));
+            } else if (!taken.add(new BookKey(request.title(), request.releaseYear(), request.genre()))) {
+                errors.add(new BulkImportErrorDto(row.line(), "Book already exists"));
+            } else {
+                books.add(new BookDto(UuidV7.generate(), request.title(), request.releaseYear(), request.genre(),
+                        author));
+            }
+        }
+        bookBatchRepository.insertAll(books, batchSize);
+        return new ChunkResult(books.size(), errors);
+    }
+
+    private static Map<String, Integer> header(String line) {
+        List<String> names = CsvLine.split(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (String column : CSV_COLUMNS) {
+            int index = names.indexOf(column);
+            if (index < 0) {
+                throw new InvalidImportException("CSV header must contain columns " + CSV_COLUMNS + ", was " + names);
+            }
+            columns.put(column, index);
+        }
+        return columns;
+    }
+
+    private static BookRequest fromCsv(String line, Map<String, Integer> columns) {
+        List<String> fields = CsvLine.split(line);
+        if (fields.size() < columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " fields, found " + fields.size());
+        }
+        try {
+            return new BookRequest(
+                    fields.get(columns.get("title")),
+                    Integer.parseInt(fields.get(columns.get("releaseYear")).trim()),
+                    Genre.valueOf(fields.get(columns.get("genre")).trim()),
+                    UUID.fromString(fields.get(columns.get("authorId")).trim()));
+        } catch (IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("Missing field: " + ex.getMessage());
+        }
+    }
+
+    private void validate(BookRequest request) {
+        Set<ConstraintViolation<BookRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private class Progress {
+
+        private long rows;
+        private long imported;
+        private long failed;
+        private final List<BulkImportErrorDto> errors = new ArrayList<>();
+
+        private void apply(ChunkResult result) {
+            imported += result.imported();
+            result.errors().forEach(this::reject);
+        }
+
+        private void reject(BulkImportErrorDto error) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(error);
+            }
+        }
+
+    }
+
+}
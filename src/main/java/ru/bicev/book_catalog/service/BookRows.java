@@ -0,0 +1,31 @@
+package ru.bicev.book_catalog.service;
+
+import java.util.UUID;
+
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ru.bicev.book_catalog.cache.LookupCaches;
+import ru.bicev.book_catalog.exception.BookNotFoundException;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.repo.BookRow;
+
+// Book rows cached by id until the book itself changes, BookService joins them with the cached author
+@Service
+public class BookRows {
+
+    private final BookRepository bookRepository;
+
+    public BookRows(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Cacheable(cacheNames = LookupCaches.BOOKS, sync = true)
+    @Transactional(readOnly = true)
+    public BookRow findBookRow(UUID bookId) {
+        return bookRepository.findRowById(bookId)
+                .orElseThrow(() -> new BookNotFoundException(String.format("Book not found: %s", bookId)));
+    }
+
+}
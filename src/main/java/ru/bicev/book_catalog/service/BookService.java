@@ -1,36 +1,88 @@
 package ru.bicev.book_catalog.service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import ru.bicev.book_catalog.cache.BookPageCache;
+import ru.bicev.book_catalog.cache.CountCache;
+import ru.bicev.book_catalog.dto.AuthorDto;
 import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.BookFacetsDto;
+import ru.bicev.book_catalog.dto.BookFilter;
 import ru.bicev.book_catalog.dto.BookRequest;
+import ru.bicev.book_catalog.dto.CursorResponse;
 import ru.bicev.book_catalog.dto.PagedResponse;
 import ru.bicev.book_catalog.entity.Author;
 import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.ChangeType;
 import ru.bicev.book_catalog.exception.AuthorNotFoundException;
 import ru.bicev.book_catalog.exception.BookNotFoundException;
+import ru.bicev.book_catalog.exception.PreconditionFailedException;
 import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookProjectionRepository;
 import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.repo.BookRow;
+import ru.bicev.book_catalog.repo.BookSearchRepository;
+import ru.bicev.book_catalog.repo.BookSpecifications;
+import ru.bicev.book_catalog.repo.BookVersion;
+import ru.bicev.book_catalog.repo.VersionedBook;
+import ru.bicev.book_catalog.search.FuzzyTitleIndex;
 import ru.bicev.book_catalog.util.BookMapper;
-import ru.bicev.book_catalog.util.Genre;
+import ru.bicev.book_catalog.util.CountMode;
+import ru.bicev.book_catalog.util.CursorCodec;
+import ru.bicev.book_catalog.util.ETags;
 
 @Service
 public class BookService {
 
     private final AuthorRepository authorRepository;
     private final BookRepository bookRepository;
+    private final BookRows bookRows;
+    private final AuthorService authorService;
+    private final BookSearchRepository bookSearchRepository;
+    private final BookProjectionRepository bookProjectionRepository;
+    private final PageCounter pageCounter;
+    private final BookPageCache bookPageCache;
+    private final FacetCounter facetCounter;
+    private final FuzzyTitleIndex fuzzyTitleIndex;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger logger = LoggerFactory.getLogger(BookService.class);
 
-    public BookService(AuthorRepository authorRepository, BookRepository bookRepository) {
+    public BookService(AuthorRepository authorRepository, BookRepository bookRepository, BookRows bookRows,
+            AuthorService authorService, BookSearchRepository bookSearchRepository,
+            BookProjectionRepository bookProjectionRepository, PageCounter pageCounter, BookPageCache bookPageCache,
+            FacetCounter facetCounter, FuzzyTitleIndex fuzzyTitleIndex, ApplicationEventPublisher eventPublisher) {
         this.authorRepository = authorRepository;
         this.bookRepository = bookRepository;
+        this.bookRows = bookRows;
+        this.authorService = authorService;
+        this.bookSearchRepository = bookSearchRepository;
+        this.bookProjectionRepository = bookProjectionRepository;
+        this.pageCounter = pageCounter;
+        this.bookPageCache = bookPageCache;
+        this.facetCounter = facetCounter;
+        this.fuzzyTitleIndex = fuzzyTitleIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     private Author extractAuthor(UUID authorId) {
@@ -46,27 +98,62 @@ public class BookService {
         Book book = BookMapper.toEntityFromRequest(bookRequest, author);
         Book savedBook = bookRepository.save(book);
         logger.info("Book created: {}", savedBook.getId());
-        return BookMapper.toDto(savedBook);
+        BookDto created = BookMapper.toDto(savedBook);
+        eventPublisher.publishEvent(new BookChangedEvent(ChangeType.CREATED, created.id(), null, created));
+        return created;
     }
 
+    // Built from the cached book row and the cached author, so both are read again only after they change
     public BookDto findBookById(UUID bookId) {
-        Book foundBook = bookRepository.findById(bookId)
-                .orElseThrow(() -> new BookNotFoundException(String.format("Book not found: %s", bookId)));
-        return BookMapper.toDto(foundBook);
+        BookRow row = bookRows.findBookRow(bookId);
+        AuthorDto author = row.authorId() == null ? null : authorService.findAuthorById(row.authorId());
+        return new BookDto(row.id(), row.title(), row.releaseYear(), row.genre(), author);
+    }
+
+    // Conditional requests usually skip the database: the ETag comes from the same cached row and author version
+    public BookVersion findBookVersion(UUID bookId) {
+        BookRow row = bookRows.findBookRow(bookId);
+        Long authorVersion = row.authorId() == null ? null : authorService.findAuthorVersion(row.authorId());
+        return new BookVersion(row.version(), row.authorId(), authorVersion);
     }
 
     @Transactional
     public BookDto updateBook(UUID bookId, BookRequest bookRequest) {
-        Book foundBook = bookRepository.findById(bookId)
-                .orElseThrow(() -> new BookNotFoundException(String.format("Book not found: %s", bookId)));
-        logger.info("Updating book: {}", bookId);
-        Author newAuthor = extractAuthor(bookRequest.authorId());
-        BookMapper.updateEntity(foundBook, bookRequest);
-        foundBook.setAuthor(newAuthor);
-        bookRepository.save(foundBook);
-        logger.info("Book: {} updated", foundBook.getId());
-        return BookMapper.toDto(foundBook);
+        return updateBook(bookId, bookRequest, null);
+    }
 
+    // The row is changed by one conditional UPDATE at the version it was read at, the read also gives the
+    // previous state for change listeners. With If-Match that version has to match the ETag, without it the
+    // update takes no lock: a concurrent change in between fails it with 409, nothing is retried
+    @Transactional
+    public BookDto updateBook(UUID bookId, BookRequest bookRequest, String ifMatch) {
+        logger.info("Updating book: {}", bookId);
+        VersionedBook found = bookRepository.findVersionedById(bookId)
+                .orElseThrow(() -> new BookNotFoundException(String.format("Book not found: %s", bookId)));
+        if (ifMatch != null && !ETags.matches(ifMatch, found.version().etag())) {
+            throw new PreconditionFailedException(String.format("Book was modified: %s", bookId));
+        }
+        BookDto previous = found.book();
+        AuthorDto author = previous.author() != null && previous.author().id().equals(bookRequest.authorId())
+                ? previous.author()
+                : authorRepository.findDtoById(bookRequest.authorId())
+                        .orElseThrow(() -> new AuthorNotFoundException(
+                                String.format("Author not found: %s", bookRequest.authorId())));
+        int updatedRows = bookRepository.updateIfVersion(bookId, found.version().version(), bookRequest.title(),
+                bookRequest.releaseYear(), bookRequest.genre(),
+                authorRepository.getReferenceById(bookRequest.authorId()));
+        if (updatedRows == 0) {
+            if (ifMatch != null) {
+                throw new PreconditionFailedException(String.format("Book was modified: %s", bookId));
+            }
+            throw new OptimisticLockingFailureException(
+                    String.format("Book is being updated concurrently: %s", bookId));
+        }
+        logger.info("Book: {} updated", bookId);
+        BookDto updated = new BookDto(bookId, bookRequest.title(), bookRequest.releaseYear(), bookRequest.genre(),
+                author);
+        eventPublisher.publishEvent(new BookChangedEvent(ChangeType.UPDATED, bookId, previous, updated));
+        return updated;
     }
 
     @Transactional
@@ -75,79 +162,89 @@ public class BookService {
                 .orElseThrow(() -> new BookNotFoundException(String.format("Book not found: %s", bookId)));
         bookRepository.delete(foundBook);
         logger.info("Book: {} was deleted", bookId);
+        eventPublisher.publishEvent(
+                new BookChangedEvent(ChangeType.DELETED, bookId, BookMapper.toDto(foundBook), null));
     }
 
-    public PagedResponse<BookDto> findBooks(
-            UUID authorId,
-            String name,
-            Integer releaseYear,
-            Integer startYear,
-            Integer endYear,
-            Genre genre,
-            String title,
-            Pageable pageable) {
-
-        if (authorId != null) {
-            return toPagedResponse(findByAuthorId(authorId, pageable));
-        } else if (name != null) {
-            return toPagedResponse(findByAuthorName(name, pageable));
-        } else if (releaseYear != null) {
-            return toPagedResponse(findByReleaseYear(releaseYear, pageable));
-        } else if (startYear != null && endYear != null && startYear <= endYear) {
-            return toPagedResponse(findByReleaseYearBetween(startYear, endYear, pageable));
-        } else if (genre != null) {
-            return toPagedResponse(findByGenre(genre, pageable));
-        } else if (title != null) {
-            return toPagedResponse(findByTitleContaining(title, pageable));
-        } else {
-            return toPagedResponse(findAll(pageable));
-        }
-    }
-
-    public Page<BookDto> findAll(Pageable pageable) {
-        logger.debug("Fetched list of books");
-        return bookRepository.findAll(pageable).map(BookMapper::toDto);
-    }
-
-    public Page<BookDto> findByAuthorId(UUID authorId, Pageable pageable) {
-        logger.debug("Fetched list of books by authorId: {}", authorId);
-        return bookRepository.findByAuthorId(authorId, pageable).map(BookMapper::toDto);
+    public PagedResponse<BookDto> findBooks(BookFilter filter, Pageable pageable, CountMode countMode) {
+        return findBooks(filter, false, pageable, countMode);
     }
 
-    public Page<BookDto> findByAuthorName(String name, Pageable pageable) {
-        logger.debug("Fetched list of books by author name: {}", name);
-        return bookRepository.findByAuthorName(name, pageable).map(BookMapper::toDto);
+    // With fuzzyTitle the title filter tolerates typos: candidate titles come from the in-memory
+    // index and replace the substring match, the other filters still apply in the query
+    // Results are cached until the next committed write
+    @Transactional(readOnly = true)
+    public PagedResponse<BookDto> findBooks(BookFilter filter, boolean fuzzyTitle, Pageable pageable,
+            CountMode countMode) {
+        return bookPageCache.get(filter, fuzzyTitle, pageable, countMode,
+                () -> loadBooks(filter, fuzzyTitle, pageable, countMode));
     }
 
-    public Page<BookDto> findByReleaseYear(int releaseYear, Pageable pageable) {
-        logger.debug("Fetched list of books by release year: {}", releaseYear);
-        return bookRepository.findByReleaseYear(releaseYear, pageable).map(BookMapper::toDto);
+    private PagedResponse<BookDto> loadBooks(BookFilter filter, boolean fuzzyTitle, Pageable pageable,
+            CountMode countMode) {
+        logger.debug("Fetched list of books by filter: {}, fuzzy: {}, count mode: {}", filter, fuzzyTitle,
+                countMode);
+        boolean fuzzy = fuzzyTitle && filter.title() != null;
+        Specification<Book> specification = fuzzy
+                ? BookSpecifications.matching(filter.withoutTitle())
+                        .and(BookSpecifications.titleIn(fuzzyTitleIndex.findTitles(filter.title())))
+                : BookSpecifications.matching(filter);
+        if (countMode == CountMode.EXACT) {
+            return PagedResponse.of(PageableExecutionUtils.getPage(
+                    bookProjectionRepository.findAll(specification, pageable), pageable,
+                    () -> bookRepository.count(specification)));
+        }
+        Slice<BookDto> slice = bookProjectionRepository.findSlice(specification, pageable);
+        Object countKey = filter.isEmpty() ? null : fuzzy ? "fuzzy " + filter : filter;
+        return pageCounter.toPagedResponse(slice, countMode, CountCache.BOOKS, countKey,
+                () -> bookRepository.count(specification));
     }
 
-    public Page<BookDto> findByReleaseYearBetween(int startYear, int endYear, Pageable pageable) {
-        logger.debug("Fetched list of books by years from: {} to {}", startYear, endYear);
-        return bookRepository.findByReleaseYearBetween(startYear, endYear, pageable).map(BookMapper::toDto);
+    // Facets come from the maintained counters, only a title filter needs a GROUP BY query
+    @Transactional(readOnly = true)
+    public BookFacetsDto getFacets(BookFilter filter) {
+        logger.debug("Fetched facets by filter: {}", filter);
+        if (filter.title() == null) {
+            return facetCounter.count(filter);
+        }
+        return FacetCounter.aggregate(
+                bookRepository.findFacetRowsByTitleLike(BookSpecifications.containsPattern(filter.title())), filter);
     }
 
-    public Page<BookDto> findByGenre(Genre genre, Pageable pageable) {
-        logger.debug("Fetched list of books by genre: {}", genre);
-        return bookRepository.findByGenre(genre, pageable).map(BookMapper::toDto);
+    // Ranked search by title or author name, totals are never counted
+    @Transactional(readOnly = true)
+    public PagedResponse<BookDto> searchBooks(String query, Pageable pageable) {
+        List<UUID> ids = bookSearchRepository.search(query, pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = ids.size() > pageable.getPageSize();
+        List<UUID> pageIds = hasNext ? ids.subList(0, pageable.getPageSize()) : ids;
+        Map<UUID, BookDto> books = bookRepository.findDtosByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(BookDto::id, Function.identity()));
+        List<BookDto> content = pageIds.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .toList();
+        logger.debug("Searched books by query: {}, found: {}", query, content.size());
+        return PagedResponse.of(new SliceImpl<>(content, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()),
+                hasNext), -1, CountMode.NONE);
     }
 
-    public Page<BookDto> findByTitleContaining(String title, Pageable pageable) {
-        logger.debug("Fetched list of books by title: {}", title);
-        return bookRepository.findByTitleContainingIgnoreCase(title, pageable).map(BookMapper::toDto);
+    // Keyset positions are read from entity properties, so cursor pages still load entities
+    @Transactional(readOnly = true)
+    public CursorResponse<BookDto> findBooksAfter(BookFilter filter, String after, Pageable pageable) {
+        KeysetScrollPosition position = CursorCodec.decode(after, pageable.getSort(), Book.class);
+        Window<Book> window = bookRepository.findBy(BookSpecifications.matching(filter),
+                query -> query.sortBy(pageable.getSort()).limit(pageable.getPageSize()).scroll(position));
+        logger.debug("Fetched keyset page of books by filter: {}, hasNext: {}", filter, window.hasNext());
+        return toCursorResponse(window, pageable.getPageSize());
     }
 
-    private <T> PagedResponse<T> toPagedResponse(Page<T> page) {
-        return new PagedResponse<>(
-                page.getContent(),
-                page.getNumber(),
-                page.getSize(),
-                page.getTotalElements(),
-                page.getTotalPages(),
-                page.isFirst(),
-                page.isLast());
+    private CursorResponse<BookDto> toCursorResponse(Window<Book> window, int size) {
+        String nextCursor = window.hasNext() ? CursorCodec.encode(window.positionAt(window.size() - 1)) : null;
+        return new CursorResponse<>(
+                window.map(BookMapper::toDto).getContent(),
+                size,
+                nextCursor,
+                window.hasNext());
     }
 
 }
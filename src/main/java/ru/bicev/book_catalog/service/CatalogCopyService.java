@@ -0,0 +1,71 @@
+package ru.bicev.book_catalog.service;
+
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ru.bicev.book_catalog.dto.CopyImportResultDto;
+import ru.bicev.book_catalog.event.CatalogImportedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.exception.CopyNotSupportedException;
+import ru.bicev.book_catalog.repo.CatalogCopyRepository;
+import ru.bicev.book_catalog.repo.CopyCounts;
+
+// Fast path for seeding a catalog: each CSV file is loaded with COPY and merged in one transaction.
+// Loaded rows are not published one by one, instead every node reloads its caches and indexes once after commit
+@Service
+public class CatalogCopyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCopyService.class);
+
+    private final CatalogCopyRepository catalogCopyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CatalogCopyService(CatalogCopyRepository catalogCopyRepository,
+            PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher) {
+        this.catalogCopyRepository = catalogCopyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    public CopyImportResultDto copyAuthors(InputStream csv) {
+        return copy("authors", () -> catalogCopyRepository.copyAuthors(csv));
+    }
+
+    public CopyImportResultDto copyBooks(InputStream csv) {
+        return copy("books", () -> catalogCopyRepository.copyBooks(csv));
+    }
+
+    private CopyImportResultDto copy(String table, Supplier<CopyCounts> load) {
+        if (!catalogCopyRepository.isSupported()) {
+            throw new CopyNotSupportedException("COPY import requires PostgreSQL");
+        }
+        long started = System.nanoTime();
+        CopyCounts counts = transactionTemplate.execute(status -> {
+            CopyCounts loaded = load.get();
+            if (loaded.inserted() > 0) {
+                eventPublisher.publishEvent(new CatalogImportedEvent());
+            }
+            return loaded;
+        });
+        if (counts.inserted() > 0) {
+            eventPublisher.publishEvent(new CatalogResyncEvent());
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        double rowsPerSecond = counts.rows() * 1000.0 / Math.max(1, elapsedMillis);
+        logger.info("Copied {} of {} {} in {} ms ({} rows/s), skipped: {}, conflicting: {}, invalid: {}",
+                counts.inserted(), counts.rows(), table, elapsedMillis, Math.round(rowsPerSecond), counts.skipped(),
+                counts.conflicting(), counts.invalid());
+        return new CopyImportResultDto(counts.rows(), counts.inserted(), counts.skipped(), counts.conflicting(),
+                counts.invalid(), elapsedMillis, rowsPerSecond);
+    }
+
+}
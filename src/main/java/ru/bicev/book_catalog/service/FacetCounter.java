@@ -0,0 +1,356 @@
+package ru.bicev.book_catalog.service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.BookFacetsDto;
+import ru.bicev.book_catalog.dto.BookFilter;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.event.AuthorChangedEvent;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.ChangeType;
+import ru.bicev.book_catalog.event.RemoteAuthorChangedEvent;
+import ru.bicev.book_catalog.event.RemoteBookChangedEvent;
+import ru.bicev.book_catalog.repo.BookFacetRow;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.util.Genre;
+
+// Book counts per genre, release year and author, loaded with one GROUP BY at startup and then
+// maintained from committed book and author changes. Totals per genre, decade and country are kept
+// pre-aggregated for the unfiltered facets, and cells are indexed by genre, year and author so a
+// filtered request only visits the cells of its most selective dimension. The title filter needs the database
+@Component
+public class FacetCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FacetCounter.class);
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Cell, Long> cells = new HashMap<>();
+    private final Map<Genre, Set<Cell>> cellsByGenre = new EnumMap<>(Genre.class);
+    private final NavigableMap<Integer, Set<Cell>> cellsByYear = new TreeMap<>();
+    private final Map<UUID, Set<Cell>> cellsByAuthor = new HashMap<>();
+    private final Map<UUID, AuthorFacts> authors = new HashMap<>();
+    private final Map<UUID, Long> authorTotals = new HashMap<>();
+    private final Facets totals = new Facets();
+    // Counts changes the cells may be missing: remote changes, and local changes made while stale or loading.
+    // The cells are current while it equals the generation captured by the last load
+    private final AtomicLong changes = new AtomicLong();
+    private volatile long loadedChanges;
+    private volatile boolean loading;
+    private final Object reloadLock = new Object();
+
+    private record Cell(Genre genre, int releaseYear, UUID authorId) {
+    }
+
+    private record AuthorFacts(String country, String fullName) {
+    }
+
+    public FacetCounter(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    // The generation is read before querying, so a change that commits during the query leaves the
+    // counts stale and they are loaded again on the next request
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        synchronized (reloadLock) {
+            loading = true;
+            long generation = changes.get();
+            List<BookFacetRow> rows;
+            try {
+                rows = bookRepository.findFacetRows();
+            } catch (RuntimeException e) {
+                loading = false;
+                throw e;
+            }
+            lock.writeLock().lock();
+            try {
+                cells.clear();
+                cellsByGenre.clear();
+                cellsByYear.clear();
+                cellsByAuthor.clear();
+                authors.clear();
+                authorTotals.clear();
+                totals.clear();
+                for (BookFacetRow row : rows) {
+                    if (row.authorId() != null) {
+                        authors.put(row.authorId(), new AuthorFacts(row.country(), row.fullName()));
+                    }
+                    add(new Cell(row.genre(), row.releaseYear(), row.authorId()), row.count());
+                }
+                loadedChanges = generation;
+                loading = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Facet counts loaded: {} cells", rows.size());
+        }
+    }
+
+    public BookFacetsDto count(BookFilter filter) {
+        if (filter.title() != null) {
+            throw new IllegalArgumentException("Title filter can't be answered from facet counts");
+        }
+        if (stale()) {
+            synchronized (reloadLock) {
+                if (stale()) {
+                    load();
+                }
+            }
+        }
+        lock.readLock().lock();
+        try {
+            List<Set<Cell>> candidates = candidates(filter);
+            if (candidates == null) {
+                return totals.toDto();
+            }
+            Facets facets = new Facets();
+            for (Set<Cell> group : candidates) {
+                for (Cell cell : group) {
+                    AuthorFacts author = cell.authorId() == null ? null : authors.get(cell.authorId());
+                    String fullName = author == null ? null : author.fullName();
+                    if (matches(filter, cell.genre(), cell.releaseYear(), cell.authorId(), fullName)) {
+                        facets.add(cell.genre(), cell.releaseYear(), author == null ? null : author.country(),
+                                cells.get(cell));
+                    }
+                }
+            }
+            return facets.toDto();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Same aggregation over rows read from the database, the rows must already match the title filter
+    public static BookFacetsDto aggregate(Iterable<BookFacetRow> rows, BookFilter filter) {
+        Facets facets = new Facets();
+        for (BookFacetRow row : rows) {
+            if (matches(filter, row.genre(), row.releaseYear(), row.authorId(), row.fullName())) {
+                facets.add(row.genre(), row.releaseYear(), row.country(), row.count());
+            }
+        }
+        return facets.toDto();
+    }
+
+    // Changes made on other nodes come without the previous state the cells need, so the counts are
+    // reloaded once on the next request, a burst of remote writes costs a single GROUP BY
+    @EventListener({ RemoteBookChangedEvent.class, RemoteAuthorChangedEvent.class, CatalogResyncEvent.class })
+    public void onRemoteChange() {
+        changes.incrementAndGet();
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            recordLocalChange();
+            if (event.previous() != null) {
+                adjust(event.previous(), -1);
+            }
+            if (event.current() != null) {
+                adjust(event.current(), 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            recordLocalChange();
+            if (event.type() == ChangeType.DELETED) {
+                removeAuthor(event.authorId());
+            } else {
+                putAuthor(event.current());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean stale() {
+        return loadedChanges != changes.get();
+    }
+
+    // Called under the write lock. Current cells stay current after the change is applied to them; otherwise
+    // a reload is pending or running and its query may have missed this change, so it has to run again
+    private void recordLocalChange() {
+        if (loading || stale()) {
+            changes.incrementAndGet();
+        } else {
+            loadedChanges = changes.incrementAndGet();
+        }
+    }
+
+    // Groups of cells to check for the most selective dimension of the filter, null when the filter
+    // is empty and the pre-aggregated totals answer it
+    private List<Set<Cell>> candidates(BookFilter filter) {
+        List<List<Set<Cell>>> options = new ArrayList<>();
+        if (filter.authorId() != null) {
+            options.add(List.of(cellsByAuthor.getOrDefault(filter.authorId(), Set.of())));
+        }
+        if (filter.genre() != null) {
+            options.add(List.of(cellsByGenre.getOrDefault(filter.genre(), Set.of())));
+        }
+        if (filter.releaseYear() != null) {
+            options.add(List.of(cellsByYear.getOrDefault(filter.releaseYear(), Set.of())));
+        } else if (filter.startYear() != null || filter.endYear() != null) {
+            int from = filter.startYear() == null ? Integer.MIN_VALUE : filter.startYear();
+            int to = filter.endYear() == null ? Integer.MAX_VALUE : filter.endYear();
+            options.add(from > to ? List.of() : List.copyOf(cellsByYear.subMap(from, true, to, true).values()));
+        }
+        if (filter.name() != null) {
+            String name = Author.normalize(filter.name());
+            List<Set<Cell>> named = new ArrayList<>();
+            authors.forEach((authorId, author) -> {
+                if (author.fullName() != null && author.fullName().contains(name)) {
+                    named.add(cellsByAuthor.getOrDefault(authorId, Set.of()));
+                }
+            });
+            options.add(named);
+        }
+        List<Set<Cell>> best = null;
+        long bestSize = Long.MAX_VALUE;
+        for (List<Set<Cell>> option : options) {
+            long size = option.stream().mapToLong(Set::size).sum();
+            if (size < bestSize) {
+                best = option;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    private void adjust(BookDto book, long delta) {
+        UUID authorId = book.author() == null ? null : book.author().id();
+        if (authorId != null && delta > 0) {
+            putAuthor(book.author());
+        }
+        add(new Cell(book.genre(), book.releaseYear(), authorId), delta);
+    }
+
+    private void add(Cell cell, long delta) {
+        Long updated = cells.merge(cell, delta, Long::sum);
+        if (updated <= 0) {
+            cells.remove(cell);
+            unindex(cellsByGenre, cell.genre(), cell);
+            unindex(cellsByYear, cell.releaseYear(), cell);
+            if (cell.authorId() != null) {
+                unindex(cellsByAuthor, cell.authorId(), cell);
+            }
+        } else if (updated == delta) {
+            cellsByGenre.computeIfAbsent(cell.genre(), genre -> new HashSet<>()).add(cell);
+            cellsByYear.computeIfAbsent(cell.releaseYear(), year -> new HashSet<>()).add(cell);
+            if (cell.authorId() != null) {
+                cellsByAuthor.computeIfAbsent(cell.authorId(), id -> new HashSet<>()).add(cell);
+            }
+        }
+        AuthorFacts author = null;
+        if (cell.authorId() != null) {
+            authorTotals.merge(cell.authorId(), delta, FacetCounter::sumOrNull);
+            author = authors.get(cell.authorId());
+        }
+        totals.add(cell.genre(), cell.releaseYear(), author == null ? null : author.country(), delta);
+    }
+
+    // Country totals follow the author, the books of an author who moved are counted in the new country
+    private void putAuthor(AuthorDto author) {
+        AuthorFacts facts = new AuthorFacts(author.country(),
+                Author.normalize(author.firstName() + " " + author.lastName()));
+        AuthorFacts previous = authors.put(author.id(), facts);
+        if (previous == null || !previous.country().equals(facts.country())) {
+            long books = authorTotals.getOrDefault(author.id(), 0L);
+            if (previous != null) {
+                totals.addCountry(previous.country(), -books);
+            }
+            totals.addCountry(facts.country(), books);
+        }
+    }
+
+    private void removeAuthor(UUID authorId) {
+        AuthorFacts previous = authors.remove(authorId);
+        if (previous != null) {
+            totals.addCountry(previous.country(), -authorTotals.getOrDefault(authorId, 0L));
+        }
+    }
+
+    private static <K> void unindex(Map<K, Set<Cell>> index, K key, Cell cell) {
+        Set<Cell> indexed = index.get(key);
+        if (indexed != null && indexed.remove(cell) && indexed.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static Long sumOrNull(Long left, Long right) {
+        long sum = left + right;
+        return sum > 0 ? sum : null;
+    }
+
+    private static boolean matches(BookFilter filter, Genre genre, int releaseYear, UUID authorId, String fullName) {
+        return (filter.authorId() == null || filter.authorId().equals(authorId))
+                && (filter.name() == null
+                        || fullName != null && fullName.contains(Author.normalize(filter.name())))
+                && (filter.releaseYear() == null || filter.releaseYear() == releaseYear)
+                && (filter.startYear() == null || releaseYear >= filter.startYear())
+                && (filter.endYear() == null || releaseYear <= filter.endYear())
+                && (filter.genre() == null || filter.genre() == genre);
+    }
+
+    private static class Facets {
+
+        private long total;
+        private final Map<Genre, Long> genres = new EnumMap<>(Genre.class);
+        private final Map<Integer, Long> decades = new TreeMap<>();
+        private final Map<String, Long> countries = new TreeMap<>();
+
+        void add(Genre genre, int releaseYear, String country, long count) {
+            total += count;
+            genres.merge(genre, count, FacetCounter::sumOrNull);
+            decades.merge(Math.floorDiv(releaseYear, 10) * 10, count, FacetCounter::sumOrNull);
+            addCountry(country, count);
+        }
+
+        void addCountry(String country, long count) {
+            if (country != null && count != 0) {
+                countries.merge(country, count, FacetCounter::sumOrNull);
+            }
+        }
+
+        void clear() {
+            total = 0;
+            genres.clear();
+            decades.clear();
+            countries.clear();
+        }
+
+        BookFacetsDto toDto() {
+            return new BookFacetsDto(total, new EnumMap<>(genres), new TreeMap<>(decades), new TreeMap<>(countries));
+        }
+
+    }
+
+}
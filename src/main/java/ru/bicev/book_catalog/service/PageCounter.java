@@ -0,0 +1,42 @@
+package ru.bicev.book_catalog.service;
+
+import java.util.OptionalLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import ru.bicev.book_catalog.cache.CountCache;
+import ru.bicev.book_catalog.dto.PagedResponse;
+import ru.bicev.book_catalog.repo.RowCountEstimator;
+import ru.bicev.book_catalog.util.CountMode;
+
+// Fills totals of a slice according to the requested CountMode, EXACT listings use Page queries directly.
+// ESTIMATED works only for unfiltered listings and falls back to CACHED, the response reports the mode used
+@Component
+public class PageCounter {
+
+    private final CountCache countCache;
+    private final RowCountEstimator rowCountEstimator;
+
+    public PageCounter(CountCache countCache, RowCountEstimator rowCountEstimator) {
+        this.countCache = countCache;
+        this.rowCountEstimator = rowCountEstimator;
+    }
+
+    public <T> PagedResponse<T> toPagedResponse(Slice<T> slice, CountMode mode, String table, Object filter,
+            LongSupplier exactCount) {
+        if (mode == CountMode.NONE) {
+            return PagedResponse.of(slice, -1, CountMode.NONE);
+        }
+        if (mode == CountMode.ESTIMATED && filter == null) {
+            OptionalLong estimate = rowCountEstimator.estimate(table);
+            if (estimate.isPresent()) {
+                return PagedResponse.of(slice, estimate.getAsLong(), CountMode.ESTIMATED);
+            }
+        }
+        long total = countCache.get(table, String.valueOf(filter), exactCount);
+        return PagedResponse.of(slice, total, CountMode.CACHED);
+    }
+
+}
@@ -1,7 +1,5 @@
 package ru.bicev.book_catalog.util;
 
-import java.util.UUID;
-
 import ru.bicev.book_catalog.dto.AuthorDto;
 import ru.bicev.book_catalog.dto.AuthorRequest;
 import ru.bicev.book_catalog.entity.Author;
@@ -21,7 +19,7 @@ public class AuthorMapper {
 
     public static Author toEntityFromRequest(AuthorRequest authorRequest) {
         return Author.builder()
-                .id(UUID.randomUUID())
+                .id(UuidV7.generate())
                 .firstName(authorRequest.firstName())
                 .lastName(authorRequest.lastName())
                 .birthYear(authorRequest.birthYear())
@@ -1,7 +1,5 @@
 package ru.bicev.book_catalog.util;
 
-import java.util.UUID;
-
 import ru.bicev.book_catalog.dto.BookDto;
 import ru.bicev.book_catalog.dto.BookRequest;
 import ru.bicev.book_catalog.entity.Author;
@@ -32,7 +30,7 @@ public class BookMapper {
 
     public static Book toEntityFromRequest(BookRequest bookRequest, Author author) {
         return Book.builder()
-                .id(UUID.randomUUID())
+                .id(UuidV7.generate())
                 .title(bookRequest.title())
                 .releaseYear(bookRequest.releaseYear())
                 .genre(bookRequest.genre())
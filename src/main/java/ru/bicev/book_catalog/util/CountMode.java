@@ -0,0 +1,18 @@
+package ru.bicev.book_catalog.util;
+
+public enum CountMode {
+
+    EXACT,
+    NONE,
+    CACHED,
+    ESTIMATED;
+
+    // count wins over the older withTotals flag, withTotals=false alone is the same as count=NONE
+    public static CountMode of(CountMode count, Boolean withTotals) {
+        if (count != null) {
+            return count;
+        }
+        return Boolean.FALSE.equals(withTotals) ? NONE : EXACT;
+    }
+
+}
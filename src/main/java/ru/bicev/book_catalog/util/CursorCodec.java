@@ -0,0 +1,70 @@
+package ru.bicev.book_catalog.util;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.mapping.PropertyReferenceException;
+
+import ru.bicev.book_catalog.exception.InvalidCursorException;
+
+// Cursor is a base64 encoded query string of the last row keyset, e.g. title=Dune&id=<uuid>.
+// Values are converted back using the entity property types, so the token stays opaque for clients
+public class CursorCodec {
+
+    private static final String ID = "id";
+
+    public static String encode(ScrollPosition position) {
+        if (!(position instanceof KeysetScrollPosition keyset)) {
+            throw new IllegalArgumentException("Only keyset positions can be encoded");
+        }
+        StringJoiner joiner = new StringJoiner("&");
+        keyset.getKeys().forEach((key, value) -> joiner.add(
+                URLEncoder.encode(key, StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(String.valueOf(value instanceof Enum<?> e ? e.name() : value),
+                                StandardCharsets.UTF_8)));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joiner.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetScrollPosition decode(String cursor, Sort sort, Class<?> entityType) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            for (String pair : decoded.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator < 1) {
+                    throw new InvalidCursorException("Malformed cursor");
+                }
+                String key = URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8);
+                String value = URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                Class<?> type = PropertyPath.from(key, entityType).getLeafType();
+                keys.put(key, DefaultConversionService.getSharedInstance().convert(value, type));
+            }
+        } catch (IllegalArgumentException | PropertyReferenceException | ConversionException ex) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        for (Sort.Order order : sort) {
+            if (!keys.containsKey(order.getProperty())) {
+                throw new InvalidCursorException("Cursor does not match sort: " + sort);
+            }
+        }
+        if (!keys.containsKey(ID)) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+}
@@ -0,0 +1,29 @@
+package ru.bicev.book_catalog.util;
+
+import java.util.StringJoiner;
+
+public class ETags {
+
+    // Strong entity tag from version parts, null parts are skipped
+    public static String of(Object... parts) {
+        StringJoiner etag = new StringJoiner("-", "\"", "\"");
+        for (Object part : parts) {
+            if (part != null) {
+                etag.add(part.toString());
+            }
+        }
+        return etag.toString();
+    }
+
+    // If-Match uses strong comparison, so weak tags never match, "*" matches any current version
+    public static boolean matches(String ifMatch, String etag) {
+        for (String candidate : ifMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,8 @@
+package ru.bicev.book_catalog.util;
+
+public enum ImportFormat {
+
+    NDJSON,
+    CSV
+
+}
@@ -0,0 +1,48 @@
+package ru.bicev.book_catalog.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+// Time-ordered UUIDs (RFC 9562, version 7): 48 bits of Unix milliseconds, then 12 counter bits and 62 random bits.
+// New keys land at the right edge of the primary key index instead of random pages.
+// Within one millisecond the counter keeps ids generated by this JVM increasing,
+// when it runs out the timestamp is moved one millisecond ahead
+public class UuidV7 {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    private static long lastMillis;
+    private static long counter;
+
+    public static UUID generate() {
+        long millis;
+        long sequence;
+        synchronized (UuidV7.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                // starts low so that most milliseconds have room for thousands of ids
+                counter = RANDOM.nextInt(1 << (COUNTER_BITS - 2));
+            } else if (++counter > COUNTER_MASK) {
+                lastMillis++;
+                counter = 0;
+            }
+            millis = lastMillis;
+            sequence = counter;
+        }
+        long mostSigBits = (millis << 16) | (0x7L << 12) | sequence;
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    // Unix milliseconds of a version 7 UUID
+    public static long timestamp(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("Not a version 7 UUID: " + uuid);
+        }
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+}
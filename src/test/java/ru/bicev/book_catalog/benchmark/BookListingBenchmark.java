@@ -0,0 +1,140 @@
+package ru.bicev.book_catalog.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ru.bicev.book_catalog.BookCatalogApplication;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.BookFilter;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookProjectionRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.repo.BookSpecifications;
+import ru.bicev.book_catalog.util.BookMapper;
+import ru.bicev.book_catalog.util.Genre;
+import ru.bicev.book_catalog.util.UuidV7;
+
+// The first listing page read as BookDto projections against loading Book entities with their authors
+// in a read-only transaction and mapping them, the way listings were served before. Pages are in id order,
+// so the database walks the primary key and most of the time goes to reading and mapping rows.
+// Starts the application with the test profile, so it runs on in-memory H2 unless SPRING_DATASOURCE_URL is set.
+// Run the main method from test-classes, e.g. after mvn test-compile
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookListingBenchmark {
+
+    private static final int AUTHORS = 1000;
+    private static final Genre[] GENRES = Genre.values();
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+
+        @Param({ "20", "100" })
+        private int pageSize;
+
+        @Param({ "20000" })
+        private int books;
+
+        private ConfigurableApplicationContext context;
+        private BookRepository bookRepository;
+        private BookProjectionRepository projectionRepository;
+        private TransactionTemplate readOnly;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = new SpringApplicationBuilder(BookCatalogApplication.class)
+                    .profiles("test")
+                    .properties("server.port=0", "spring.jpa.show-sql=false",
+                            "spring.jpa.properties.hibernate.generate_statistics=false")
+                    .run();
+            bookRepository = context.getBean(BookRepository.class);
+            projectionRepository = context.getBean(BookProjectionRepository.class);
+            readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            readOnly.setReadOnly(true);
+
+            List<Author> authors = new ArrayList<>();
+            for (int i = 0; i < AUTHORS; i++) {
+                authors.add(new Author(UuidV7.generate(), "First" + i, "Last" + i, 1900 + i % 100, "Country" + i % 50));
+            }
+            authors = context.getBean(AuthorRepository.class).saveAll(authors);
+            List<Book> batch = new ArrayList<>();
+            for (int i = 0; i < books; i++) {
+                batch.add(new Book(UuidV7.generate(), "Title " + i, 1950 + i % 70, GENRES[i % GENRES.length],
+                        authors.get(i % AUTHORS)));
+                if (batch.size() == 1000 || i == books - 1) {
+                    bookRepository.saveAll(batch);
+                    batch.clear();
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+
+        private Pageable page() {
+            return PageRequest.of(0, pageSize, Sort.by("id"));
+        }
+
+        private Specification<Book> specification() {
+            return BookSpecifications.matching(new BookFilter(null, null, null, null, null, Genre.FANTASY, null));
+        }
+
+    }
+
+    @Benchmark
+    public List<BookDto> projection(Catalog catalog) {
+        return catalog.projectionRepository.findAll(catalog.specification(), catalog.page());
+    }
+
+    @Benchmark
+    public List<BookDto> entities(Catalog catalog) {
+        Pageable page = catalog.page();
+        return catalog.readOnly.execute(status -> catalog.bookRepository
+                .findBy(catalog.specification(), query -> query.sortBy(page.getSort())
+                        .limit(page.getPageSize()).all())
+                .stream()
+                .map(BookMapper::toDto)
+                .toList());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BookListingBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
@@ -0,0 +1,171 @@
+package ru.bicev.book_catalog.benchmark;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.ChangeType;
+import ru.bicev.book_catalog.search.BkTree;
+import ru.bicev.book_catalog.search.BookScanner;
+import ru.bicev.book_catalog.search.FuzzyTitleIndex;
+import ru.bicev.book_catalog.util.Genre;
+
+// Typo tolerant lookups: the BK-tree against a full scan of the same words, and FuzzyTitleIndex.findTitles
+// for a misspelled two word query over 1M synthetic titles. Words are built from syllables, close to
+// natural title words, or from uniformly random letters, where the tree prunes least. Query words are
+// taken from the vocabulary with one letter changed, so every lookup has at least one match.
+// findTitles runs with max-distance 1, the default, and 2.
+// Run the main method from test-classes, e.g. after mvn test-compile
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class FuzzyTitleBenchmark {
+
+    private static final int QUERIES = 256;
+    private static final String[] SYLLABLES = { "an", "ber", "cor", "da", "el", "fin", "gar", "hol", "in", "ka",
+            "lor", "man", "nel", "or", "pel", "quin", "ros", "sil", "tan", "ul", "ver", "wen", "yar", "zo" };
+
+    @State(Scope.Thread)
+    public static class Words {
+
+        @Param({ "syllables", "letters" })
+        private String shape;
+
+        @Param({ "200000" })
+        private int vocabulary;
+
+        @Param({ "1000000" })
+        private int titles;
+
+        @Param({ "1", "2" })
+        private int maxDistance;
+
+        private String[] words;
+        private BkTree tree;
+        private FuzzyTitleIndex index;
+        private String[] typos;
+        private String[] titleQueries;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(42);
+            words = new String[vocabulary];
+            tree = new BkTree();
+            for (int i = 0; i < vocabulary; i++) {
+                words[i] = shape.equals("letters") ? letters(random) : word(random);
+                tree.add(words[i]);
+            }
+
+            index = new FuzzyTitleIndex(mock(BookScanner.class), maxDistance, 1000);
+            AuthorDto author = new AuthorDto(UUID.randomUUID(), "Stanislaw", "Lem", 1921, "Poland");
+            List<String[]> titleWords = new ArrayList<>();
+            for (int i = 0; i < titles; i++) {
+                String[] picked = { words[random.nextInt(vocabulary)], words[random.nextInt(vocabulary)],
+                        words[random.nextInt(vocabulary)] };
+                titleWords.add(picked);
+                BookDto book = new BookDto(UUID.randomUUID(), String.join(" ", picked), 1961, Genre.SCI_FI, author);
+                index.onBookChanged(new BookChangedEvent(ChangeType.CREATED, book.id(), null, book));
+            }
+
+            typos = new String[QUERIES];
+            titleQueries = new String[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                typos[i] = typo(words[random.nextInt(vocabulary)], random);
+                String[] title = titleWords.get(random.nextInt(titles));
+                titleQueries[i] = typo(title[0], random) + " " + title[1];
+            }
+        }
+
+        private int nextQuery() {
+            next = (next + 1) % QUERIES;
+            return next;
+        }
+
+        // Two to four syllables, closer to title words than uniformly random letters
+        private static String word(Random random) {
+            int syllables = 2 + random.nextInt(3);
+            StringBuilder word = new StringBuilder();
+            for (int i = 0; i < syllables; i++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            return word.toString();
+        }
+
+        private static String letters(Random random) {
+            char[] letters = new char[4 + random.nextInt(7)];
+            for (int i = 0; i < letters.length; i++) {
+                letters[i] = (char) ('a' + random.nextInt(26));
+            }
+            return new String(letters);
+        }
+
+        private static String typo(String word, Random random) {
+            char[] letters = word.toCharArray();
+            letters[random.nextInt(letters.length)] = (char) ('a' + random.nextInt(26));
+            return new String(letters);
+        }
+
+    }
+
+    @Benchmark
+    public List<BkTree.Match> bkTreeDistance1(Words state) {
+        return state.tree.match(state.typos[state.nextQuery()], 1);
+    }
+
+    @Benchmark
+    public List<BkTree.Match> bkTreeDistance2(Words state) {
+        return state.tree.match(state.typos[state.nextQuery()], 2);
+    }
+
+    @Benchmark
+    public int fullScanDistance2(Words state) {
+        String query = state.typos[state.nextQuery()];
+        int matches = 0;
+        for (String word : state.words) {
+            if (BkTree.distance(query, word) <= 2) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public Set<String> findTitles(Words state) {
+        return state.index.findTitles(state.titleQueries[state.nextQuery()]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FuzzyTitleBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
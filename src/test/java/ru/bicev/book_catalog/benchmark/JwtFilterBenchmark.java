@@ -0,0 +1,121 @@
+package ru.bicev.book_catalog.benchmark;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import ru.bicev.book_catalog.security.auth.TokenVersionCache;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.jwt.JwtAuthenticationFilter;
+import ru.bicev.book_catalog.security.jwt.JwtUtil;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+
+// Cost of JwtAuthenticationFilter per request: a warm token repeats and is served from the verified-token cache,
+// cold tokens are not in it, uncached verifies the same cold tokens with the cache disabled.
+// Run the main method from test-classes, e.g. after mvn test-compile
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "benchmark_secret_key_must_be_long_enough_123456";
+    private static final int COLD_TOKENS = 1 << 16;
+    private static final FilterChain CHAIN = (request, response) -> {
+    };
+
+    @State(Scope.Thread)
+    public static class Filters {
+
+        private JwtAuthenticationFilter cached;
+        private JwtAuthenticationFilter uncached;
+        private String warmToken;
+        private String[] coldTokens;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            UserRepository userRepository = mock(UserRepository.class);
+            when(userRepository.findTokenVersionById(anyLong())).thenReturn(Optional.of(0L));
+            TokenVersionCache versions = new TokenVersionCache(userRepository, COLD_TOKENS, Duration.ofHours(1));
+
+            JwtUtil cachingJwt = new JwtUtil(SECRET, 3600000, 1024);
+            cached = new JwtAuthenticationFilter(cachingJwt, versions);
+            uncached = new JwtAuthenticationFilter(new JwtUtil(SECRET, 3600000, 0), versions);
+
+            warmToken = cachingJwt.generateToken(new User(1L, "user1", null, Role.ADMIN));
+            // distinct user ids give distinct tokens, their versions are loaded once and stay cached
+            coldTokens = new String[COLD_TOKENS];
+            for (int i = 0; i < COLD_TOKENS; i++) {
+                coldTokens[i] = cachingJwt.generateToken(new User((long) i, "user" + i, null, Role.USER));
+                versions.isCurrent((long) i, 0);
+            }
+        }
+
+        private String nextColdToken() {
+            next = (next + 1) & (COLD_TOKENS - 1);
+            return coldTokens[next];
+        }
+
+    }
+
+    @Benchmark
+    public void warmToken(Filters filters, Blackhole blackhole) throws ServletException, IOException {
+        authenticate(filters.cached, filters.warmToken, blackhole);
+    }
+
+    @Benchmark
+    public void coldToken(Filters filters, Blackhole blackhole) throws ServletException, IOException {
+        authenticate(filters.cached, filters.nextColdToken(), blackhole);
+    }
+
+    @Benchmark
+    public void uncached(Filters filters, Blackhole blackhole) throws ServletException, IOException {
+        authenticate(filters.uncached, filters.nextColdToken(), blackhole);
+    }
+
+    private static void authenticate(JwtAuthenticationFilter filter, String token, Blackhole blackhole)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/1");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), CHAIN);
+        blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtFilterBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
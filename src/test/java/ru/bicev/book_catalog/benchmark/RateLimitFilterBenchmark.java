@@ -0,0 +1,123 @@
+package ru.bicev.book_catalog.benchmark;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import ru.bicev.book_catalog.security.ratelimit.RateLimitFilter;
+import ru.bicev.book_catalog.security.ratelimit.RateLimitProperties;
+import ru.bicev.book_catalog.security.ratelimit.TokenBucket;
+
+// Per-request cost of RateLimitFilter next to a baseline that only builds the request and runs the chain:
+// a limited route with many clients, a route without a limit, and the bare bucket.
+// Run the main method from test-classes, e.g. after mvn test-compile
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitFilterBenchmark {
+
+    private static final int CLIENTS = 1 << 12;
+    private static final FilterChain CHAIN = (request, response) -> {
+    };
+
+    @State(Scope.Thread)
+    public static class Limiter {
+
+        private RateLimitFilter filter;
+        private TokenBucket bucket;
+        private String[] addresses;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // limits high enough that every request passes, rejection is not the path being measured
+            RateLimitProperties properties = new RateLimitProperties(true, Duration.ofMinutes(10), 100_000, List.of(
+                    new RateLimitProperties.Route("login", "POST", List.of("/api/auth/login"), 10,
+                            Duration.ofMinutes(1)),
+                    new RateLimitProperties.Route("search", "GET",
+                            List.of("/api/books", "/api/books/search", "/api/books/suggest", "/api/search"),
+                            Long.MAX_VALUE / 2, Duration.ofDays(1))));
+            filter = new RateLimitFilter(properties, new ObjectMapper(), new SimpleMeterRegistry());
+            bucket = new TokenBucket(Long.MAX_VALUE / 2, Duration.ofDays(1), System.nanoTime());
+            addresses = new String[CLIENTS];
+            for (int i = 0; i < CLIENTS; i++) {
+                addresses[i] = "10.0." + (i >> 8) + "." + (i & 255);
+            }
+        }
+
+        private String nextAddress() {
+            next = (next + 1) & (CLIENTS - 1);
+            return addresses[next];
+        }
+
+    }
+
+    @Benchmark
+    public void baseline(Limiter limiter, Blackhole blackhole) throws ServletException, IOException {
+        MockHttpServletRequest request = request("/api/books", limiter.nextAddress());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        CHAIN.doFilter(request, response);
+        blackhole.consume(response.getStatus());
+    }
+
+    @Benchmark
+    public void limitedRoute(Limiter limiter, Blackhole blackhole) throws ServletException, IOException {
+        MockHttpServletRequest request = request("/api/books", limiter.nextAddress());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        limiter.filter.doFilter(request, response, CHAIN);
+        blackhole.consume(response.getStatus());
+    }
+
+    @Benchmark
+    public void unlimitedRoute(Limiter limiter, Blackhole blackhole) throws ServletException, IOException {
+        MockHttpServletRequest request = request("/api/authors", limiter.nextAddress());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        limiter.filter.doFilter(request, response, CHAIN);
+        blackhole.consume(response.getStatus());
+    }
+
+    @Benchmark
+    public long bucketOnly(Limiter limiter) {
+        return limiter.bucket.tryAcquire(System.nanoTime());
+    }
+
+    private static MockHttpServletRequest request(String path, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(address);
+        return request;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimitFilterBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
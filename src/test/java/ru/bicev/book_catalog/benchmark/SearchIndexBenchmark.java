@@ -0,0 +1,115 @@
+package ru.bicev.book_catalog.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ru.bicev.book_catalog.search.InvertedIndex;
+import ru.bicev.book_catalog.search.Tokenizer;
+
+// BM25 queries and updates on InvertedIndex filled with synthetic book documents.
+// Words are drawn with a skewed distribution, so common terms have long posting lists like real titles do.
+// Updates replace existing documents, which also pays for compaction of the removed slots.
+// Run the main method from test-classes, e.g. after mvn test-compile
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchIndexBenchmark {
+
+    private static final int VOCABULARY = 20_000;
+    private static final String[] GENRES = { "fantasy", "romance", "drama", "horror", "classics" };
+
+    @State(Scope.Thread)
+    public static class Index {
+
+        @Param({ "100000" })
+        private int documents;
+
+        private InvertedIndex<Integer, String> index;
+        private List<String> rareQuery;
+        private List<String> commonQuery;
+        private List<List<String>> updates;
+        private Random random;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new Random(42);
+            index = new InvertedIndex<>();
+            for (int i = 0; i < documents; i++) {
+                index.put(i, "book" + i, document());
+            }
+            rareQuery = Tokenizer.tokenize(word(VOCABULARY / 2) + " " + word(VOCABULARY / 3));
+            commonQuery = Tokenizer.tokenize(word(0) + " " + word(1) + " " + GENRES[0]);
+            updates = new ArrayList<>();
+            for (int i = 0; i < 1024; i++) {
+                updates.add(document());
+            }
+        }
+
+        private List<String> document() {
+            StringBuilder text = new StringBuilder();
+            int words = 2 + random.nextInt(5);
+            for (int w = 0; w < words; w++) {
+                text.append(word(skewed())).append(' ');
+            }
+            text.append("first").append(random.nextInt(5000)).append(" last").append(random.nextInt(5000))
+                    .append(' ').append(GENRES[random.nextInt(GENRES.length)]);
+            return Tokenizer.tokenize(text.toString());
+        }
+
+        // Roughly Zipfian: low ranks are much more frequent
+        private int skewed() {
+            return (int) Math.min(VOCABULARY - 1, Math.pow(VOCABULARY, random.nextDouble()) - 1);
+        }
+
+        private static String word(int rank) {
+            return "w" + Integer.toString(rank, 36);
+        }
+
+    }
+
+    @Benchmark
+    public List<InvertedIndex.Hit<String>> searchRareTerms(Index state) {
+        return state.index.search(state.rareQuery, 20);
+    }
+
+    @Benchmark
+    public List<InvertedIndex.Hit<String>> searchCommonTerms(Index state) {
+        return state.index.search(state.commonQuery, 20);
+    }
+
+    @Benchmark
+    public int update(Index state) {
+        int key = state.next++ % state.documents;
+        state.index.put(key, "book" + key, state.updates.get(key & 1023));
+        return state.index.slotCount();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SearchIndexBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
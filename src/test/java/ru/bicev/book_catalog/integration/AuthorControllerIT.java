@@ -164,6 +164,28 @@ public class AuthorControllerIT {
         assertFalse(authorRepository.findById(id).isPresent());
     }
 
+    @Test
+    void shouldWalkAuthorsWithCursor() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/authors")
+                .param("after", "")
+                .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].lastName").value(third.getLastName()))
+                .andExpect(jsonPath("$.content[1].lastName").value(second.getLastName()))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn();
+        String cursor = objectMapper.readTree(result.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/authors")
+                .param("after", cursor)
+                .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].lastName").value(first.getLastName()))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
     private String getToken(String username, String password) throws Exception {
 
         String loginRequest = """
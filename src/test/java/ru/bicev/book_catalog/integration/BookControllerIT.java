@@ -1,5 +1,6 @@
 package ru.bicev.book_catalog.integration;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -8,6 +9,10 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -22,15 +27,23 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import ru.bicev.book_catalog.cache.BookPageCache;
+import ru.bicev.book_catalog.cache.CountCache;
+import ru.bicev.book_catalog.dto.BookFacetsDto;
+import ru.bicev.book_catalog.dto.BookFilter;
 import ru.bicev.book_catalog.entity.Author;
 import ru.bicev.book_catalog.entity.Book;
 import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookFacetRow;
 import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.repo.BookSpecifications;
 import ru.bicev.book_catalog.security.entity.User;
 import ru.bicev.book_catalog.security.repo.UserRepository;
 import ru.bicev.book_catalog.security.util.Role;
+import ru.bicev.book_catalog.service.FacetCounter;
 import ru.bicev.book_catalog.util.Genre;
 
 @SpringBootTest
@@ -47,6 +60,9 @@ public class BookControllerIT {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private BookPageCache bookPageCache;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -56,6 +72,12 @@ public class BookControllerIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private CountCache countCache;
+
+    @Autowired
+    private FacetCounter facetCounter;
+
     private Author first;
     private Author second;
     private Book one;
@@ -74,6 +96,7 @@ public class BookControllerIT {
         bookRepository.deleteAll();
         authorRepository.deleteAll();
         userRepository.deleteAll();
+        countCache.evict(CountCache.BOOKS);
 
         user = new User(null, USERNAME, passwordEncoder.encode(PASSWORD), Role.USER);
         userRepository.save(user);
@@ -91,6 +114,76 @@ public class BookControllerIT {
         four = bookRepository.save(new Book(UUID.randomUUID(), "Bk one", 1990, Genre.ROMANCE, second));
         five = bookRepository.save(new Book(UUID.randomUUID(), "Bk two", 1995, Genre.SCI_FI, second));
 
+        // fixtures are saved directly, without change events
+        facetCounter.load();
+        bookPageCache.bump();
+    }
+
+    @Test
+    void shouldReturnFacetsMatchingRecomputationAfterWrites() throws Exception {
+        String token = getToken(ADMINNAME, PASSWORD);
+
+        mockMvc.perform(post("/api/books")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "title": "Book six",
+                            "releaseYear": 1931,
+                            "genre": "CLASSICS",
+                            "authorId": "%s"
+                        }
+                        """.formatted(second.getId())))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/books/" + one.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "title": "Book one",
+                            "releaseYear": 1999,
+                            "genre": "HORROR",
+                            "authorId": "%s"
+                        }
+                        """.formatted(second.getId())))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/books/" + five.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(put("/api/authors/" + first.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "firstName": "First",
+                            "lastName": "Renamed",
+                            "birthYear": 1900,
+                            "country": "Three"
+                        }
+                        """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/facets"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(5))
+                .andExpect(jsonPath("$.genres.HORROR").value(1))
+                .andExpect(jsonPath("$.decades.1930").value(2))
+                .andExpect(jsonPath("$.countries.Three").value(2))
+                .andExpect(jsonPath("$.countries.Two").value(3));
+
+        for (String query : List.of("", "?name=renamed", "?startYear=1930&endYear=1999", "?genre=ROMANCE",
+                "?authorId=" + second.getId(), "?title=book")) {
+            BookFilter filter = objectMapper.convertValue(queryToMap(query), BookFilter.class);
+            List<BookFacetRow> rows = filter.title() == null
+                    ? bookRepository.findFacetRows()
+                    : bookRepository.findFacetRowsByTitleLike(BookSpecifications.containsPattern(filter.title()));
+            MvcResult result = mockMvc.perform(get("/api/books/facets" + query))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            assertEquals(FacetCounter.aggregate(rows, filter),
+                    objectMapper.readValue(result.getResponse().getContentAsString(), BookFacetsDto.class), query);
+        }
     }
 
     @Test
@@ -259,6 +352,195 @@ public class BookControllerIT {
 
     }
 
+    @Test
+    void shouldReturnPagedBooksMatchingAllFilters() throws Exception {
+
+        mockMvc.perform(get("/api/books")
+                .param("name", "author")
+                .param("genre", "ROMANCE")
+                .param("startYear", "1900")
+                .param("title", "two"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(two.getId().toString()))
+                .andExpect(jsonPath("$.content[0].author.id").value(first.getId().toString()))
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.last").value(true));
+
+    }
+
+    @Test
+    void shouldWalkBooksWithCursor() throws Exception {
+        List<String> titles = new ArrayList<>();
+        String cursor = "";
+        do {
+            MvcResult result = mockMvc.perform(get("/api/books")
+                    .param("after", cursor)
+                    .param("size", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.size").value(2))
+                    .andReturn();
+            JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+            body.get("content").forEach(book -> titles.add(book.get("title").asText()));
+            cursor = body.get("hasNext").asBoolean() ? body.get("nextCursor").asText() : null;
+        } while (cursor != null);
+
+        assertEquals(List.of("Bk one", "Bk two", "Book one", "Book three", "Book two"), titles);
+    }
+
+    @Test
+    void shouldWalkFilteredBooksWithCursor() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/books")
+                .param("after", "")
+                .param("genre", "SCI_FI")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].title").value(five.getTitle()))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn();
+        String cursor = objectMapper.readTree(result.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/books")
+                .param("after", cursor)
+                .param("genre", "SCI_FI")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].title").value(three.getTitle()))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() throws Exception {
+        mockMvc.perform(get("/api/books")
+                .param("after", "not a cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("INVALID_CURSOR"));
+    }
+
+    @Test
+    void shouldReturnPagedBooksWithoutTotals() throws Exception {
+
+        mockMvc.perform(get("/api/books")
+                .param("title", "Book")
+                .param("count", "NONE")
+                .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].title").value(one.getTitle()))
+                .andExpect(jsonPath("$.totalElements").value(-1))
+                .andExpect(jsonPath("$.totalPages").value(-1))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.countMode").value("NONE"));
+
+    }
+
+    @Test
+    void shouldSkipTotalsWhenWithTotalsIsFalse() throws Exception {
+
+        mockMvc.perform(get("/api/books")
+                .param("withTotals", "false")
+                .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(-1))
+                .andExpect(jsonPath("$.countMode").value("NONE"));
+
+        mockMvc.perform(get("/api/books")
+                .param("withTotals", "false")
+                .param("count", "CACHED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.countMode").value("CACHED"));
+
+    }
+
+    @Test
+    void shouldRefreshCachedCountAfterWrite() throws Exception {
+        mockMvc.perform(get("/api/books")
+                .param("genre", "THRILLER")
+                .param("count", "CACHED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0))
+                .andExpect(jsonPath("$.countMode").value("CACHED"));
+
+        String token = getToken(USERNAME, PASSWORD);
+        String requestJson = String.format("""
+                {
+                    "title": "Cached book",
+                    "releaseYear": 1940,
+                    "genre": "THRILLER",
+                    "authorId": "%s"
+                }
+                """, first.getId().toString());
+        mockMvc.perform(post("/api/books")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/books")
+                .param("genre", "THRILLER")
+                .param("count", "CACHED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.totalPages").value(1))
+                .andExpect(jsonPath("$.countMode").value("CACHED"));
+    }
+
+    @Test
+    void shouldFallBackToCachedCountWhenEstimateIsUnavailable() throws Exception {
+        // Estimates need table statistics, filtered listings and fresh tables always fall back
+        mockMvc.perform(get("/api/books")
+                .param("genre", "SCI_FI")
+                .param("count", "ESTIMATED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.countMode").value("CACHED"));
+    }
+
+    @Test
+    void shouldSearchBooksByTitleOrAuthorName() throws Exception {
+
+        mockMvc.perform(get("/api/books/search")
+                .param("q", "WRITER"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].title").value(four.getTitle()))
+                .andExpect(jsonPath("$.content[1].title").value(five.getTitle()));
+
+        mockMvc.perform(get("/api/books/search")
+                .param("q", "one")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].title").value(four.getTitle()))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.countMode").value("NONE"));
+    }
+
+    @Test
+    void shouldFindBooksByUpdatedAuthorName() throws Exception {
+        String token = getToken(ADMINNAME, PASSWORD);
+        String requestJson = """
+                {
+                    "firstName": "Renamed",
+                    "lastName": "Novelist",
+                    "birthYear": 1969,
+                    "country": "Two"
+                }
+                """;
+        mockMvc.perform(put("/api/authors/" + second.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books")
+                .param("name", "renamed nov"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2));
+    }
+
     private String getToken(String username, String password) throws Exception {
 
         String loginRequest = """
@@ -280,4 +562,16 @@ public class BookControllerIT {
                 .asText();
     }
 
+    private static Map<String, String> queryToMap(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.substring(1).split("&")) {
+            String[] parts = pair.split("=");
+            params.put(parts[0], parts[1]);
+        }
+        return params;
+    }
+
 }
@@ -0,0 +1,309 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.bicev.book_catalog.BookCatalogApplication;
+import ru.bicev.book_catalog.cache.BookPageCache;
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookBatchRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+import ru.bicev.book_catalog.service.BookExportService;
+import ru.bicev.book_catalog.util.Genre;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class BookExportIT {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookExportIT.class);
+    private static final int STREAMED_ROWS = 20_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookBatchRepository bookBatchRepository;
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    @Autowired
+    private BookPageCache bookPageCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String token;
+    private Author author;
+    private final String ADMINNAME = "testAdmin";
+    private final String USERNAME = "testUser";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        userRepository.deleteAll();
+
+        userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+        userRepository.save(new User(null, USERNAME, passwordEncoder.encode(PASSWORD), Role.USER));
+        token = getToken(ADMINNAME, PASSWORD);
+        author = authorRepository.save(new Author(UUID.randomUUID(), "Jorge Luis", "Borges", 1899, "Argentina"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        // the streamed rows are removed with one statement, deleteAll would load them as entities
+        bookRepository.deleteAllInBatch();
+        bookPageCache.bump();
+    }
+
+    @Test
+    void shouldExportBooksAsNdjson() throws Exception {
+        bookRepository.save(new Book(UUID.randomUUID(), "Ficciones", 1944, Genre.CLASSICS, author));
+        bookRepository.save(new Book(UUID.randomUUID(), "El Aleph", 1949, Genre.CLASSICS, author));
+
+        String body = export(MediaType.parseMediaType("application/x-ndjson"));
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        List<String> titles = new ArrayList<>();
+        for (String line : lines) {
+            JsonNode book = objectMapper.readTree(line);
+            titles.add(book.get("title").asText());
+            assertEquals("Borges", book.get("author").get("lastName").asText());
+        }
+        assertTrue(titles.containsAll(List.of("Ficciones", "El Aleph")));
+    }
+
+    @Test
+    void shouldExportBooksAsCsv() throws Exception {
+        Book book = bookRepository.save(new Book(UUID.randomUUID(), "Labyrinths, selected", 1962, Genre.CLASSICS,
+                author));
+
+        String body = export(MediaType.parseMediaType("text/csv"));
+
+        assertEquals("""
+                id,title,releaseYear,genre,authorId,authorFirstName,authorLastName,authorBirthYear,authorCountry
+                %s,"Labyrinths, selected",1962,CLASSICS,%s,Jorge Luis,Borges,1899,Argentina
+                """.formatted(book.getId(), author.getId()), body);
+    }
+
+    @Test
+    void shouldRequireAdminRole() throws Exception {
+        String userToken = getToken(USERNAME, PASSWORD);
+
+        mockMvc.perform(get("/api/books/export")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void shouldStreamEveryBookOnce() throws Exception {
+        insertBooks(bookBatchRepository, toDto(author), STREAMED_ROWS);
+
+        LineCountingStream output = new LineCountingStream();
+        long rows = bookExportService.exportNdjson(output);
+
+        assertEquals(STREAMED_ROWS, rows);
+        assertEquals(STREAMED_ROWS, output.lines);
+        assertTrue(output.writes > 1, "export was written in one piece");
+    }
+
+    // The large export runs in its own JVM with a small heap: holding the catalog in memory anywhere on the way
+    // ends it with an OutOfMemoryError. On H2 the database lives in a file, so its rows don't count against the heap.
+    // Run on demand, e.g.
+    // mvn verify -DskipITs=false -Dit.test=BookExportIT -Dbenchmark.export.rows=1000000 -Dbenchmark.export.heap=128m
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.export.rows", matches = "[0-9]+")
+    void shouldStreamLargeExportInSmallHeap(@TempDir Path directory) throws Exception {
+        String rows = System.getProperty("benchmark.export.rows");
+        String heap = System.getProperty("benchmark.export.heap", "128m");
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx" + heap,
+                "-XX:+ExitOnOutOfMemoryError",
+                "-Dspring.devtools.restart.enabled=false",
+                "-cp", System.getProperty("java.class.path"),
+                LargeExport.class.getName(),
+                rows,
+                directory.resolve("exported").toString()));
+        String url = System.getenv("SPRING_DATASOURCE_URL");
+        if (url == null || !url.startsWith("jdbc:postgresql:")) {
+            command.add("--spring.datasource.url=jdbc:h2:file:" + directory.resolve("export")
+                    + ";MODE=PostgreSQL;CACHE_SIZE=8192");
+        } else {
+            // the schema belongs to this test's context
+            command.add("--spring.jpa.hibernate.ddl-auto=none");
+        }
+
+        Process process = new ProcessBuilder(command).inheritIO().start();
+
+        assertEquals(0, process.waitFor(), "export of " + rows + " books failed with -Xmx" + heap);
+        assertEquals(rows + " " + rows, Files.readString(directory.resolve("exported")));
+    }
+
+    // Entry point of the forked JVM: loads the rows, exports them and writes the exported row and line counts
+    public static class LargeExport {
+
+        public static void main(String[] args) throws Exception {
+            int rows = Integer.parseInt(args[0]);
+            List<String> properties = new ArrayList<>(List.of("--server.port=0", "--spring.jpa.show-sql=false"));
+            properties.addAll(List.of(args).subList(2, args.length));
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BookCatalogApplication.class)
+                    .profiles("test")
+                    .run(properties.toArray(String[]::new))) {
+                Author author = context.getBean(AuthorRepository.class)
+                        .save(new Author(UUID.randomUUID(), "Pierre", "Menard", 1880, "France"));
+                insertBooks(context.getBean(BookBatchRepository.class), toDto(author), rows);
+
+                LineCountingStream output = new LineCountingStream();
+                long started = System.currentTimeMillis();
+                long exported = context.getBean(BookExportService.class).exportNdjson(output);
+                logger.info("Exported {} books, {} MB in {} ms with max heap {} MB", exported, output.bytes >> 20,
+                        System.currentTimeMillis() - started, Runtime.getRuntime().maxMemory() >> 20);
+                Files.writeString(Path.of(args[1]), exported + " " + output.lines);
+            }
+            System.exit(0);
+        }
+
+    }
+
+    private static void insertBooks(BookBatchRepository bookBatchRepository, AuthorDto author, int rows) {
+        List<BookDto> chunk = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            chunk.add(new BookDto(UUID.randomUUID(), "Book of Sand " + i, 1975, Genre.CLASSICS, author));
+            if (chunk.size() == 10_000 || i == rows - 1) {
+                bookBatchRepository.insertAll(chunk, 1000);
+                chunk.clear();
+            }
+        }
+    }
+
+    private static AuthorDto toDto(Author author) {
+        return new AuthorDto(author.getId(), author.getFirstName(), author.getLastName(), author.getBirthYear(),
+                author.getCountry());
+    }
+
+    // Discards the export, counting what passes through
+    private static class LineCountingStream extends OutputStream {
+
+        private long bytes;
+        private long lines;
+        private long writes;
+
+        @Override
+        public void write(int b) {
+            count(b == '\n' ? 1 : 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            int newLines = 0;
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] == '\n') {
+                    newLines++;
+                }
+            }
+            count(newLines, length);
+        }
+
+        private void count(int newLines, int length) {
+            lines += newLines;
+            bytes += length;
+            writes++;
+        }
+
+    }
+
+    private String export(MediaType accept) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/books/export")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .accept(accept))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(accept))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+    }
+
+    private String getToken(String username, String password) throws Exception {
+
+        String loginRequest = """
+                {
+                    "username": "%s",
+                    "password": "%s"
+                }
+                """.formatted(username, password);
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
@@ -0,0 +1,290 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+import ru.bicev.book_catalog.cache.BookPageCache;
+import ru.bicev.book_catalog.cache.CountCache;
+import ru.bicev.book_catalog.dto.BookFilter;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+import ru.bicev.book_catalog.service.FacetCounter;
+import ru.bicev.book_catalog.util.Genre;
+
+// Statement budgets per request for the listing endpoints. Budgets are fixed on purpose:
+// a query per row or a lazy association loaded one by one makes the build fail
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class BookQueryCountIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookPageCache bookPageCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CountCache countCache;
+
+    @Autowired
+    private FacetCounter facetCounter;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private static UUID authorId;
+    private String adminToken;
+    private final String ADMINNAME = "testAdmin";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        userRepository.deleteAll();
+        countCache.evict(CountCache.BOOKS);
+        countCache.evict(CountCache.AUTHORS);
+        countCache.evict(CountCache.USERS);
+
+        userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+        for (int i = 0; i < 5; i++) {
+            userRepository.save(new User(null, "user" + i, passwordEncoder.encode(PASSWORD), Role.USER));
+        }
+        adminToken = getToken(ADMINNAME, PASSWORD);
+
+        Author first = authorRepository.save(new Author(UUID.randomUUID(), "First", "Author", 1900, "One"));
+        Author second = authorRepository.save(new Author(UUID.randomUUID(), "Second", "Writer", 1969, "Two"));
+        Author third = authorRepository.save(new Author(UUID.randomUUID(), "Third", "Novelist", 1950, "Three"));
+        authorId = first.getId();
+
+        bookRepository.save(new Book(UUID.randomUUID(), "Book one", 1920, Genre.CLASSICS, first));
+        bookRepository.save(new Book(UUID.randomUUID(), "Book two", 1925, Genre.ROMANCE, first));
+        bookRepository.save(new Book(UUID.randomUUID(), "Book three", 1930, Genre.SCI_FI, first));
+        bookRepository.save(new Book(UUID.randomUUID(), "Bk one", 1990, Genre.ROMANCE, second));
+        bookRepository.save(new Book(UUID.randomUUID(), "Bk two", 1995, Genre.SCI_FI, second));
+        bookRepository.save(new Book(UUID.randomUUID(), "Other book", 1995, Genre.ROMANCE, third));
+
+        // fixtures are saved directly, without change events
+        bookPageCache.bump();
+        // a resync published by an earlier test (e.g. after a bulk import) reloads the facets on first use
+        facetCounter.count(BookFilter.empty());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    static Stream<Arguments> filterCombinations() {
+        return Stream.of(
+                Arguments.of("no filters", new String[] {}),
+                Arguments.of("author id", new String[] { "authorId", "$author" }),
+                Arguments.of("author name", new String[] { "name", "writer" }),
+                Arguments.of("release year", new String[] { "releaseYear", "1995" }),
+                Arguments.of("year range", new String[] { "startYear", "1900", "endYear", "1990" }),
+                Arguments.of("genre", new String[] { "genre", "ROMANCE" }),
+                Arguments.of("title", new String[] { "title", "one" }),
+                Arguments.of("name and genre", new String[] { "name", "author", "genre", "ROMANCE" }),
+                Arguments.of("genre and year range",
+                        new String[] { "genre", "SCI_FI", "startYear", "1900", "endYear", "2000" }),
+                Arguments.of("all filters", new String[] { "authorId", "$author", "name", "first", "releaseYear",
+                        "1925", "startYear", "1900", "endYear", "2000", "genre", "ROMANCE", "title", "two" }));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("filterCombinations")
+    void shouldIssueOneSelectAndAtMostOneCount(String description, String[] params) throws Exception {
+        MockHttpServletRequestBuilder request = get("/api/books").param("size", "2");
+        for (int i = 0; i < params.length; i += 2) {
+            String value = "$author".equals(params[i + 1]) ? authorId.toString() : params[i + 1];
+            request.param(params[i], value);
+        }
+
+        mockMvc.perform(request).andExpect(status().isOk());
+
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements >= 1 && statements <= 2,
+                () -> description + ": expected one select and at most one count, was " + statements);
+        assertEquals(0, statistics.getEntityFetchCount(), description + ": authors must not be fetched one by one");
+        assertEquals(0, statistics.getEntityLoadCount(), description + ": rows must be selected into DTOs");
+    }
+
+    @Test
+    void shouldReadSingleRowsWithoutEntities() throws Exception {
+        UUID bookId = bookRepository.findAll().get(0).getId();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/books/" + bookId)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/authors/" + authorId)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/authors").param("size", "2")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/books/search").param("q", "book")).andExpect(status().isOk());
+
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void shouldSkipCountWithoutTotals() throws Exception {
+        mockMvc.perform(get("/api/books").param("size", "2").param("count", "NONE"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void shouldReuseCachedCount() throws Exception {
+        mockMvc.perform(get("/api/books").param("size", "2").param("genre", "ROMANCE").param("count", "CACHED"))
+                .andExpect(status().isOk());
+        statistics.clear();
+
+        mockMvc.perform(get("/api/books").param("size", "2").param("page", "1").param("genre", "ROMANCE")
+                .param("count", "CACHED"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void shouldServeRepeatedListingsFromResultCacheUntilVersionChanges() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            mockMvc.perform(get("/api/books").param("size", "2").param("genre", "ROMANCE").param("sort", "title"))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get("/api/books").param("size", "2").param("genre", "ROMANCE")
+                    .param("title", i % 2 == 0 ? "BOOK" : "book"))
+                    .andExpect(status().isOk());
+        }
+
+        assertEquals(4, statistics.getPrepareStatementCount(), "100 requests, two distinct queries with counts");
+
+        bookPageCache.bump();
+        statistics.clear();
+        mockMvc.perform(get("/api/books").param("size", "2").param("genre", "ROMANCE").param("sort", "title"))
+                .andExpect(status().isOk());
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("filterCombinations")
+    void shouldIssueOneSelectWithCursor(String description, String[] params) throws Exception {
+        MockHttpServletRequestBuilder request = get("/api/books").param("size", "2").param("after", "");
+        for (int i = 0; i < params.length; i += 2) {
+            String value = "$author".equals(params[i + 1]) ? authorId.toString() : params[i + 1];
+            request.param(params[i], value);
+        }
+
+        mockMvc.perform(request).andExpect(status().isOk());
+
+        assertEquals(1, statistics.getPrepareStatementCount(), description + ": cursor mode must skip the count");
+        assertEquals(0, statistics.getEntityFetchCount(), description + ": authors must not be fetched one by one");
+    }
+
+    static Stream<Arguments> listings() {
+        return Stream.of(
+                Arguments.of("/api/books", 2, false),
+                Arguments.of("/api/books?genre=ROMANCE&name=author&startYear=1900", 2, false),
+                Arguments.of("/api/books?sort=author.lastName", 2, false),
+                Arguments.of("/api/books?count=NONE", 1, false),
+                Arguments.of("/api/books?withTotals=false", 1, false),
+                Arguments.of("/api/books?count=CACHED", 2, false),
+                Arguments.of("/api/books?title=bok&fuzzy=true", 2, false),
+                Arguments.of("/api/books?after=", 1, false),
+                Arguments.of("/api/books?after=&sort=releaseYear", 1, false),
+                Arguments.of("/api/books/search?q=book", 2, false),
+                Arguments.of("/api/books/facets", 0, false),
+                Arguments.of("/api/books/facets?title=book", 1, false),
+                Arguments.of("/api/books/suggest?prefix=bo", 0, false),
+                Arguments.of("/api/search?q=book", 0, false),
+                Arguments.of("/api/authors", 2, false),
+                Arguments.of("/api/authors?count=NONE", 1, false),
+                Arguments.of("/api/authors?withTotals=false", 1, false),
+                Arguments.of("/api/authors?after=", 1, false),
+                Arguments.of("/api/users", 3, true),
+                Arguments.of("/api/users?count=NONE", 2, true));
+    }
+
+    // Every listing endpoint, with the books of three authors on one page
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("listings")
+    void shouldStayWithinStatementBudget(String url, int budget, boolean admin) throws Exception {
+        if (admin) {
+            mockMvc.perform(get(url).header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken))
+                    .andExpect(status().isOk());
+        } else {
+            mockMvc.perform(get(url)).andExpect(status().isOk());
+        }
+
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= budget,
+                () -> url + ": expected at most " + budget + " statements, was " + statements);
+        assertEquals(0, statistics.getEntityFetchCount(), url + ": authors must not be fetched one by one");
+    }
+
+    private String getToken(String username, String password) throws Exception {
+
+        String loginRequest = """
+                {
+                    "username": "%s",
+                    "password": "%s"
+                }
+                """.formatted(username, password);
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
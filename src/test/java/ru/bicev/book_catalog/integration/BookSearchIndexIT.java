@@ -0,0 +1,127 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.repo.BookSearchRepository;
+
+// Startup index builds of the search, they run on every node and must leave writers alone
+@SpringBootTest
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = PostgresDatabase.class)
+@EnabledIf("ru.bicev.book_catalog.integration.PostgresDatabase#available")
+public class BookSearchIndexIT {
+
+    private static final String INDEX = "idx_books_author_id";
+
+    @Autowired
+    private BookSearchRepository bookSearchRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Author author;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        author = authorRepository.save(new Author(UUID.randomUUID(), "Arthur", "Clarke", 1917, "UK"));
+    }
+
+    @Test
+    void shouldBuildIndexesWithoutBlockingWriters() throws Exception {
+        jdbcTemplate.execute("DROP INDEX " + INDEX);
+
+        try (Connection pending = dataSource.getConnection(); Connection writer = dataSource.getConnection()) {
+            // a writer's open transaction keeps the build waiting, a plain CREATE INDEX would queue
+            // its share lock here and every later insert would queue behind it
+            pending.setAutoCommit(false);
+            try (Statement statement = pending.createStatement()) {
+                statement.execute("LOCK TABLE books IN ROW EXCLUSIVE MODE");
+            }
+            CompletableFuture<Void> build = CompletableFuture.runAsync(bookSearchRepository::prepareIndexes);
+            awaitBuildStarted();
+
+            try (Statement statement = writer.createStatement()) {
+                statement.execute("SET lock_timeout = '2s'");
+            }
+            try (PreparedStatement insert = writer.prepareStatement(
+                    "INSERT INTO books (id, title, release_year, genre, author_id, version) VALUES (?, ?, ?, ?, ?, 0)")) {
+                insert.setObject(1, UUID.randomUUID());
+                insert.setString(2, "Rendezvous with Rama");
+                insert.setInt(3, 1973);
+                insert.setString(4, "SCI_FI");
+                insert.setObject(5, author.getId());
+                assertEquals(1, insert.executeUpdate());
+            }
+
+            pending.commit();
+            build.get(30, TimeUnit.SECONDS);
+        }
+
+        assertTrue(valid(INDEX));
+        assertTrue(bookSearchRepository.isTrigramAvailable());
+    }
+
+    @Test
+    void shouldRebuildIndexLeftInvalidByInterruptedBuild() {
+        // what a failed CREATE INDEX CONCURRENTLY leaves behind
+        jdbcTemplate.update("UPDATE pg_index SET indisvalid = false WHERE indexrelid = ?::regclass", INDEX);
+
+        bookSearchRepository.prepareIndexes();
+
+        assertTrue(valid(INDEX));
+    }
+
+    private void awaitBuildStarted() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            // a concurrent build reports its progress while waiting, a plain one waits for the table lock
+            Integer builds = jdbcTemplate.queryForObject("""
+                    SELECT (SELECT count(*) FROM pg_stat_progress_create_index WHERE relid = 'books'::regclass)
+                         + (SELECT count(*) FROM pg_locks WHERE relation = 'books'::regclass AND NOT granted)
+                    """, Integer.class);
+            if (builds != null && builds > 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Index build did not start");
+    }
+
+    private boolean valid(String index) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT indisvalid FROM pg_index WHERE indexrelid = ?::regclass", Boolean.class, index));
+    }
+
+}
@@ -0,0 +1,227 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class BulkImportIT {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportIT.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+    private static final int ROWS = 5000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String token;
+    private UUID authorId;
+    private final String ADMINNAME = "testAdmin";
+    private final String USERNAME = "testUser";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        userRepository.deleteAll();
+
+        userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+        userRepository.save(new User(null, USERNAME, passwordEncoder.encode(PASSWORD), Role.USER));
+        token = getToken(ADMINNAME, PASSWORD);
+        authorId = authorRepository.save(new Author(UUID.randomUUID(), "Isaac", "Bulkov", 1920, "USA")).getId();
+    }
+
+    @Test
+    void shouldImportNdjsonInBatches() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            body.append("""
+                    {"title":"Foundation %d","releaseYear":1951,"genre":"SCI_FI","authorId":"%s"}
+                    """.formatted(i, authorId));
+        }
+
+        JsonNode result = importBooks(NDJSON, body.toString());
+
+        assertEquals(ROWS, result.get("imported").asLong());
+        assertEquals(0, result.get("failed").asLong());
+        assertEquals(ROWS, bookRepository.count());
+        logger.info("NDJSON import: {} rows/s", Math.round(result.get("rowsPerSecond").asDouble()));
+
+        mockMvc.perform(get("/api/books").param("title", "Foundation 4999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].author.lastName").value("Bulkov"));
+        mockMvc.perform(get("/api/search").param("q", "bulkov foundation").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].book.author.id").value(authorId.toString()));
+    }
+
+    @Test
+    void shouldImportCsvWithQuotedFields() throws Exception {
+        StringBuilder body = new StringBuilder("authorId,title,genre,releaseYear\n");
+        for (int i = 0; i < ROWS; i++) {
+            body.append("%s,\"Robots, vol. %d\",SCI_FI,1950\n".formatted(authorId, i));
+        }
+
+        JsonNode result = importBooks(CSV, body.toString());
+
+        assertEquals(ROWS, result.get("imported").asLong());
+        assertEquals(ROWS, bookRepository.count());
+        logger.info("CSV import: {} rows/s", Math.round(result.get("rowsPerSecond").asDouble()));
+
+        mockMvc.perform(get("/api/books").param("title", "Robots, vol. 42"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].releaseYear").value(1950));
+    }
+
+    @Test
+    void shouldReportRejectedRowsWithLineNumbers() throws Exception {
+        mockMvc.perform(post("/api/books")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"title":"I, Robot","releaseYear":1950,"genre":"SCI_FI","authorId":"%s"}
+                        """.formatted(authorId)))
+                .andExpect(status().isCreated());
+
+        String body = String.join("\n",
+                "{\"title\":\"The Caves of Steel\",\"releaseYear\":1954,\"genre\":\"SCI_FI\",\"authorId\":\"%s\"}",
+                "{\"title\":\"I, Robot\",\"releaseYear\":1950,\"genre\":\"SCI_FI\",\"authorId\":\"%s\"}",
+                "{\"title\":\"Nemesis\",\"releaseYear\":1989,\"genre\":\"SCI_FI\",\"authorId\":\"" + UUID.randomUUID() + "\"}",
+                "{\"title\":\"Broken\",",
+                "",
+                "{\"title\":\"Pebble\",\"releaseYear\":1950,\"genre\":\"EPIC\",\"authorId\":\"%s\"}",
+                "{\"title\":\"\",\"releaseYear\":-1,\"genre\":\"SCI_FI\",\"authorId\":\"%s\"}",
+                "{\"title\":\"The Caves of Steel\",\"releaseYear\":1954,\"genre\":\"SCI_FI\",\"authorId\":\"%s\"}")
+                .formatted(authorId, authorId, authorId, authorId, authorId);
+
+        mockMvc.perform(post("/api/books/bulk")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(NDJSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows").value(7))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(6))
+                .andExpect(jsonPath("$.errors[?(@.line == 2)].message").value("Book already exists"))
+                .andExpect(jsonPath("$.errors[?(@.line == 3)].message").value(
+                        contains(startsWith("Author not found"))))
+                .andExpect(jsonPath("$.errors[?(@.line == 4)].message").value(
+                        contains(startsWith("Malformed JSON"))))
+                .andExpect(jsonPath("$.errors[?(@.line == 6)]").exists())
+                .andExpect(jsonPath("$.errors[?(@.line == 7)].message").value(
+                        contains(allOf(
+                                containsString("releaseYear"),
+                                containsString("title")))))
+                .andExpect(jsonPath("$.errors[?(@.line == 8)].message").value("Book already exists"));
+
+        assertEquals(2, bookRepository.count());
+    }
+
+    @Test
+    void shouldRejectCsvWithoutRequiredColumns() throws Exception {
+        mockMvc.perform(post("/api/books/bulk")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(CSV)
+                .content("title,genre\nDune,SCI_FI\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("INVALID_IMPORT"));
+    }
+
+    @Test
+    void shouldRequireAdminRole() throws Exception {
+        String userToken = getToken(USERNAME, PASSWORD);
+
+        mockMvc.perform(post("/api/books/bulk")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken)
+                .contentType(NDJSON)
+                .content("{\"title\":\"Dune\",\"releaseYear\":1965,\"genre\":\"SCI_FI\",\"authorId\":\"%s\"}"
+                        .formatted(authorId)))
+                .andExpect(status().isForbidden());
+
+        assertEquals(0, bookRepository.count());
+    }
+
+    private JsonNode importBooks(MediaType contentType, String body) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/books/bulk")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(contentType)
+                .content(body))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private String getToken(String username, String password) throws Exception {
+
+        String loginRequest = """
+                {
+                    "username": "%s",
+                    "password": "%s"
+                }
+                """.formatted(username, password);
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
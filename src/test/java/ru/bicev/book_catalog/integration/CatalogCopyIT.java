@@ -0,0 +1,231 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIf;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+import ru.bicev.book_catalog.util.Genre;
+
+// COPY needs Postgres: the context runs on SPRING_DATASOURCE_URL when it points to Postgres,
+// otherwise on a Postgres container when Docker is available
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = PostgresDatabase.class)
+public class CatalogCopyIT {
+
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+    private static final int ROWS = 20000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String token;
+    private final String ADMINNAME = "testAdmin";
+    private final String USERNAME = "testUser";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        userRepository.deleteAll();
+
+        userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+        userRepository.save(new User(null, USERNAME, passwordEncoder.encode(PASSWORD), Role.USER));
+        token = getToken(ADMINNAME, PASSWORD);
+    }
+
+    @Test
+    @EnabledIf("ru.bicev.book_catalog.integration.PostgresDatabase#available")
+    void shouldCopyAuthorsAndBooks() throws Exception {
+        UUID authorId = UUID.randomUUID();
+        StringBuilder authors = new StringBuilder("id,firstName,lastName,birthYear,country\n");
+        authors.append(authorId).append(",Arthur,Copyer,1917,UK\n");
+        for (int i = 0; i < ROWS; i++) {
+            authors.append(",Author,Number ").append(i).append(",1950,USA\n");
+        }
+
+        copy("/api/authors/copy", authors.toString())
+                .andExpect(jsonPath("$.rows").value(ROWS + 1))
+                .andExpect(jsonPath("$.inserted").value(ROWS + 1))
+                .andExpect(jsonPath("$.skipped").value(0));
+
+        StringBuilder books = new StringBuilder("id,title,releaseYear,genre,authorId\n");
+        for (int i = 0; i < ROWS; i++) {
+            books.append(",\"Rendezvous, part ").append(i).append("\",1973,SCI_FI,").append(authorId).append('\n');
+        }
+
+        copy("/api/books/copy", books.toString())
+                .andExpect(jsonPath("$.inserted").value(ROWS))
+                .andExpect(jsonPath("$.conflicting").value(0))
+                .andExpect(jsonPath("$.invalid").value(0));
+
+        assertEquals(ROWS + 1, authorRepository.count());
+        assertEquals(ROWS, bookRepository.count());
+        mockMvc.perform(get("/api/books").param("title", "Rendezvous, part 777"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].author.lastName").value("Copyer"));
+        mockMvc.perform(get("/api/search").param("q", "copyer rendezvous").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].book.author.id").value(authorId.toString()));
+    }
+
+    @Test
+    @EnabledIf("ru.bicev.book_catalog.integration.PostgresDatabase#available")
+    void shouldSortRowsByUniqueConstraints() throws Exception {
+        Author author = authorRepository.save(new Author(UUID.randomUUID(), "Arthur", "Clarke", 1917, "UK"));
+        Author other = authorRepository.save(new Author(UUID.randomUUID(), "Fred", "Hoyle", 1915, "UK"));
+        Book existing = bookRepository.save(new Book(UUID.randomUUID(), "Childhood's End", 1953, Genre.SCI_FI,
+                author));
+
+        String authors = String.join("\n",
+                "id,firstName,lastName,birthYear,country",
+                ",Arthur,Clarke,1917,UK",
+                ",Isaac,Asimov,1920,USA",
+                ",Isaac,Asimov,1920,USA",
+                other.getId() + ",Robert,Heinlein,1907,USA",
+                ",,Nameless,1900,USA",
+                ",Young,Author,2030,USA");
+
+        copy("/api/authors/copy", authors)
+                .andExpect(jsonPath("$.rows").value(6))
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.skipped").value(2))
+                .andExpect(jsonPath("$.conflicting").value(1))
+                .andExpect(jsonPath("$.invalid").value(2));
+
+        String books = String.join("\n",
+                "id,title,releaseYear,genre,authorId",
+                ",Childhood's End,1953,SCI_FI," + author.getId(),
+                ",Childhood's End,1953,SCI_FI," + other.getId(),
+                ",The City and the Stars,1956,SCI_FI," + author.getId(),
+                ",The City and the Stars,1956,SCI_FI," + author.getId(),
+                ",The City and the Stars,1956,SCI_FI," + other.getId(),
+                existing.getId() + ",Imperial Earth,1975,SCI_FI," + author.getId(),
+                ",The Black Cloud,1957,SCI_FI," + UUID.randomUUID(),
+                ",Broken,1957,SPACE_OPERA," + author.getId(),
+                ",Broken,next year,SCI_FI," + author.getId(),
+                ",The Fountains of Paradise,1979,SCI_FI," + author.getId());
+
+        copy("/api/books/copy", books)
+                .andExpect(jsonPath("$.rows").value(10))
+                .andExpect(jsonPath("$.inserted").value(2))
+                .andExpect(jsonPath("$.skipped").value(2))
+                .andExpect(jsonPath("$.conflicting").value(4))
+                .andExpect(jsonPath("$.invalid").value(2));
+
+        assertEquals(3, bookRepository.count());
+    }
+
+    @Test
+    @EnabledIf("ru.bicev.book_catalog.integration.PostgresDatabase#available")
+    void shouldRejectMalformedCsvAndRollBack() throws Exception {
+        mockMvc.perform(post("/api/authors/copy")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(CSV)
+                .content("id,firstName,lastName,birthYear,country\n,Arthur,Clarke,1917,UK\n,too,many,1,2,3\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("INVALID_IMPORT"));
+
+        assertEquals(0, authorRepository.count());
+    }
+
+    @Test
+    @DisabledIf("ru.bicev.book_catalog.integration.PostgresDatabase#available")
+    void shouldRefuseCopyOnOtherDatabases() throws Exception {
+        mockMvc.perform(post("/api/books/copy")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(CSV)
+                .content("id,title,releaseYear,genre,authorId\n"))
+                .andExpect(status().isNotImplemented())
+                .andExpect(jsonPath("$.errorCode").value("COPY_NOT_SUPPORTED"));
+    }
+
+    @Test
+    void shouldRequireAdminRole() throws Exception {
+        String userToken = getToken(USERNAME, PASSWORD);
+
+        mockMvc.perform(post("/api/authors/copy")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken)
+                .contentType(CSV)
+                .content("id,firstName,lastName,birthYear,country\n,Arthur,Clarke,1917,UK\n"))
+                .andExpect(status().isForbidden());
+
+        assertEquals(0, authorRepository.count());
+    }
+
+    private ResultActions copy(String path, String body) throws Exception {
+        return mockMvc.perform(post(path)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(CSV)
+                .content(body))
+                .andExpect(status().isOk());
+    }
+
+    private String getToken(String username, String password) throws Exception {
+
+        String loginRequest = """
+                {
+                    "username": "%s",
+                    "password": "%s"
+                }
+                """.formatted(username, password);
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
@@ -0,0 +1,287 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+import ru.bicev.book_catalog.cache.CatalogGenerations;
+import ru.bicev.book_catalog.event.RemoteBookChangedEvent;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ConditionalGetIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private Statistics statistics;
+    private String token;
+    private String authorId;
+    private String bookId;
+    private final String ADMINNAME = "testAdmin";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        userRepository.deleteAll();
+
+        userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+        token = getToken(ADMINNAME, PASSWORD);
+
+        authorId = create("/api/authors", """
+                {
+                    "firstName": "Arkady",
+                    "lastName": "Strugatsky",
+                    "birthYear": 1925,
+                    "country": "USSR"
+                }
+                """);
+        bookId = create("/api/books", """
+                {
+                    "title": "Roadside Picnic",
+                    "releaseYear": 1972,
+                    "genre": "SCI_FI",
+                    "authorId": "%s"
+                }
+                """.formatted(authorId));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutQueries() throws Exception {
+        String bookEtag = etag("/api/books/" + bookId);
+        String authorEtag = etag("/api/authors/" + authorId);
+        statistics.clear();
+
+        mockMvc.perform(get("/api/books/" + bookId).header(HttpHeaders.IF_NONE_MATCH, bookEtag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, bookEtag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/authors/" + authorId).header(HttpHeaders.IF_NONE_MATCH, authorEtag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void shouldChangeBookEtagWhenBookOrItsAuthorChanges() throws Exception {
+        String created = etag("/api/books/" + bookId);
+
+        update("/api/authors/" + authorId, """
+                {
+                    "firstName": "Arkady",
+                    "lastName": "Strugatsky",
+                    "birthYear": 1925,
+                    "country": "Russia"
+                }
+                """);
+        String authorUpdated = etag("/api/books/" + bookId);
+
+        update("/api/books/" + bookId, """
+                {
+                    "title": "Roadside Picnic",
+                    "releaseYear": 1971,
+                    "genre": "SCI_FI",
+                    "authorId": "%s"
+                }
+                """.formatted(authorId));
+
+        mockMvc.perform(get("/api/books/" + bookId).header(HttpHeaders.IF_NONE_MATCH, authorUpdated))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+        assertNotEquals(created, authorUpdated);
+        assertNotEquals(authorUpdated, etag("/api/books/" + bookId));
+    }
+
+    @Test
+    void shouldRevalidateListingsAfterCatalogWrites() throws Exception {
+        String etag = etag("/api/books?genre=SCI_FI");
+
+        mockMvc.perform(get("/api/books").param("genre", "SCI_FI").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=10, public"));
+
+        create("/api/books", """
+                {
+                    "title": "Hard to Be a God",
+                    "releaseYear": 1964,
+                    "genre": "SCI_FI",
+                    "authorId": "%s"
+                }
+                """.formatted(authorId));
+
+        mockMvc.perform(get("/api/books").param("genre", "SCI_FI").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldKeepAuthorListingEtagWhenOnlyBooksChange() throws Exception {
+        String authors = etag("/api/authors");
+        String books = etag("/api/books");
+
+        create("/api/books", """
+                {
+                    "title": "Hard to Be a God",
+                    "releaseYear": 1964,
+                    "genre": "SCI_FI",
+                    "authorId": "%s"
+                }
+                """.formatted(authorId));
+
+        mockMvc.perform(get("/api/authors").header(HttpHeaders.IF_NONE_MATCH, authors))
+                .andExpect(status().isNotModified());
+        assertNotEquals(books, etag("/api/books"));
+
+        update("/api/authors/" + authorId, """
+                {
+                    "firstName": "Arkady",
+                    "lastName": "Strugatsky",
+                    "birthYear": 1925,
+                    "country": "Russia"
+                }
+                """);
+
+        assertNotEquals(authors, etag("/api/authors"));
+    }
+
+    // Another node or a restarted one reads the same generations, so it tags listings the same way
+    @Test
+    void shouldTagListingsWithSharedGenerations() throws Exception {
+        CatalogGenerations otherNode = new CatalogGenerations(jdbcTemplate);
+        otherNode.createSequences();
+
+        assertEquals(otherNode.booksEtag(), etag("/api/books"));
+        assertEquals(otherNode.authorsEtag(), etag("/api/authors"));
+    }
+
+    // Another node's notification is delivered at its commit and its generations move a moment later,
+    // a value read in between must not be kept
+    @Test
+    void shouldReadGenerationsAgainUntilRemoteChangeMovesThem() throws Exception {
+        String books = etag("/api/books");
+
+        eventPublisher.publishEvent(new RemoteBookChangedEvent(UUID.fromString(bookId), null));
+        assertEquals(books, etag("/api/books"));
+
+        jdbcTemplate.queryForObject("SELECT nextval('" + CatalogGenerations.BOOKS + "')", Long.class);
+        assertNotEquals(books, etag("/api/books"));
+    }
+
+    @Test
+    void shouldReturnNotFoundForMissingBookEvenWithEtag() throws Exception {
+        mockMvc.perform(get("/api/books/" + UUID.randomUUID()).header(HttpHeaders.IF_NONE_MATCH, "\"0-0\""))
+                .andExpect(status().isNotFound());
+    }
+
+    private String etag(String path) throws Exception {
+        return mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+    }
+
+    private void update(String path, String body) throws Exception {
+        mockMvc.perform(put(path)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk());
+    }
+
+    private String create(String path, String body) throws Exception {
+        MvcResult result = mockMvc.perform(post(path)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+    }
+
+    private String getToken(String username, String password) throws Exception {
+
+        String loginRequest = """
+                {
+                    "username": "%s",
+                    "password": "%s"
+                }
+                """.formatted(username, password);
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
@@ -0,0 +1,99 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import jakarta.persistence.EntityManagerFactory;
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.AuthorRequest;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.BookRequest;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.service.AuthorService;
+import ru.bicev.book_catalog.service.BookService;
+import ru.bicev.book_catalog.util.Genre;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class CreateStatementCountIT {
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void shouldCreateAuthorWithSingleInsert() {
+        AuthorDto created = authorService.createAuthor(new AuthorRequest("Italo", "Calvino", 1923, "Italy"));
+
+        assertEquals(1, statistics.getPrepareStatementCount(), "assigned id must not trigger a SELECT");
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals("Calvino", authorRepository.findById(created.id()).orElseThrow().getLastName());
+    }
+
+    @Test
+    void shouldCreateBookWithAuthorLookupAndSingleInsert() {
+        Author author = authorRepository.save(new Author(UUID.randomUUID(), "Italo", "Calvino", 1923, "Italy"));
+        statistics.clear();
+
+        BookDto created = bookService.createBook(new BookRequest("Invisible Cities", 1972, Genre.CLASSICS,
+                author.getId()));
+
+        assertEquals(2, statistics.getPrepareStatementCount(), "only the author SELECT and the book INSERT");
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(1, statistics.getEntityLoadCount(), "only the author is loaded");
+        assertEquals("Invisible Cities", bookRepository.findDtoById(created.id()).orElseThrow().title());
+    }
+
+    @Test
+    void shouldStillUpdateAndDeleteLoadedEntities() {
+        AuthorDto author = authorService.createAuthor(new AuthorRequest("Italo", "Calvino", 1923, "Italy"));
+        BookDto book = bookService.createBook(new BookRequest("Invisible Cities", 1972, Genre.CLASSICS,
+                author.id()));
+
+        bookService.updateBook(book.id(), new BookRequest("Le città invisibili", 1972, Genre.CLASSICS,
+                author.id()));
+        assertEquals("Le città invisibili", bookRepository.findDtoById(book.id()).orElseThrow().title());
+
+        bookService.deleteBook(book.id());
+        authorService.deleteAuthorById(author.id());
+
+        assertEquals(0, bookRepository.count());
+        assertEquals(0, authorRepository.count());
+    }
+
+}
@@ -0,0 +1,181 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+
+import ru.bicev.book_catalog.BookCatalogApplication;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.search.CatalogSearchService;
+import ru.bicev.book_catalog.security.auth.TokenVersionCache;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+import ru.bicev.book_catalog.service.BookService;
+import ru.bicev.book_catalog.util.Genre;
+
+// LISTEN/NOTIFY needs Postgres, run with SPRING_DATASOURCE_URL pointing to a Postgres database
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "SPRING_DATASOURCE_URL", matches = "jdbc:postgresql:.*")
+public class InvalidationBusIT {
+
+    private static final long WAIT_MILLIS = 5000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ConfigurableApplicationContext secondNode;
+    private User admin;
+    private String token;
+    private final String ADMINNAME = "testAdmin";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        userRepository.deleteAll();
+
+        admin = userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+        token = getToken(ADMINNAME, PASSWORD);
+
+        secondNode = new SpringApplicationBuilder(BookCatalogApplication.class)
+                .profiles("test")
+                // arguments, default properties would lose to the test profile and drop the shared schema
+                .run("--server.port=0", "--spring.jpa.hibernate.ddl-auto=none");
+    }
+
+    @AfterEach
+    void tearDown() {
+        secondNode.close();
+    }
+
+    @Test
+    void shouldInvalidateCachesOfOtherNodeAfterUpdate() throws Exception {
+        Author author = authorRepository.save(new Author(UUID.randomUUID(), "Ursula", "Leguin", 1929, "USA"));
+        Book book = bookRepository.save(new Book(UUID.randomUUID(), "Planet of Exile", 1966, Genre.SCI_FI, author));
+        BookService remoteBooks = secondNode.getBean(BookService.class);
+        CatalogSearchService remoteSearch = secondNode.getBean(CatalogSearchService.class);
+        assertEquals("Planet of Exile", remoteBooks.findBookById(book.getId()).title());
+
+        mockMvc.perform(put("/api/books/" + book.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "title": "City of Illusions",
+                            "releaseYear": 1967,
+                            "genre": "SCI_FI",
+                            "authorId": "%s"
+                        }
+                        """.formatted(author.getId())))
+                .andExpect(status().isOk());
+
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!"City of Illusions".equals(remoteBooks.findBookById(book.getId()).title())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertEquals("City of Illusions", remoteBooks.findBookById(book.getId()).title());
+        assertEquals(1, remoteSearch.search("illusions", 10).size());
+
+        // the node is listening, but on a connection opened outside the pool
+        HikariDataSource pool = secondNode.getBean(DataSource.class).unwrap(HikariDataSource.class);
+        assertEquals(0, pool.getHikariPoolMXBean().getActiveConnections());
+    }
+
+    @Test
+    void shouldRevokeTokensOnOtherNodeAfterPasswordChange() throws Exception {
+        TokenVersionCache remoteVersions = secondNode.getBean(TokenVersionCache.class);
+        long version = admin.getTokenVersion();
+        assertTrue(remoteVersions.isCurrent(admin.getId(), version));
+
+        mockMvc.perform(put("/api/users/" + admin.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "username": "%s",
+                            "password": "new_password"
+                        }
+                        """.formatted(ADMINNAME)))
+                .andExpect(status().isNoContent());
+
+        // well within the cache expiry, only the notification can evict the old version
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (remoteVersions.isCurrent(admin.getId(), version) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertFalse(remoteVersions.isCurrent(admin.getId(), version));
+    }
+
+    private String getToken(String username, String password) throws Exception {
+
+        String loginRequest = """
+                {
+                    "username": "%s",
+                    "password": "%s"
+                }
+                """.formatted(username, password);
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
@@ -0,0 +1,294 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+import ru.bicev.book_catalog.cache.LookupCaches;
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class LookupCacheIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Statistics statistics;
+    private String token;
+    private String authorId;
+    private String bookId;
+    private final String ADMINNAME = "testAdmin";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        userRepository.deleteAll();
+
+        userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+        token = getToken(ADMINNAME, PASSWORD);
+
+        authorId = create("/api/authors", """
+                {
+                    "firstName": "Stanislaw",
+                    "lastName": "Lem",
+                    "birthYear": 1921,
+                    "country": "Poland"
+                }
+                """);
+        bookId = create("/api/books", """
+                {
+                    "title": "Solaris",
+                    "releaseYear": 1961,
+                    "genre": "SCI_FI",
+                    "authorId": "%s"
+                }
+                """.formatted(authorId));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() throws Exception {
+        double hits = metric("cache.gets", "name:books", "result:hit");
+
+        mockMvc.perform(get("/api/books/" + bookId)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/authors/" + authorId)).andExpect(status().isOk());
+        statistics.clear();
+
+        mockMvc.perform(get("/api/books/" + bookId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Solaris"));
+        mockMvc.perform(get("/api/authors/" + authorId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName").value("Lem"));
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(metric("cache.gets", "name:books", "result:hit") >= hits + 1);
+        assertTrue(metric("cache.gets", "name:books", "result:miss") >= 1);
+    }
+
+    @Test
+    void shouldEvictAfterBookWrites() throws Exception {
+        mockMvc.perform(get("/api/books/" + bookId)).andExpect(status().isOk());
+
+        mockMvc.perform(put("/api/books/" + bookId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "title": "Solaris revisited",
+                            "releaseYear": 1961,
+                            "genre": "SCI_FI",
+                            "authorId": "%s"
+                        }
+                        """.formatted(authorId)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/" + bookId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Solaris revisited"));
+
+        mockMvc.perform(delete("/api/books/" + bookId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/books/" + bookId)).andExpect(status().isNotFound());
+    }
+
+    // Cached books keep only the author id, the author change evicts the author alone
+    @Test
+    void shouldShowUpdatedAuthorInCachedBooks() throws Exception {
+        String bookEtag = mockMvc.perform(get("/api/books/" + bookId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/authors/" + authorId)).andExpect(status().isOk());
+
+        updateAuthorCountry("Ukraine");
+
+        mockMvc.perform(get("/api/authors/" + authorId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.country").value("Ukraine"));
+        statistics.clear();
+        mockMvc.perform(get("/api/books/" + bookId).header(HttpHeaders.IF_NONE_MATCH, bookEtag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.author.country").value("Ukraine"));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(delete("/api/books/" + bookId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/authors/" + authorId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/authors/" + authorId)).andExpect(status().isNotFound());
+    }
+
+    // A load that read the author before the update committed is still running when the update evicts it,
+    // the eviction waits for that load and drops what it loaded, so neither the author nor books show it later
+    @Test
+    void shouldNotKeepAuthorLoadedBeforeUpdateCommitted() throws Exception {
+        UUID id = UUID.fromString(authorId);
+        String bookEtag = mockMvc.perform(get("/api/books/" + bookId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        cacheManager.getCache(LookupCaches.AUTHORS).clear();
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // the call @Cacheable(sync = true) makes for findAuthorById
+            Future<AuthorDto> load = executor.submit(() -> cacheManager.getCache(LookupCaches.AUTHORS).get(id, () -> {
+                AuthorDto read = authorRepository.findDtoById(id).orElseThrow();
+                loaded.countDown();
+                release.await();
+                return read;
+            }));
+            assertTrue(loaded.await(10, TimeUnit.SECONDS));
+
+            Future<?> update = executor.submit(() -> {
+                updateAuthorCountry("Ukraine");
+                return null;
+            });
+            while (!"Ukraine".equals(authorRepository.findDtoById(id).orElseThrow().country())) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertEquals("Poland", load.get(10, TimeUnit.SECONDS).country());
+            update.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        mockMvc.perform(get("/api/authors/" + authorId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.country").value("Ukraine"));
+        mockMvc.perform(get("/api/books/" + bookId).header(HttpHeaders.IF_NONE_MATCH, bookEtag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.author.country").value("Ukraine"));
+    }
+
+    private void updateAuthorCountry(String country) throws Exception {
+        mockMvc.perform(put("/api/authors/" + authorId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "firstName": "Stanislaw",
+                            "lastName": "Lem",
+                            "birthYear": 1921,
+                            "country": "%s"
+                        }
+                        """.formatted(country)))
+                .andExpect(status().isOk());
+    }
+
+    private double metric(String name, String... tags) throws Exception {
+        var request = get("/actuator/metrics/" + name).header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        for (String tag : tags) {
+            request.param("tag", tag);
+        }
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode measurements = objectMapper.readTree(result.getResponse().getContentAsString()).get("measurements");
+        return measurements.get(0).get("value").asDouble();
+    }
+
+    private String create(String path, String body) throws Exception {
+        MvcResult result = mockMvc.perform(post(path)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+    }
+
+    private String getToken(String username, String password) throws Exception {
+
+        String loginRequest = """
+                {
+                    "username": "%s",
+                    "password": "%s"
+                }
+                """.formatted(username, password);
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
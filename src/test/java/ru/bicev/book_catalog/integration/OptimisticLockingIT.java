@@ -0,0 +1,258 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class OptimisticLockingIT {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 10;
+    private static final int START_YEAR = 1000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String token;
+    private String authorId;
+    private String bookId;
+    private final String ADMINNAME = "testAdmin";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        userRepository.deleteAll();
+
+        userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+        token = getToken(ADMINNAME, PASSWORD);
+
+        authorId = create("/api/authors", """
+                {
+                    "firstName": "Karel",
+                    "lastName": "Capek",
+                    "birthYear": 1890,
+                    "country": "Czechoslovakia"
+                }
+                """);
+        bookId = create("/api/books", bookJson(START_YEAR));
+    }
+
+    @Test
+    void shouldRejectUpdateWithStaleIfMatch() throws Exception {
+        String etag = mockMvc.perform(get("/api/books/" + bookId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(putBook(START_YEAR + 1, etag)).andExpect(status().isOk());
+
+        mockMvc.perform(putBook(START_YEAR + 2, etag))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.errorCode").value("PRECONDITION_FAILED"));
+        mockMvc.perform(putBook(START_YEAR + 2, "W/" + etag)).andExpect(status().isPreconditionFailed());
+        mockMvc.perform(putBook(START_YEAR + 2, "*")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/" + bookId))
+                .andExpect(jsonPath("$.releaseYear").value(START_YEAR + 2));
+    }
+
+    @Test
+    void shouldRejectAuthorUpdateWithStaleIfMatch() throws Exception {
+        String etag = mockMvc.perform(get("/api/authors/" + authorId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(putAuthor("Bohemia", etag)).andExpect(status().isOk());
+        mockMvc.perform(putAuthor("Austria-Hungary", etag)).andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get("/api/authors/" + authorId))
+                .andExpect(jsonPath("$.country").value("Bohemia"));
+    }
+
+    // Every thread increments the release year by reading it with its ETag and writing it back with If-Match,
+    // retrying on 412, so any lost update shows up in the final year
+    @Test
+    void shouldNotLoseConcurrentIncrements() throws Exception {
+        AtomicInteger conflicts = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                while (true) {
+                    MockHttpServletResponse current = mockMvc.perform(get("/api/books/" + bookId))
+                            .andReturn().getResponse();
+                    int year = objectMapper.readTree(current.getContentAsString()).get("releaseYear").asInt();
+                    int status = mockMvc.perform(putBook(year + 1, current.getHeader(HttpHeaders.ETAG)))
+                            .andReturn().getResponse().getStatus();
+                    if (status == HttpStatus.OK.value()) {
+                        break;
+                    }
+                    assertEquals(HttpStatus.PRECONDITION_FAILED.value(), status);
+                    conflicts.incrementAndGet();
+                }
+            }
+        });
+
+        JsonNode book = objectMapper.readTree(mockMvc.perform(get("/api/books/" + bookId))
+                .andReturn().getResponse().getContentAsString());
+        assertEquals(START_YEAR + THREADS * UPDATES_PER_THREAD, book.get("releaseYear").asInt(),
+                "updates lost, conflicts seen: " + conflicts.get());
+        assertEquals(THREADS * UPDATES_PER_THREAD,
+                bookRepository.findVersionById(UUID.fromString(bookId)).orElseThrow().version());
+    }
+
+    @Test
+    void shouldApplyEveryUnconditionalUpdate() throws Exception {
+        AtomicInteger updated = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                int status = mockMvc.perform(putAuthor("Country " + i, null)).andReturn().getResponse().getStatus();
+                if (status == HttpStatus.OK.value()) {
+                    updated.incrementAndGet();
+                } else {
+                    assertEquals(HttpStatus.CONFLICT.value(), status);
+                }
+            }
+        });
+
+        assertEquals(updated.get(), authorRepository.findVersionById(UUID.fromString(authorId)).orElseThrow());
+    }
+
+    private void runConcurrently(Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    task.run();
+                    return null;
+                }));
+            }
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private MockHttpServletRequestBuilder putBook(int year, String ifMatch) {
+        MockHttpServletRequestBuilder request = put("/api/books/" + bookId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(bookJson(year));
+        return ifMatch == null ? request : request.header(HttpHeaders.IF_MATCH, ifMatch);
+    }
+
+    private MockHttpServletRequestBuilder putAuthor(String country, String ifMatch) {
+        MockHttpServletRequestBuilder request = put("/api/authors/" + authorId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "firstName": "Karel",
+                            "lastName": "Capek",
+                            "birthYear": 1890,
+                            "country": "%s"
+                        }
+                        """.formatted(country));
+        return ifMatch == null ? request : request.header(HttpHeaders.IF_MATCH, ifMatch);
+    }
+
+    private String bookJson(int year) {
+        return """
+                {
+                    "title": "R.U.R.",
+                    "releaseYear": %d,
+                    "genre": "SCI_FI",
+                    "authorId": "%s"
+                }
+                """.formatted(year, authorId);
+    }
+
+    private String create(String path, String body) throws Exception {
+        MvcResult result = mockMvc.perform(post(path)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+    }
+
+    private String getToken(String username, String password) throws Exception {
+
+        String loginRequest = """
+                {
+                    "username": "%s",
+                    "password": "%s"
+                }
+                """.formatted(username, password);
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
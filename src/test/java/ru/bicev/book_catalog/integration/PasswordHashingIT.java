@@ -0,0 +1,117 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+
+@SpringBootTest(properties = {
+        "catalog.password.bcrypt-strength=12",
+        "catalog.password.threads=1",
+        "catalog.password.queue-capacity=1"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class PasswordHashingIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private final String USERNAME = "testUser";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldRehashWeakerPasswordOnLogin() throws Exception {
+        String weakHash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        User user = userRepository.save(new User(null, USERNAME, weakHash, Role.USER));
+
+        login(USERNAME, PASSWORD).andExpect(status().isOk());
+
+        User rehashed = userRepository.findById(user.getId()).orElseThrow();
+        assertNotEquals(weakHash, rehashed.getPassword());
+        assertTrue(rehashed.getPassword().startsWith("$2a$12$"));
+        assertEquals(user.getTokenVersion(), rehashed.getTokenVersion());
+        assertTrue(passwordEncoder.matches(PASSWORD, rehashed.getPassword()));
+
+        login(USERNAME, PASSWORD).andExpect(status().isOk());
+        assertEquals(rehashed.getPassword(), userRepository.findById(user.getId()).orElseThrow().getPassword());
+    }
+
+    @Test
+    void shouldFailFastWhenHashingQueueIsFull() throws Exception {
+        userRepository.save(new User(null, USERNAME, passwordEncoder.encode(PASSWORD), Role.USER));
+
+        int clients = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                responses.add(executor.submit(() -> login(USERNAME, PASSWORD).andReturn().getResponse()));
+            }
+            int ok = 0;
+            int rejected = 0;
+            for (Future<MockHttpServletResponse> future : responses) {
+                MockHttpServletResponse response = future.get();
+                if (response.getStatus() == 200) {
+                    ok++;
+                } else {
+                    assertEquals(429, response.getStatus());
+                    assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+                    rejected++;
+                }
+            }
+            assertTrue(ok >= 1, "the running and queued logins must succeed");
+            assertTrue(rejected >= 1, "logins beyond the queue must be rejected");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private ResultActions login(String username, String password) throws Exception {
+        return mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "username": "%s",
+                            "password": "%s"
+                        }
+                        """.formatted(username, password)));
+    }
+
+}
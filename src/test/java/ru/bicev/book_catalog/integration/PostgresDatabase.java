@@ -0,0 +1,49 @@
+package ru.bicev.book_catalog.integration;
+
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+// Points a test context to Postgres for tests that need its features.
+// SPRING_DATASOURCE_URL wins when it names a Postgres database, otherwise a container is started once per JVM
+// when Docker is available. Without either, tests guarded by available() are skipped and the context stays on H2
+public class PostgresDatabase implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    private static final String IMAGE = "postgres:16-alpine";
+
+    private static PostgreSQLContainer<?> container;
+
+    public static boolean available() {
+        return external() || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        if (external() || !DockerClientFactory.instance().isDockerAvailable()) {
+            return;
+        }
+        PostgreSQLContainer<?> postgres = start();
+        TestPropertyValues.of(
+                "spring.datasource.url=" + postgres.getJdbcUrl(),
+                "spring.datasource.username=" + postgres.getUsername(),
+                "spring.datasource.password=" + postgres.getPassword(),
+                "spring.datasource.driver-class-name=" + postgres.getDriverClassName())
+                .applyTo(context.getEnvironment());
+    }
+
+    private static synchronized PostgreSQLContainer<?> start() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>(IMAGE);
+            container.start();
+        }
+        return container;
+    }
+
+    private static boolean external() {
+        String url = System.getenv("SPRING_DATASOURCE_URL");
+        return url != null && url.startsWith("jdbc:postgresql:");
+    }
+
+}
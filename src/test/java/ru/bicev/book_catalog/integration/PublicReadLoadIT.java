@@ -0,0 +1,185 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.AbstractMockMvcBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+
+// Throughput of public book reads with and without a bearer token.
+// Run on demand, e.g.
+// mvn verify -DskipITs=false -Dit.test=PublicReadLoadIT -Dbenchmark.requests=200000 -Dbenchmark.threads=8
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark.requests", matches = "[0-9]+")
+public class PublicReadLoadIT {
+
+    private static final Logger logger = LoggerFactory.getLogger(PublicReadLoadIT.class);
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // MockMvc builds its own DispatcherServlet and ignores spring.mvc.publish-request-handled-events
+    @TestConfiguration
+    static class DispatcherConfiguration {
+
+        @Bean
+        MockMvcBuilderCustomizer noRequestHandledEvents() {
+            return builder -> ((AbstractMockMvcBuilder<?>) builder)
+                    .addDispatcherServletCustomizer(servlet -> servlet.setPublishEvents(false));
+        }
+
+    }
+
+    private final String ADMINNAME = "testAdmin";
+    private final String PASSWORD = "test_password";
+
+    @Test
+    void shouldMeasurePublicReadThroughput() throws Exception {
+        int requests = Integer.getInteger("benchmark.requests");
+        int threads = Integer.getInteger("benchmark.threads", 8);
+
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        userRepository.deleteAll();
+        userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+        String token = getToken(ADMINNAME, PASSWORD);
+        String authorId = create(token, "/api/authors", """
+                {
+                    "firstName": "Stanislaw",
+                    "lastName": "Lem",
+                    "birthYear": 1921,
+                    "country": "Poland"
+                }
+                """);
+        String bookId = create(token, "/api/books", """
+                {
+                    "title": "Solaris",
+                    "releaseYear": 1961,
+                    "genre": "SCI_FI",
+                    "authorId": "%s"
+                }
+                """.formatted(authorId));
+
+        String path = "/api/books/" + bookId;
+        // warm up the lookup caches and the JIT before measuring
+        run(get(path), requests / 10, threads);
+        run(get(path).header(HttpHeaders.AUTHORIZATION, "Bearer " + token), requests / 10, threads);
+
+        // alternating rounds, best of each, so JIT and GC drift does not favour one side
+        long anonymous = 0;
+        long bearer = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            anonymous = Math.max(anonymous, run(get(path), requests, threads));
+            bearer = Math.max(bearer,
+                    run(get(path).header(HttpHeaders.AUTHORIZATION, "Bearer " + token), requests, threads));
+        }
+
+        logger.info("{} requests on {} threads: anonymous {} req/s, bearer {} req/s", requests, threads, anonymous,
+                bearer);
+    }
+
+    private long run(MockHttpServletRequestBuilder request, int requests, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long started = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int share = requests / threads;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < share; i++) {
+                        mockMvc.perform(request).andExpect(status().isOk());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long nanos = System.nanoTime() - started;
+            return (long) requests * 1_000_000_000L / Math.max(1, nanos);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String create(String token, String path, String body) throws Exception {
+        MvcResult result = mockMvc.perform(post(path)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+    }
+
+    private String getToken(String username, String password) throws Exception {
+
+        String loginRequest = """
+                {
+                    "username": "%s",
+                    "password": "%s"
+                }
+                """.formatted(username, password);
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
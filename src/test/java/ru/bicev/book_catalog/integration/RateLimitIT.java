@@ -0,0 +1,185 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.jwt.JwtUtil;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+
+@SpringBootTest(properties = {
+        "catalog.rate-limit.enabled=true",
+        "catalog.rate-limit.routes[0].name=login",
+        "catalog.rate-limit.routes[0].method=POST",
+        "catalog.rate-limit.routes[0].paths=/api/auth/login",
+        "catalog.rate-limit.routes[0].capacity=3",
+        "catalog.rate-limit.routes[0].period=1h",
+        "catalog.rate-limit.routes[1].name=search",
+        "catalog.rate-limit.routes[1].method=GET",
+        "catalog.rate-limit.routes[1].paths=/api/books,/api/search",
+        "catalog.rate-limit.routes[1].capacity=2",
+        "catalog.rate-limit.routes[1].period=1h",
+        "catalog.rate-limit.routes[2].name=users",
+        "catalog.rate-limit.routes[2].method=GET",
+        "catalog.rate-limit.routes[2].paths=/api/users",
+        "catalog.rate-limit.routes[2].capacity=2",
+        "catalog.rate-limit.routes[2].period=1h"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class RateLimitIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoSpyBean
+    private JwtUtil jwtUtil;
+
+    // MockMvc builds its own DispatcherServlet, turn off the request handled event as the application does
+    @TestConfiguration
+    static class DispatcherServletConfig {
+
+        @Bean
+        MockMvcBuilderCustomizer noRequestHandledEvents() {
+            return builder -> builder.addDispatcherServletCustomizer(servlet -> servlet.setPublishEvents(false));
+        }
+
+    }
+
+    private final String ADMINNAME = "testAdmin";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+    }
+
+    @Test
+    void shouldLimitLoginsPerAddress() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(login().with(remoteAddress("10.0.0.1"))).andExpect(status().isOk());
+        }
+
+        MvcResult result = mockMvc.perform(login().with(remoteAddress("10.0.0.1")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(jsonPath("$.errorCode").value("TOO_MANY_REQUESTS"))
+                .andExpect(jsonPath("$.statusCode").value(429))
+                .andReturn();
+        long retryAfter = Long.parseLong(result.getResponse().getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(retryAfter > 0 && retryAfter <= 1200, "one token comes back every 20 minutes");
+
+        mockMvc.perform(login().with(remoteAddress("10.0.0.2"))).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldLimitPublicReadsPerAddressWhateverTheToken() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/books").param("title", "solaris")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer rotated-" + i)
+                    .with(remoteAddress("10.0.1.1")))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/api/books").param("title", "solaris")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + getToken("10.0.1.2"))
+                .with(remoteAddress("10.0.1.1")))
+                .andExpect(status().isTooManyRequests());
+        mockMvc.perform(get("/api/books").with(remoteAddress("10.0.1.1"))).andExpect(status().isTooManyRequests());
+
+        mockMvc.perform(get("/api/books").with(remoteAddress("10.0.1.9"))).andExpect(status().isOk());
+        // limiting public reads doesn't verify the tokens they carry
+        verify(jwtUtil, never()).parseUser(anyString());
+    }
+
+    @Test
+    void shouldLimitAuthenticatedRoutesPerUser() throws Exception {
+        String token = getToken("10.0.3.1");
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/users")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                    .with(remoteAddress("10.0.3." + (2 + i))))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/api/users")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .with(remoteAddress("10.0.3.9")))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void shouldNotLimitOtherRoutes() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(get("/api/authors").with(remoteAddress("10.0.2.1"))).andExpect(status().isOk());
+        }
+    }
+
+    private MockHttpServletRequestBuilder login() {
+        return post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "username": "%s",
+                            "password": "%s"
+                        }
+                        """.formatted(ADMINNAME, PASSWORD));
+    }
+
+    private static RequestPostProcessor remoteAddress(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+
+    private String getToken(String address) throws Exception {
+        MvcResult result = mockMvc.perform(login().with(remoteAddress(address)))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
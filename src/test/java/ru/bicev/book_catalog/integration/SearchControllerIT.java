@@ -0,0 +1,247 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.repo.UserRepository;
+import ru.bicev.book_catalog.security.util.Role;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class SearchControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String token;
+    private String authorId;
+    private final String ADMINNAME = "testAdmin";
+    private final String PASSWORD = "test_password";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        userRepository.deleteAll();
+
+        userRepository.save(new User(null, ADMINNAME, passwordEncoder.encode(PASSWORD), Role.ADMIN));
+        token = getToken(ADMINNAME, PASSWORD);
+    }
+
+    @Test
+    void shouldFindCreatedBooksByTitleAuthorAndGenre() throws Exception {
+        authorId = createAuthor("Ursula", "Leguin");
+        createBook("A Wizard of Earthsea", "FANTASY");
+        createBook("The Left Hand of Darkness", "SCI_FI");
+
+        mockMvc.perform(get("/api/search").param("q", "earthsea wizard"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].book.title").value("A Wizard of Earthsea"))
+                .andExpect(jsonPath("$[0].score").isNumber());
+
+        mockMvc.perform(get("/api/search").param("q", "leguin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        // other test classes may leave books of the same genre in the shared index
+        mockMvc.perform(get("/api/search").param("q", "leguin sci-fi"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].book.title").value("The Left Hand of Darkness"));
+    }
+
+    @Test
+    void shouldFollowUpdatesAndDeletes() throws Exception {
+        authorId = createAuthor("Ursula", "Leguin");
+        String bookId = createBook("The Dispossessed", "SCI_FI");
+
+        mockMvc.perform(put("/api/authors/" + authorId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "firstName": "Ursula",
+                            "lastName": "Le Guin",
+                            "birthYear": 1929,
+                            "country": "USA"
+                        }
+                        """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/search").param("q", "guin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].book.id").value(bookId))
+                .andExpect(jsonPath("$[0].book.author.lastName").value("Le Guin"));
+
+        mockMvc.perform(delete("/api/books/" + bookId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/search").param("q", "dispossessed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void shouldSuggestTitlesAndAuthorNames() throws Exception {
+        // repositories are cleared directly between tests, so every test uses its own author
+        authorId = createAuthor("Ursula", "Kroeber");
+        String bookId = createBook("Tales from Gont", "FANTASY");
+
+        mockMvc.perform(get("/api/books/suggest").param("prefix", "gon"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].text").value("Tales from Gont"))
+                .andExpect(jsonPath("$[0].type").value("TITLE"));
+
+        mockMvc.perform(get("/api/books/suggest").param("prefix", "KROE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].text").value("Ursula Kroeber"))
+                .andExpect(jsonPath("$[0].type").value("AUTHOR"));
+
+        mockMvc.perform(put("/api/books/" + bookId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "title": "The Other Wind",
+                            "releaseYear": 2001,
+                            "genre": "FANTASY",
+                            "authorId": "%s"
+                        }
+                        """.formatted(authorId)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/suggest").param("prefix", "gon"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(get("/api/books/suggest").param("prefix", "other w"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].text").value("The Other Wind"));
+    }
+
+    @Test
+    void shouldFindBooksByMisspelledTitleWithFuzzy() throws Exception {
+        authorId = createAuthor("Ursula", "Ogion");
+        createBook("The Farthest Shore", "FANTASY");
+        createBook("The Tombs of Atuan", "FANTASY");
+
+        mockMvc.perform(get("/api/books").param("title", "farthst shor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+
+        mockMvc.perform(get("/api/books")
+                .param("title", "farthst shor")
+                .param("fuzzy", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("The Farthest Shore"));
+
+        mockMvc.perform(get("/api/books")
+                .param("title", "tomb")
+                .param("genre", "SCI_FI")
+                .param("fuzzy", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+
+        mockMvc.perform(get("/api/books")
+                .param("title", "tmbs atuan")
+                .param("fuzzy", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].title").value("The Tombs of Atuan"));
+    }
+
+    private String createAuthor(String firstName, String lastName) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/authors")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "firstName": "%s",
+                            "lastName": "%s",
+                            "birthYear": 1929,
+                            "country": "USA"
+                        }
+                        """.formatted(firstName, lastName)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+    }
+
+    private String createBook(String title, String genre) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/books")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {
+                            "title": "%s",
+                            "releaseYear": 1968,
+                            "genre": "%s",
+                            "authorId": "%s"
+                        }
+                        """.formatted(title, genre, authorId)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+    }
+
+    private String getToken(String username, String password) throws Exception {
+
+        String loginRequest = """
+                {
+                    "username": "%s",
+                    "password": "%s"
+                }
+                """.formatted(username, password);
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        String responseBody = result.getResponse().getContentAsString();
+
+        return objectMapper
+                .readTree(responseBody)
+                .get("token")
+                .asText();
+    }
+
+}
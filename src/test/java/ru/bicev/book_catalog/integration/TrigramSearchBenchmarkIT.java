@@ -0,0 +1,162 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import ru.bicev.book_catalog.repo.BookSearchRepository;
+
+// Latency of the ranked trigram search against the LIKE fallback on a large catalog.
+// Run on demand against Postgres (SPRING_DATASOURCE_URL or a container), e.g.
+// mvn verify -DskipITs=false -Dit.test=TrigramSearchBenchmarkIT -Dbenchmark.books=1000000
+// Books are seeded with one INSERT ... SELECT: ten books per author, three words from a small vocabulary
+// per title, every eighth title starts with "Garden of" and a handful contain the rare word "Zephyrine"
+@SpringBootTest
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = PostgresDatabase.class)
+@EnabledIf("ru.bicev.book_catalog.integration.PostgresDatabase#available")
+@EnabledIfSystemProperty(named = "benchmark.books", matches = "[0-9]+")
+public class TrigramSearchBenchmarkIT {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrigramSearchBenchmarkIT.class);
+    private static final int PAGE = 10;
+    private static final int RUNS = 5;
+    private static final List<String> QUERIES = List.of("zephyrine", "maria novak", "garden", "amber river");
+
+    private static final String WORDS = """
+            ARRAY['amber','river','silent','stone','winter','crown','shadow','empire','glass','forest',
+                  'ember','harbor','iron','lantern','meadow','night','ocean','paper','quiet','raven',
+                  'salt','thunder','valley','willow','ashes','bridge','candle','desert','echo','falcon',
+                  'golden','hollow','island','jade','kingdom','light','mirror','north','orchard','pale',
+                  'queen','rose','silver','tide','under','velvet','wolf','yellow','zenith','autumn']
+            """;
+
+    private static final String SEED_AUTHORS = """
+            INSERT INTO authors (id, first_name, last_name, birth_year, country, full_name, version)
+            SELECT gen_random_uuid(), f, l, 1800 + (i / 1200) %% 200, 'Country ' || (i / 240000), lower(f || ' ' || l), 0
+            FROM (
+                SELECT i,
+                       (ARRAY['Maria','John','Anna','Ivan','Elena','Peter','Olga','James','Sofia','Pavel',
+                              'Laura','Mark','Irina','David','Nina','Oscar','Vera','Hugo','Alice','Boris'])[1 + i %% 20] AS f,
+                       (ARRAY['Novak','Smith','Petrova','Garcia','Ivanov','Rossi','Berg','Kowalski','Dubois','Silva',
+                              'Larsen','Moreau','Horvat','Jensen','Fischer','Costa','Weber','Sato','Popescu','Varga',
+                              'Nagy','Lind','Keller','Romano','Hale','Quinn','Falk','Orlov','Mendes','Tanaka',
+                              'Blum','Cruz','Dahl','Engel','Ford','Grant','Holm','Irwin','Janssen','Kerr',
+                              'Lang','Marsh','Nolan','Ortiz','Price','Reyes','Stone','Thorne','Ueda','Wolfe',
+                              'Abbot','Baker','Clark','Drake','Evans','Frost','Gale','Hart','Innes','Joyce'])[1 + (i / 20) %% 60] AS l
+                FROM generate_series(0, %d) AS i
+            ) names
+            """;
+
+    private static final String SEED_BOOKS = """
+            INSERT INTO books (id, title, release_year, genre, author_id, version)
+            SELECT gen_random_uuid(),
+                   CASE WHEN i %% 100000 = 7 THEN 'Zephyrine ' ELSE '' END
+                       || CASE WHEN i %% 8 = 0 THEN 'Garden of ' ELSE '' END
+                       || initcap(w[1 + abs(hashint4(i)) %% 50]) || ' ' || w[1 + abs(hashint4(i + 7919)) %% 50]
+                       || ' ' || w[1 + abs(hashint4(i + 104729)) %% 50] || ' ' || i,
+                   1900 + i %% 120,
+                   (ARRAY['FANTASY','SCI_FI','MYSTERY','THRILLER','ROMANCE','CLASSICS'])[1 + i %% 6],
+                   a.id,
+                   0
+            FROM generate_series(0, %d) AS i
+            CROSS JOIN (SELECT %s AS w) vocabulary
+            JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM authors) a ON a.n = i / 10
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BookSearchRepository bookSearchRepository;
+
+    private record Timing(String query, String path, long firstPageMillis, long tenthPageMillis) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        long books = Long.getLong("benchmark.books");
+        clear();
+        long started = System.currentTimeMillis();
+        jdbcTemplate.update(SEED_AUTHORS.formatted((books + 9) / 10 - 1));
+        jdbcTemplate.update(SEED_BOOKS.formatted(books - 1, WORDS));
+        jdbcTemplate.execute("VACUUM ANALYZE authors");
+        jdbcTemplate.execute("VACUUM ANALYZE books");
+        logger.info("Seeded {} books in {} ms", books, System.currentTimeMillis() - started);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clear();
+    }
+
+    @Test
+    void shouldRankWithIndexesFasterThanLikeScans() {
+        assertTrue(bookSearchRepository.isTrigramAvailable(), "pg_trgm is required");
+
+        List<Timing> timings = new ArrayList<>();
+        for (String query : QUERIES) {
+            timings.add(time(query, "trigram", offset -> bookSearchRepository.rankedSearch(query, offset, PAGE + 1)));
+        }
+        // the fallback as it runs without trigram indexes, LIKE '%q%' scans both tables
+        jdbcTemplate.execute("DROP INDEX idx_books_title_trgm_gist, idx_authors_full_name_trgm_gist");
+        try {
+            for (String query : QUERIES) {
+                timings.add(time(query, "like scan", offset -> bookSearchRepository.likeSearch(query, offset, PAGE + 1)));
+            }
+        } finally {
+            bookSearchRepository.prepareIndexes();
+        }
+
+        for (Timing timing : timings) {
+            logger.info("{} '{}': page 1 {} ms, page 10 {} ms", timing.path(), timing.query(), timing.firstPageMillis(),
+                    timing.tenthPageMillis());
+        }
+        Timing rankedRare = timings.get(0);
+        Timing likeRare = timings.get(QUERIES.size());
+        assertTrue(rankedRare.firstPageMillis() < likeRare.firstPageMillis(),
+                "a rare title fragment must be found through the index");
+    }
+
+    // Median of a few runs for the first and the tenth page, after as many warm-up runs
+    // (the driver switches to a server-side prepared statement on the fifth execution)
+    private Timing time(String query, String path, LongFunction<List<UUID>> search) {
+        return new Timing(query, path, median(() -> search.apply(0)), median(() -> search.apply(9L * PAGE)));
+    }
+
+    private static long median(Supplier<List<UUID>> search) {
+        for (int i = 0; i < RUNS; i++) {
+            search.get();
+        }
+        List<Long> millis = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            long started = System.nanoTime();
+            search.get();
+            millis.add((System.nanoTime() - started) / 1_000_000);
+        }
+        millis.sort(null);
+        return millis.get(RUNS / 2);
+    }
+
+    private void clear() {
+        jdbcTemplate.execute("TRUNCATE books, authors");
+    }
+
+}
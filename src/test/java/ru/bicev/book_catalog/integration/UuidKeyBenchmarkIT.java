@@ -0,0 +1,95 @@
+package ru.bicev.book_catalog.integration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import ru.bicev.book_catalog.util.UuidV7;
+
+// Insert throughput and primary key index size with random (v4) and time-ordered (v7) ids.
+// Run on demand against Postgres, e.g.
+// SPRING_DATASOURCE_URL=jdbc:postgresql://... mvn verify -DskipITs=false -Dit.test=UuidKeyBenchmarkIT -Dbenchmark.rows=10000000
+// Index sizes are only measured on Postgres
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark.rows", matches = "[0-9]+")
+public class UuidKeyBenchmarkIT {
+
+    private static final Logger logger = LoggerFactory.getLogger(UuidKeyBenchmarkIT.class);
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private record Result(String name, long rows, long millis, long indexBytes) {
+
+        private long rowsPerSecond() {
+            return rows * 1000 / Math.max(1, millis);
+        }
+
+    }
+
+    @Test
+    void shouldCompareRandomAndTimeOrderedKeys() {
+        long rows = Long.getLong("benchmark.rows");
+
+        Result v4 = run("uuid_bench_v4", UUID::randomUUID, rows);
+        Result v7 = run("uuid_bench_v7", UuidV7::generate, rows);
+
+        for (Result result : List.of(v4, v7)) {
+            logger.info("{}: {} rows in {} ms, {} rows/s, primary key {} MB", result.name(), result.rows(),
+                    result.millis(), result.rowsPerSecond(), result.indexBytes() < 0 ? "n/a" : result.indexBytes() >> 20);
+        }
+        if (v4.indexBytes() >= 0) {
+            assertTrue(v7.indexBytes() <= v4.indexBytes(), "time-ordered keys must not bloat the index");
+        }
+    }
+
+    private Result run(String table, Supplier<UUID> ids, long rows) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("CREATE TABLE " + table + " (id uuid PRIMARY KEY, title varchar(255) NOT NULL)");
+        try {
+            long started = System.currentTimeMillis();
+            List<UUID> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (long i = 0; i < rows; i++) {
+                chunk.add(ids.get());
+                if (chunk.size() == CHUNK_SIZE || i == rows - 1) {
+                    jdbcTemplate.batchUpdate("INSERT INTO " + table + " (id, title) VALUES (?, ?)", chunk,
+                            BATCH_SIZE, (statement, id) -> {
+                                statement.setObject(1, id);
+                                statement.setString(2, "Benchmark book");
+                            });
+                    chunk.clear();
+                }
+            }
+            long millis = System.currentTimeMillis() - started;
+            return new Result(table, rows, millis, indexBytes(table + "_pkey"));
+        } finally {
+            jdbcTemplate.execute("DROP TABLE " + table);
+        }
+    }
+
+    private long indexBytes(String index) {
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            return -1;
+        }
+        return jdbcTemplate.queryForObject("SELECT pg_relation_size(?::regclass)", Long.class, index);
+    }
+
+}
@@ -4,6 +4,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -17,6 +21,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -27,21 +33,30 @@ import ru.bicev.book_catalog.dto.AuthorRequest;
 import ru.bicev.book_catalog.dto.PagedResponse;
 import ru.bicev.book_catalog.entity.Author;
 import ru.bicev.book_catalog.exception.AuthorNotFoundException;
+import ru.bicev.book_catalog.exception.PreconditionFailedException;
 import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.VersionedAuthor;
 import ru.bicev.book_catalog.service.AuthorService;
+import ru.bicev.book_catalog.service.PageCounter;
+import ru.bicev.book_catalog.util.AuthorMapper;
+import ru.bicev.book_catalog.util.CountMode;
 
 public class AuthorServiceTest {
 
     @Mock
     private AuthorRepository authorRepository;
 
+    @Mock
+    private PageCounter pageCounter;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private AuthorService authorService;
 
     private AuthorRequest request;
     private AuthorRequest updateReq;
     private Author entity;
-    private Author updated;
     private UUID authorId;
 
     @BeforeEach
@@ -51,8 +66,6 @@ public class AuthorServiceTest {
         request = new AuthorRequest("Leo", "Tolstoy", 1828, "Russia");
         updateReq = new AuthorRequest("Updated name", "Updatedtolstoy", 1830, "Russian Empire");
         entity = new Author(UUID.fromString("123e4567-e89b-12d3-a456-426655440000"), "Leo", "Tolstoy", 1828, "Russia");
-        updated = new Author(UUID.fromString("123e4567-e89b-12d3-a456-426655440000"), "Updated name", "Updatedtolstoy",
-                1830, "Russian Empire");
     }
 
     @Test
@@ -72,7 +85,7 @@ public class AuthorServiceTest {
 
     @Test
     void getAuthorByIdSuccess() {
-        when(authorRepository.findById(authorId)).thenReturn(Optional.of(entity));
+        when(authorRepository.findDtoById(authorId)).thenReturn(Optional.of(AuthorMapper.toDto(entity)));
 
         AuthorDto found = authorService.findAuthorById(authorId);
 
@@ -82,17 +95,17 @@ public class AuthorServiceTest {
         assertEquals(entity.getBirthYear(), found.birthYear());
         assertEquals(entity.getCountry(), found.country());
 
-        verify(authorRepository, times(1)).findById(authorId);
+        verify(authorRepository, times(1)).findDtoById(authorId);
     }
 
     @Test
     void getAllAuthorSuccess() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Author> page = new PageImpl<>(List.of(entity));
+        Page<AuthorDto> page = new PageImpl<>(List.of(AuthorMapper.toDto(entity)));
 
-        when(authorRepository.findAll(pageable)).thenReturn(page);
+        when(authorRepository.findDtoPage(pageable)).thenReturn(page);
 
-        PagedResponse<AuthorDto> authors = authorService.findAll(pageable);
+        PagedResponse<AuthorDto> authors = authorService.findAll(pageable, CountMode.EXACT);
 
         assertEquals(1, authors.content().size());
         assertEquals(entity.getFirstName(), authors.content().get(0).firstName());
@@ -100,21 +113,23 @@ public class AuthorServiceTest {
         assertEquals(pageable.getPageNumber(), authors.page());
         assertEquals(page.getTotalPages(), authors.totalPages());
 
-        verify(authorRepository, times(1)).findAll(pageable);
+        verify(authorRepository, times(1)).findDtoPage(pageable);
 
     }
 
     @Test
     void getAuthorByIdThrowsNotFound() {
-        when(authorRepository.findById(authorId)).thenReturn(Optional.empty());
+        when(authorRepository.findDtoById(authorId)).thenReturn(Optional.empty());
 
         assertThrows(AuthorNotFoundException.class, () -> authorService.findAuthorById(authorId));
     }
 
     @Test
     void updateAuthorSuccess() {
-        when(authorRepository.findById(authorId)).thenReturn(Optional.of(entity));
-        when(authorRepository.save(any())).thenReturn(updated);
+        when(authorRepository.findVersionedById(authorId))
+                .thenReturn(Optional.of(new VersionedAuthor(AuthorMapper.toDto(entity), 2)));
+        when(authorRepository.updateIfVersion(eq(authorId), eq(2L), any(), any(), anyInt(), any(),
+                eq("updated name updatedtolstoy"))).thenReturn(1);
 
         AuthorDto updatedEntity = authorService.updateAuthor(authorId, updateReq);
 
@@ -124,16 +139,43 @@ public class AuthorServiceTest {
         assertEquals(updateReq.birthYear(), updatedEntity.birthYear());
         assertEquals(updateReq.country(), updatedEntity.country());
 
-        verify(authorRepository, times(1)).save(any());
+        verify(authorRepository, never()).save(any());
     }
 
     @Test
     void updateAuthorThrowsNotFoundException() {
-        when(authorRepository.findById(authorId)).thenReturn(Optional.empty());
+        when(authorRepository.findVersionedById(authorId)).thenReturn(Optional.empty());
 
         assertThrows(AuthorNotFoundException.class, () -> authorService.updateAuthor(authorId, request));
     }
 
+    @Test
+    void updateAuthorAcceptsMatchingIfMatch() {
+        when(authorRepository.findVersionedById(authorId))
+                .thenReturn(Optional.of(new VersionedAuthor(AuthorMapper.toDto(entity), 2)));
+        when(authorRepository.updateIfVersion(eq(authorId), eq(2L), any(), any(), anyInt(), any(), any()))
+                .thenReturn(1);
+
+        authorService.updateAuthor(authorId, updateReq, "W/\"1\", \"2\"");
+
+        assertThrows(PreconditionFailedException.class,
+                () -> authorService.updateAuthor(authorId, updateReq, "W/\"2\""));
+    }
+
+    @Test
+    void updateAuthorFailsFastAfterConcurrentChange() {
+        when(authorRepository.findVersionedById(authorId))
+                .thenReturn(Optional.of(new VersionedAuthor(AuthorMapper.toDto(entity), 2)));
+        when(authorRepository.updateIfVersion(eq(authorId), eq(2L), any(), any(), anyInt(), any(), any()))
+                .thenReturn(0);
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> authorService.updateAuthor(authorId, updateReq));
+        assertThrows(PreconditionFailedException.class,
+                () -> authorService.updateAuthor(authorId, updateReq, "\"2\""));
+        verify(authorRepository, times(2)).updateIfVersion(any(), anyLong(), any(), any(), anyInt(), any(), any());
+    }
+
     @Test
     void deleteAuthorSuccess() {
         when(authorRepository.existsById(authorId)).thenReturn(true);
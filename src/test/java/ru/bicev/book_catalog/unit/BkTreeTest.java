@@ -0,0 +1,73 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.search.BkTree;
+
+public class BkTreeTest {
+
+    @Test
+    void shouldCalculateLevenshteinDistance() {
+        assertEquals(0, BkTree.distance("hobbit", "hobbit"));
+        assertEquals(1, BkTree.distance("hobbit", "hobit"));
+        assertEquals(2, BkTree.distance("fellowship", "felowshp"));
+        assertEquals(3, BkTree.distance("kitten", "sitting"));
+        assertEquals(5, BkTree.distance("", "peace"));
+    }
+
+    @Test
+    void shouldNotAddDuplicates() {
+        BkTree tree = new BkTree();
+
+        assertTrue(tree.add("war"));
+        assertFalse(tree.add("war"));
+        assertTrue(tree.add("peace"));
+        assertEquals(2, tree.size());
+    }
+
+    @Test
+    void shouldFindSameWordsAsFullScan() {
+        Random random = new Random(42);
+        List<String> words = new ArrayList<>();
+        BkTree tree = new BkTree();
+        for (int i = 0; i < 2000; i++) {
+            String word = randomWord(random);
+            if (tree.add(word)) {
+                words.add(word);
+            }
+        }
+
+        for (int i = 0; i < 50; i++) {
+            String query = randomWord(random);
+            for (int maxDistance = 0; maxDistance <= 2; maxDistance++) {
+                Set<String> expected = new HashSet<>();
+                for (String word : words) {
+                    if (BkTree.distance(query, word) <= maxDistance) {
+                        expected.add(word);
+                    }
+                }
+                assertEquals(expected, new HashSet<>(tree.search(query, maxDistance)));
+            }
+        }
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 3 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(6)));
+        }
+        return word.toString();
+    }
+
+}
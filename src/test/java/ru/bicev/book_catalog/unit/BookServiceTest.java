@@ -4,34 +4,63 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 
+import ru.bicev.book_catalog.cache.BookPageCache;
 import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.BookFacetsDto;
+import ru.bicev.book_catalog.dto.BookFilter;
 import ru.bicev.book_catalog.dto.BookRequest;
 import ru.bicev.book_catalog.dto.PagedResponse;
 import ru.bicev.book_catalog.entity.Author;
 import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.event.BookChangedEvent;
 import ru.bicev.book_catalog.exception.AuthorNotFoundException;
 import ru.bicev.book_catalog.exception.BookNotFoundException;
+import ru.bicev.book_catalog.exception.PreconditionFailedException;
 import ru.bicev.book_catalog.repo.AuthorRepository;
+import ru.bicev.book_catalog.repo.BookFacetRow;
+import ru.bicev.book_catalog.repo.BookProjectionRepository;
 import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.repo.BookRow;
+import ru.bicev.book_catalog.repo.BookSearchRepository;
+import ru.bicev.book_catalog.repo.BookVersion;
+import ru.bicev.book_catalog.repo.VersionedBook;
+import ru.bicev.book_catalog.search.FuzzyTitleIndex;
+import ru.bicev.book_catalog.service.AuthorService;
+import ru.bicev.book_catalog.service.BookRows;
 import ru.bicev.book_catalog.service.BookService;
+import ru.bicev.book_catalog.service.FacetCounter;
+import ru.bicev.book_catalog.service.PageCounter;
+import ru.bicev.book_catalog.util.AuthorMapper;
+import ru.bicev.book_catalog.util.BookMapper;
+import ru.bicev.book_catalog.util.CountMode;
 import ru.bicev.book_catalog.util.Genre;
 
 public class BookServiceTest {
@@ -40,6 +69,25 @@ public class BookServiceTest {
     private AuthorRepository authorRepository;
     @Mock
     private BookRepository bookRepository;
+    @Mock
+    private BookRows bookRows;
+    @Mock
+    private AuthorService authorService;
+
+    @Mock
+    private BookSearchRepository bookSearchRepository;
+    @Mock
+    private BookProjectionRepository bookProjectionRepository;
+    @Mock
+    private PageCounter pageCounter;
+    @Mock
+    private BookPageCache bookPageCache;
+    @Mock
+    private FacetCounter facetCounter;
+    @Mock
+    private FuzzyTitleIndex fuzzyTitleIndex;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private BookService bookService;
@@ -59,6 +107,8 @@ public class BookServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(bookPageCache.get(any(), anyBoolean(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(4).get());
         authId1 = UUID.fromString("123e4567-e89b-12d3-a456-426655440000");
         authId2 = UUID.fromString("124e4567-e89b-12d3-a456-426655440000");
         bookId1 = UUID.fromString("100e4567-e89b-12d3-a456-426655440000");
@@ -92,6 +142,7 @@ public class BookServiceTest {
 
         verify(authorRepository, times(1)).findById(authId1);
         verify(bookRepository, times(1)).save(any());
+        verify(eventPublisher, times(1)).publishEvent(any(BookChangedEvent.class));
     }
 
     @Test
@@ -104,8 +155,9 @@ public class BookServiceTest {
 
     @Test
     void getBookByIdSuccess() {
-        when(bookRepository.findById(bookId1))
-                .thenReturn(Optional.of(entity1));
+        when(bookRows.findBookRow(bookId1))
+                .thenReturn(new BookRow(bookId1, "War and Peace", 1890, Genre.CLASSICS, authId1, 0));
+        when(authorService.findAuthorById(authId1)).thenReturn(AuthorMapper.toDto(author1));
 
         BookDto found = bookService.findBookById(bookId1);
 
@@ -113,38 +165,84 @@ public class BookServiceTest {
         assertEquals(entity1.getTitle(), found.title());
         assertEquals(entity1.getGenre(), found.genre());
         assertEquals(entity1.getAuthor().getId(), found.author().id());
+        assertEquals("Tolstoy", found.author().lastName());
 
-        verify(bookRepository, times(1)).findById(bookId1);
-
+        verify(bookRows, times(1)).findBookRow(bookId1);
+        verify(bookRepository, never()).findById(any());
     }
 
     @Test
     void getBookByIdThrowsNotFound() {
-        when(bookRepository.findById(bookId3)).thenReturn(Optional.empty());
+        when(bookRows.findBookRow(bookId3)).thenThrow(new BookNotFoundException("Book not found"));
 
         assertThrows(BookNotFoundException.class, () -> bookService.findBookById(bookId3));
     }
 
+    @Test
+    void getBookVersionTakesCachedAuthorVersion() {
+        when(bookRows.findBookRow(bookId1))
+                .thenReturn(new BookRow(bookId1, "War and Peace", 1890, Genre.CLASSICS, authId1, 2));
+        when(authorService.findAuthorVersion(authId1)).thenReturn(5L);
+
+        assertEquals(new BookVersion(2, authId1, 5L), bookService.findBookVersion(bookId1));
+        verify(authorRepository, never()).findDtoById(any());
+    }
+
     @Test
     void updateBookSuccess() {
-        when(bookRepository.findById(bookId1)).thenReturn(Optional.of(entity1));
-        when(authorRepository.findById(authId1)).thenReturn(Optional.of(author1));
+        when(bookRepository.findVersionedById(bookId1)).thenReturn(Optional.of(versioned(entity2, 3)));
+        when(bookRepository.updateIfVersion(eq(bookId1), eq(3L), any(), anyInt(), any(), any())).thenReturn(1);
 
         BookDto updated = bookService.updateBook(bookId1, request);
         assertEquals(entity1.getId(), updated.id());
         assertEquals(entity1.getTitle(), updated.title());
         assertEquals(entity1.getAuthor().getId(), updated.author().id());
 
-        verify(bookRepository, times(1)).save(any());
+        verify(bookRepository, never()).save(any());
+        verify(authorRepository, never()).findDtoById(any());
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
     }
 
     @Test
     void updateBookThrowsNotFound() {
-        when(bookRepository.findById(bookId1)).thenReturn(Optional.empty());
+        when(bookRepository.findVersionedById(bookId1)).thenReturn(Optional.empty());
 
         assertThrows(BookNotFoundException.class, () -> bookService.updateBook(bookId1, request));
     }
 
+    @Test
+    void updateBookFailsFastAfterConcurrentChangeWithoutIfMatch() {
+        when(bookRepository.findVersionedById(bookId1)).thenReturn(Optional.of(versioned(entity1, 3)));
+        when(bookRepository.updateIfVersion(eq(bookId1), eq(3L), any(), anyInt(), any(), any())).thenReturn(0);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> bookService.updateBook(bookId1, request));
+        verify(bookRepository, times(1)).findVersionedById(bookId1);
+        verify(bookRepository, times(1)).updateIfVersion(any(), anyLong(), any(), anyInt(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updateBookThrowsPreconditionFailedForStaleIfMatch() {
+        when(bookRepository.findVersionedById(bookId1)).thenReturn(Optional.of(versioned(entity1, 4)));
+
+        assertThrows(PreconditionFailedException.class,
+                () -> bookService.updateBook(bookId1, request, "\"3-0\""));
+        verify(bookRepository, never()).updateIfVersion(any(), anyLong(), any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void updateBookThrowsPreconditionFailedWhenChangedAfterRead() {
+        when(bookRepository.findVersionedById(bookId1)).thenReturn(Optional.of(versioned(entity1, 3)));
+        when(bookRepository.updateIfVersion(any(), anyLong(), any(), anyInt(), any(), any())).thenReturn(0);
+
+        assertThrows(PreconditionFailedException.class,
+                () -> bookService.updateBook(bookId1, request, "\"3-0\""));
+    }
+
+    private static VersionedBook versioned(Book book, long version) {
+        return new VersionedBook(BookMapper.toDto(book), new BookVersion(version, book.getAuthor().getId(), 0L));
+    }
+
     @Test
     void deleteBookSuccess() {
         when(bookRepository.findById(bookId1)).thenReturn(Optional.of(entity1));
@@ -164,11 +262,10 @@ public class BookServiceTest {
     @Test
     void findAllBooksSuccess() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Book> page = new PageImpl<>(List.of(entity1, entity2, entity3));
+        when(bookProjectionRepository.findAll(anySpecification(), eq(pageable)))
+                .thenReturn(toDtos(entity1, entity2, entity3));
 
-        when(bookRepository.findAll(pageable)).thenReturn(page);
-
-        PagedResponse<BookDto> result = bookService.findBooks(null, null, null, null, null, null, null, pageable);
+        PagedResponse<BookDto> result = bookService.findBooks(BookFilter.empty(), pageable, CountMode.EXACT);
 
         assertEquals(3, result.content().size());
         assertEquals(entity1.getTitle(), result.content().get(0).title());
@@ -178,18 +275,18 @@ public class BookServiceTest {
         assertTrue(result.last());
         assertEquals(1, result.totalPages());
 
-        verify(bookRepository, times(1)).findAll(pageable);
+        verify(bookProjectionRepository, times(1)).findAll(anySpecification(), eq(pageable));
     }
 
     @Test
-    void findBooksByAuthorIdSuccess() {
-        // Other paramethrized findBy* methods are same, only paramethers change
+    void findBooksByCombinedFiltersSuccess() {
+        // All filters are combined into one specification, so the repository is called once
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Book> page = new PageImpl<>(List.of(entity1, entity2));
+        BookFilter filter = new BookFilter(authId1, "tolstoy", null, 1880, 1900, null, "a");
 
-        when(bookRepository.findByAuthorId(authId1, pageable)).thenReturn(page);
+        when(bookProjectionRepository.findAll(anySpecification(), eq(pageable))).thenReturn(toDtos(entity1, entity2));
 
-        PagedResponse<BookDto> result = bookService.findBooks(authId1, null, null, null, null, null, null, pageable);
+        PagedResponse<BookDto> result = bookService.findBooks(filter, pageable, CountMode.EXACT);
 
         assertEquals(2, result.content().size());
         assertEquals(entity1.getTitle(), result.content().get(0).title());
@@ -198,7 +295,67 @@ public class BookServiceTest {
         assertTrue(result.last());
         assertEquals(1, result.totalPages());
 
-        verify(bookRepository, times(1)).findByAuthorId(authId1, pageable);
+        verify(bookProjectionRepository, times(1)).findAll(anySpecification(), eq(pageable));
+    }
+
+    @Test
+    void findBooksByFuzzyTitleSuccess() {
+        Pageable pageable = PageRequest.of(0, 10);
+        BookFilter filter = new BookFilter(null, null, null, null, null, null, "war and pease");
+        when(fuzzyTitleIndex.findTitles("war and pease")).thenReturn(Set.of("war and peace"));
+        when(bookProjectionRepository.findAll(anySpecification(), eq(pageable))).thenReturn(toDtos(entity1));
+
+        PagedResponse<BookDto> result = bookService.findBooks(filter, true, pageable, CountMode.EXACT);
+
+        assertEquals(1, result.content().size());
+        assertEquals(entity1.getTitle(), result.content().get(0).title());
+        verify(fuzzyTitleIndex, times(1)).findTitles("war and pease");
+    }
+
+    @Test
+    void findBooksIgnoresFuzzyWithoutTitle() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(bookProjectionRepository.findAll(anySpecification(), eq(pageable))).thenReturn(toDtos(entity1));
+
+        bookService.findBooks(BookFilter.empty(), true, pageable, CountMode.EXACT);
+
+        verify(fuzzyTitleIndex, never()).findTitles(any());
+    }
+
+    @Test
+    void getFacetsFromCountersWithoutTitle() {
+        BookFilter filter = new BookFilter(null, null, null, 1880, null, null, null);
+        BookFacetsDto facets = new BookFacetsDto(0, Map.of(), Map.of(), Map.of());
+        when(facetCounter.count(filter)).thenReturn(facets);
+
+        assertEquals(facets, bookService.getFacets(filter));
+
+        verify(bookRepository, never()).findFacetRowsByTitleLike(any());
+    }
+
+    @Test
+    void getFacetsByTitleFromDatabase() {
+        BookFilter filter = new BookFilter(null, null, null, null, null, null, "100%");
+        when(bookRepository.findFacetRowsByTitleLike("%100\\%%")).thenReturn(List.of(
+                new BookFacetRow(Genre.CLASSICS, 1890, authId1, "Russia", "leo tolstoy", 2),
+                new BookFacetRow(Genre.FANTASY, 1910, authId2, "UK", "john tolkien", 1)));
+
+        BookFacetsDto facets = bookService.getFacets(filter);
+
+        assertEquals(3, facets.total());
+        assertEquals(Map.of(Genre.CLASSICS, 2L, Genre.FANTASY, 1L), facets.genres());
+        assertEquals(Map.of(1890, 2L, 1910, 1L), facets.decades());
+        assertEquals(Map.of("Russia", 2L, "UK", 1L), facets.countries());
+        verify(facetCounter, never()).count(any());
+    }
+
+    private static List<BookDto> toDtos(Book... books) {
+        return Arrays.stream(books).map(BookMapper::toDto).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Specification<Book> anySpecification() {
+        return any(Specification.class);
     }
 
 }
@@ -0,0 +1,68 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.SearchHitDto;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.ChangeType;
+import ru.bicev.book_catalog.search.BookScanner;
+import ru.bicev.book_catalog.search.CatalogSearchService;
+import ru.bicev.book_catalog.util.BookMapper;
+import ru.bicev.book_catalog.util.Genre;
+
+public class CatalogSearchServiceTest {
+
+    private final Author lem = new Author(UUID.randomUUID(), "Stanislaw", "Lem", 1921, "Poland");
+    private final BookScanner bookScanner = mock(BookScanner.class);
+    private final CatalogSearchService searchService = new CatalogSearchService(bookScanner);
+    private BookDto solaris;
+
+    @BeforeEach
+    void setUp() {
+        solaris = BookMapper.toDto(new Book(UUID.randomUUID(), "Solaris", 1961, Genre.SCI_FI, lem));
+        searchService.onBookChanged(new BookChangedEvent(ChangeType.CREATED, solaris.id(), null, solaris));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldKeepServingOldIndexWhileResyncing() {
+        Book fiasco = new Book(UUID.randomUUID(), "Fiasco", 1986, Genre.SCI_FI, lem);
+        BookDto eden = BookMapper.toDto(new Book(UUID.randomUUID(), "Eden", 1959, Genre.SCI_FI, lem));
+        doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(new Book(solaris.id(), "Solaris", 1961, Genre.SCI_FI, lem));
+            assertEquals(List.of(solaris), titles("solaris"));
+
+            // committed while the table is being scanned, after the scan passed its row
+            searchService.onBookChanged(new BookChangedEvent(ChangeType.CREATED, eden.id(), null, eden));
+            consumer.accept(fiasco);
+            assertEquals(List.of(), titles("fiasco"));
+            return null;
+        }).when(bookScanner).forEach(any(Consumer.class));
+
+        searchService.onResync(new CatalogResyncEvent());
+
+        assertEquals(List.of(solaris), titles("solaris"));
+        assertEquals(List.of(eden), titles("eden"));
+        assertEquals(List.of(BookMapper.toDto(fiasco)), titles("fiasco"));
+    }
+
+    private List<BookDto> titles(String query) {
+        return searchService.search(query, 10).stream().map(SearchHitDto::book).toList();
+    }
+
+}
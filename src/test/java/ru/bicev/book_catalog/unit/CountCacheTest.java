@@ -0,0 +1,43 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.cache.CountCache;
+
+public class CountCacheTest {
+
+    private final CountCache countCache = new CountCache(100);
+
+    @Test
+    void shouldReuseCountUntilEvicted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(5, countCache.get(CountCache.BOOKS, "all", () -> calls.incrementAndGet() * 5L));
+        assertEquals(5, countCache.get(CountCache.BOOKS, "all", () -> calls.incrementAndGet() * 5L));
+        assertEquals(1, calls.get());
+
+        countCache.evict(CountCache.AUTHORS);
+        assertEquals(5, countCache.get(CountCache.BOOKS, "all", () -> calls.incrementAndGet() * 5L));
+
+        countCache.evict(CountCache.BOOKS);
+        assertEquals(10, countCache.get(CountCache.BOOKS, "all", () -> calls.incrementAndGet() * 5L));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void shouldNotStoreCountThatRacedWithEviction() {
+        // the write commits and evicts while the count is still running
+        long stale = countCache.get(CountCache.BOOKS, "all", () -> {
+            countCache.evict(CountCache.BOOKS);
+            return 5;
+        });
+
+        assertEquals(5, stale);
+        assertEquals(6, countCache.get(CountCache.BOOKS, "all", () -> 6));
+    }
+
+}
@@ -0,0 +1,42 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.util.CsvLine;
+
+public class CsvLineTest {
+
+    @Test
+    void shouldSplitPlainFields() {
+        assertEquals(List.of("Dune", "1965", "SCI_FI", ""), CsvLine.split("Dune,1965,SCI_FI,"));
+    }
+
+    @Test
+    void shouldKeepCommasAndQuotesInsideQuotedFields() {
+        assertEquals(List.of("Stories, \"collected\"", "1999"),
+                CsvLine.split("\"Stories, \"\"collected\"\"\",1999"));
+    }
+
+    @Test
+    void shouldJoinFieldsBackIntoSplittableLine() {
+        List<String> fields = List.of("Stories, \"collected\"", "1999", "plain");
+
+        String line = CsvLine.join(fields);
+
+        assertEquals("\"Stories, \"\"collected\"\"\",1999,plain", line);
+        assertEquals(fields, CsvLine.split(line));
+        assertEquals("a,,b", CsvLine.join(Arrays.asList("a", null, "b")));
+    }
+
+    @Test
+    void shouldRejectUnterminatedQuote() {
+        assertThrows(IllegalArgumentException.class, () -> CsvLine.split("\"Dune,1965"));
+    }
+
+}
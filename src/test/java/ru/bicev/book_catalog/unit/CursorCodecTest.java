@@ -0,0 +1,60 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.exception.InvalidCursorException;
+import ru.bicev.book_catalog.util.CursorCodec;
+import ru.bicev.book_catalog.util.Genre;
+
+public class CursorCodecTest {
+
+    private final UUID id = UUID.fromString("100e4567-e89b-12d3-a456-426655440000");
+
+    @Test
+    void shouldRoundTripTypedKeys() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("title", "War & Peace = 1");
+        keys.put("releaseYear", 1869);
+        keys.put("genre", Genre.CLASSICS);
+        keys.put("id", id);
+
+        String cursor = CursorCodec.encode(ScrollPosition.forward(keys));
+        KeysetScrollPosition decoded = CursorCodec.decode(cursor, Sort.by("title", "releaseYear", "genre"), Book.class);
+
+        assertEquals(keys, decoded.getKeys());
+    }
+
+    @Test
+    void shouldStartFromBeginningWhenCursorIsEmpty() {
+        KeysetScrollPosition decoded = CursorCodec.decode("", Sort.by("title"), Book.class);
+
+        assertTrue(decoded.isInitial());
+    }
+
+    @Test
+    void shouldRejectCursorForAnotherSort() {
+        String cursor = CursorCodec.encode(ScrollPosition.forward(Map.of("title", "Dune", "id", id)));
+
+        assertThrows(InvalidCursorException.class, () -> CursorCodec.decode(cursor, Sort.by("releaseYear"), Book.class));
+    }
+
+    @Test
+    void shouldRejectGarbage() {
+        assertThrows(InvalidCursorException.class, () -> CursorCodec.decode("%%%", Sort.by("title"), Book.class));
+        assertThrows(InvalidCursorException.class,
+                () -> CursorCodec.decode("dW5rbm93bj0x", Sort.by("title"), Book.class));
+    }
+
+}
@@ -0,0 +1,157 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.dto.BookFacetsDto;
+import ru.bicev.book_catalog.dto.BookFilter;
+import ru.bicev.book_catalog.event.AuthorChangedEvent;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.ChangeType;
+import ru.bicev.book_catalog.repo.BookFacetRow;
+import ru.bicev.book_catalog.repo.BookRepository;
+import ru.bicev.book_catalog.service.FacetCounter;
+import ru.bicev.book_catalog.util.Genre;
+
+public class FacetCounterTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private FacetCounter facetCounter;
+
+    private AuthorDto tolstoy;
+    private AuthorDto tolkien;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        tolstoy = new AuthorDto(UUID.randomUUID(), "Leo", "Tolstoy", 1828, "Russia");
+        tolkien = new AuthorDto(UUID.randomUUID(), "John", "Tolkien", 1892, "UK");
+        when(bookRepository.findFacetRows()).thenReturn(List.of(
+                new BookFacetRow(Genre.CLASSICS, 1869, tolstoy.id(), "Russia", "leo tolstoy", 1),
+                new BookFacetRow(Genre.ROMANCE, 1877, tolstoy.id(), "Russia", "leo tolstoy", 1),
+                new BookFacetRow(Genre.FANTASY, 1937, tolkien.id(), "UK", "john tolkien", 1)));
+        facetCounter.load();
+    }
+
+    @Test
+    void shouldCountLoadedRows() {
+        BookFacetsDto facets = facetCounter.count(BookFilter.empty());
+
+        assertEquals(3, facets.total());
+        assertEquals(Map.of(Genre.CLASSICS, 1L, Genre.ROMANCE, 1L, Genre.FANTASY, 1L), facets.genres());
+        assertEquals(Map.of(1860, 1L, 1870, 1L, 1930, 1L), facets.decades());
+        assertEquals(Map.of("Russia", 2L, "UK", 1L), facets.countries());
+    }
+
+    @Test
+    void shouldApplyFilters() {
+        BookFacetsDto facets = facetCounter.count(new BookFilter(null, "TOLST", null, 1870, null, null, null));
+
+        assertEquals(1, facets.total());
+        assertEquals(Map.of(Genre.ROMANCE, 1L), facets.genres());
+        assertThrows(IllegalArgumentException.class,
+                () -> facetCounter.count(new BookFilter(null, null, null, null, null, null, "war")));
+    }
+
+    @Test
+    void shouldMoveCountryTotalsWithAuthor() {
+        AuthorDto movedTolstoy = new AuthorDto(tolstoy.id(), "Leo", "Tolstoy", 1828, "Russian Empire");
+
+        facetCounter.onAuthorChanged(new AuthorChangedEvent(ChangeType.UPDATED, tolstoy.id(), tolstoy, movedTolstoy));
+
+        assertEquals(Map.of("Russian Empire", 2L, "UK", 1L), facetCounter.count(BookFilter.empty()).countries());
+        assertEquals(Map.of("Russian Empire", 1L),
+                facetCounter.count(new BookFilter(null, null, null, null, null, Genre.CLASSICS, null)).countries());
+    }
+
+    @Test
+    void shouldMatchRecomputationAfterChanges() {
+        UUID hobbitId = UUID.randomUUID();
+        BookDto hobbit = new BookDto(hobbitId, "The Hobbit", 1937, Genre.FANTASY, tolkien);
+        BookDto movedHobbit = new BookDto(hobbitId, "The Hobbit", 1951, Genre.THRILLER, tolkien);
+        BookDto silmarillion = new BookDto(UUID.randomUUID(), "The Silmarillion", 1977, Genre.FANTASY, tolkien);
+        AuthorDto movedTolstoy = new AuthorDto(tolstoy.id(), "Leo", "Tolstoy", 1828, "Russian Empire");
+
+        facetCounter.onBookChanged(new BookChangedEvent(ChangeType.CREATED, silmarillion.id(), null, silmarillion));
+        facetCounter.onBookChanged(new BookChangedEvent(ChangeType.UPDATED, hobbitId, hobbit, movedHobbit));
+        facetCounter.onBookChanged(new BookChangedEvent(ChangeType.DELETED, silmarillion.id(), silmarillion, null));
+        facetCounter.onAuthorChanged(new AuthorChangedEvent(ChangeType.UPDATED, tolstoy.id(), tolstoy, movedTolstoy));
+
+        List<BookFacetRow> recomputed = List.of(
+                new BookFacetRow(Genre.CLASSICS, 1869, tolstoy.id(), "Russian Empire", "leo tolstoy", 1),
+                new BookFacetRow(Genre.ROMANCE, 1877, tolstoy.id(), "Russian Empire", "leo tolstoy", 1),
+                new BookFacetRow(Genre.THRILLER, 1951, tolkien.id(), "UK", "john tolkien", 1));
+        for (BookFilter filter : List.of(BookFilter.empty(),
+                new BookFilter(tolkien.id(), null, null, null, null, null, null),
+                new BookFilter(null, null, null, 1900, null, null, null),
+                new BookFilter(null, null, null, null, null, Genre.FANTASY, null),
+                new BookFilter(null, null, null, null, 1900, null, null),
+                new BookFilter(null, null, 1877, null, null, null, null),
+                new BookFilter(null, "tol", null, 1850, 1960, null, null),
+                new BookFilter(tolstoy.id(), null, null, null, null, Genre.ROMANCE, null),
+                new BookFilter(null, null, null, 1990, 1900, null, null))) {
+            assertEquals(FacetCounter.aggregate(recomputed, filter), facetCounter.count(filter));
+        }
+    }
+
+    @Test
+    void shouldReloadAgainWhenChangeCommitsDuringLoad() {
+        List<BookFacetRow> before = List.of(
+                new BookFacetRow(Genre.CLASSICS, 1869, tolstoy.id(), "Russia", "leo tolstoy", 1));
+        List<BookFacetRow> after = List.of(
+                new BookFacetRow(Genre.CLASSICS, 1869, tolstoy.id(), "Russia", "leo tolstoy", 2));
+        when(bookRepository.findFacetRows()).thenAnswer(invocation -> {
+            // committed on another node while the GROUP BY runs
+            facetCounter.onRemoteChange();
+            return before;
+        }).thenReturn(after);
+
+        facetCounter.onRemoteChange();
+
+        assertEquals(1, facetCounter.count(BookFilter.empty()).total());
+        assertEquals(2, facetCounter.count(BookFilter.empty()).total());
+        assertEquals(2, facetCounter.count(BookFilter.empty()).total());
+        verify(bookRepository, times(3)).findFacetRows();
+    }
+
+    @Test
+    void shouldReloadOnceForConcurrentRequests() throws Exception {
+        facetCounter.onRemoteChange();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<BookFacetsDto>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> facetCounter.count(BookFilter.empty())));
+            }
+            for (Future<BookFacetsDto> result : results) {
+                assertEquals(3, result.get().total());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        verify(bookRepository, times(2)).findFacetRows();
+    }
+
+}
@@ -0,0 +1,80 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.dto.AuthorDto;
+import ru.bicev.book_catalog.dto.BookDto;
+import ru.bicev.book_catalog.entity.Author;
+import ru.bicev.book_catalog.entity.Book;
+import ru.bicev.book_catalog.event.BookChangedEvent;
+import ru.bicev.book_catalog.event.CatalogResyncEvent;
+import ru.bicev.book_catalog.event.ChangeType;
+import ru.bicev.book_catalog.search.BookScanner;
+import ru.bicev.book_catalog.search.FuzzyTitleIndex;
+import ru.bicev.book_catalog.util.Genre;
+
+public class FuzzyTitleIndexTest {
+
+    private final AuthorDto lem = new AuthorDto(UUID.randomUUID(), "Stanislaw", "Lem", 1921, "Poland");
+    private final BookScanner bookScanner = mock(BookScanner.class);
+    private FuzzyTitleIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FuzzyTitleIndex(bookScanner, 2, 2);
+        for (String title : new String[] { "Solarix", "Solaria", "Solaris", "Aolaris", "Fiasco" }) {
+            BookDto book = new BookDto(UUID.randomUUID(), title, 1961, Genre.SCI_FI, lem);
+            index.onBookChanged(new BookChangedEvent(ChangeType.CREATED, book.id(), null, book));
+        }
+    }
+
+    @Test
+    void shouldKeepClosestTitlesWhenCandidatesAreCut() {
+        assertEquals(Set.of("solaris", "aolaris"), index.findTitles("solaris"));
+        assertEquals(Set.of("fiasco"), index.findTitles("fiasko"));
+    }
+
+    @Test
+    void shouldSumDistancesOverQueryWords() {
+        BookDto book = new BookDto(UUID.randomUUID(), "Solarix Fiasco", 1987, Genre.SCI_FI, lem);
+        index.onBookChanged(new BookChangedEvent(ChangeType.CREATED, book.id(), null, book));
+
+        assertEquals(Set.of("solarix fiasco"), index.findTitles("solarix fiasco"));
+        assertEquals(Set.of("solarix fiasco"), index.findTitles("solaris fiasco"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldKeepServingOldWordsWhileResyncing() {
+        Author author = new Author(lem.id(), lem.firstName(), lem.lastName(), lem.birthYear(), lem.country());
+        BookDto eden = new BookDto(UUID.randomUUID(), "Eden", 1959, Genre.SCI_FI, lem);
+        doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(new Book(UUID.randomUUID(), "Fiasco", 1986, Genre.SCI_FI, author));
+            consumer.accept(new Book(UUID.randomUUID(), "Golem", 1981, Genre.SCI_FI, author));
+            assertEquals(Set.of("fiasco"), index.findTitles("fiasko"));
+            assertEquals(Set.of(), index.findTitles("golem"));
+
+            // committed while the table is being scanned
+            index.onBookChanged(new BookChangedEvent(ChangeType.CREATED, eden.id(), null, eden));
+            return null;
+        }).when(bookScanner).forEach(any(Consumer.class));
+
+        index.onResync(new CatalogResyncEvent());
+
+        assertEquals(Set.of("golem"), index.findTitles("golem"));
+        assertEquals(Set.of("eden"), index.findTitles("eden"));
+        assertEquals(Set.of(), index.findTitles("solaris"));
+    }
+
+}
@@ -0,0 +1,66 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.cache.InvalidationMessage;
+
+public class InvalidationMessageTest {
+
+    @Test
+    void shouldParseEncodedMessage() {
+        InvalidationMessage message = new InvalidationMessage(UUID.randomUUID().toString(),
+                InvalidationMessage.Kind.AUTHOR, List.of(UUID.randomUUID().toString()));
+
+        assertEquals(message, InvalidationMessage.parse(message.encode()));
+    }
+
+    @Test
+    void shouldFitMaxIdsIntoNotifyPayload() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < InvalidationMessage.MAX_IDS; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        InvalidationMessage message = new InvalidationMessage(UUID.randomUUID().toString(),
+                InvalidationMessage.Kind.BOOK, ids);
+
+        assertTrue(message.encode().length() < 8000);
+        assertEquals(message, InvalidationMessage.parse(message.encode()));
+    }
+
+    @Test
+    void shouldParseUserMessageWithNumericIds() {
+        InvalidationMessage message = new InvalidationMessage(UUID.randomUUID().toString(),
+                InvalidationMessage.Kind.USER, List.of("42", "7"));
+
+        assertEquals(message, InvalidationMessage.parse(message.encode()));
+    }
+
+    @Test
+    void shouldParseCatalogMessageWithoutIds() {
+        InvalidationMessage message = new InvalidationMessage(UUID.randomUUID().toString(),
+                InvalidationMessage.Kind.CATALOG, List.of());
+
+        assertEquals(message, InvalidationMessage.parse(message.encode()));
+    }
+
+    @Test
+    void shouldIgnoreUnknownPayloads() {
+        assertNull(InvalidationMessage.parse("node:BOOK"));
+        assertNull(InvalidationMessage.parse("node:BOOK:"));
+        assertNull(InvalidationMessage.parse("node:CATALOG:" + UUID.randomUUID()));
+        assertNull(InvalidationMessage.parse("node:USER:" + UUID.randomUUID()));
+        assertNull(InvalidationMessage.parse("node:USER:42,x"));
+        assertNull(InvalidationMessage.parse("node:BOOK:42"));
+        assertNull(InvalidationMessage.parse("node:BOOK:not-a-uuid"));
+        assertNull(InvalidationMessage.parse("node:BOOK:" + UUID.randomUUID() + ",not-a-uuid"));
+    }
+
+}
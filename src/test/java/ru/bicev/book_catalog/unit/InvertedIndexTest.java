@@ -0,0 +1,97 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.search.InvertedIndex;
+import ru.bicev.book_catalog.search.Tokenizer;
+
+public class InvertedIndexTest {
+
+    private InvertedIndex<String, String> index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex<>();
+        index.put("hobbit", "hobbit", Tokenizer.tokenize("The Hobbit John Tolkien FANTASY"));
+        index.put("fellowship", "fellowship", Tokenizer.tokenize("The Fellowship of the Ring John Tolkien FANTASY"));
+        index.put("war", "war", Tokenizer.tokenize("War and Peace Leo Tolstoy CLASSICS"));
+    }
+
+    @Test
+    void shouldTokenizeOnNonLetters() {
+        assertEquals(List.of("sci", "fi", "don", "t", "1984"), Tokenizer.tokenize("SCI_FI: Don't 1984!"));
+    }
+
+    @Test
+    void shouldRankRareTermsHigher() {
+        List<InvertedIndex.Hit<String>> hits = index.search(Tokenizer.tokenize("tolkien hobbit"), 10);
+
+        assertEquals(2, hits.size());
+        assertEquals("hobbit", hits.get(0).payload());
+        assertEquals("fellowship", hits.get(1).payload());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void shouldLimitResults() {
+        assertEquals(1, index.search(Tokenizer.tokenize("fantasy"), 1).size());
+        assertTrue(index.search(Tokenizer.tokenize("unknown"), 10).isEmpty());
+    }
+
+    @Test
+    void shouldSkipRemovedDocuments() {
+        index.put("peace", "peace", Tokenizer.tokenize("Peace Treaty"));
+        index.remove("peace");
+
+        List<InvertedIndex.Hit<String>> hits = index.search(Tokenizer.tokenize("peace"), 10);
+
+        assertEquals(1, hits.size());
+        assertEquals("war", hits.get(0).payload());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void shouldCompactAfterManyRemovals() {
+        for (int i = 0; i < 3000; i++) {
+            index.put("temp" + i, "temp" + i, Tokenizer.tokenize("temporary ring"));
+            index.remove("temp" + i);
+        }
+
+        List<InvertedIndex.Hit<String>> hits = index.search(Tokenizer.tokenize("ring"), 10);
+
+        assertEquals(1, hits.size());
+        assertEquals("fellowship", hits.get(0).payload());
+        assertTrue(index.slotCount() <= 1024 + 3);
+    }
+
+    @Test
+    void shouldReplaceDocumentWithSameKey() {
+        index.put("war", "war", Tokenizer.tokenize("War of the Worlds Herbert Wells SCIENCE_FICTION"));
+
+        assertTrue(index.search(Tokenizer.tokenize("tolstoy"), 10).isEmpty());
+        assertEquals("war", index.search(Tokenizer.tokenize("wells"), 10).get(0).payload());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void shouldKeepMemoryBoundedByLiveDocumentsUnderUpdates() {
+        for (int i = 0; i < 10_000; i++) {
+            index.put("hobbit", "hobbit" + i, Tokenizer.tokenize("The Hobbit John Tolkien FANTASY edition " + i));
+        }
+
+        assertEquals(3, index.size());
+        assertTrue(index.slotCount() <= 1024 + 3, "removed slots must be compacted, was " + index.slotCount());
+        List<InvertedIndex.Hit<String>> hits = index.search(Tokenizer.tokenize("hobbit"), 10);
+        assertEquals(1, hits.size());
+        assertEquals("hobbit9999", hits.get(0).payload());
+        assertEquals("war", index.search(Tokenizer.tokenize("tolstoy"), 10).get(0).payload());
+        assertEquals(2, index.search(Tokenizer.tokenize("tolkien"), 10).size());
+    }
+
+}
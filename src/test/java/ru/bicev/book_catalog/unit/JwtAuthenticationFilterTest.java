@@ -0,0 +1,88 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import jakarta.servlet.FilterChain;
+import ru.bicev.book_catalog.security.auth.CustomUserDetails;
+import ru.bicev.book_catalog.security.auth.TokenVersionCache;
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.jwt.JwtAuthenticationFilter;
+import ru.bicev.book_catalog.security.jwt.JwtUtil;
+import ru.bicev.book_catalog.security.util.Role;
+
+public class JwtAuthenticationFilterTest {
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @Mock
+    private TokenVersionCache tokenVersionCache;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        filter = new JwtAuthenticationFilter(jwtUtil, tokenVersionCache);
+        request = new MockHttpServletRequest("GET", "/api/books");
+        request.addHeader("Authorization", "Bearer token");
+        when(jwtUtil.parseUser("token")).thenReturn(new User(5L, "reader", null, Role.USER, 2));
+    }
+
+    @AfterEach
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void shouldNotVerifyTokenWhenNothingReadsTheContext() throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+        });
+
+        verify(jwtUtil, never()).parseUser("token");
+    }
+
+    @Test
+    void shouldVerifyTokenOnceWhenThePrincipalIsNeeded() throws Exception {
+        when(tokenVersionCache.isCurrent(5L, 2)).thenReturn(true);
+        Authentication[] seen = new Authentication[2];
+        FilterChain chain = (req, res) -> {
+            seen[0] = SecurityContextHolder.getContext().getAuthentication();
+            seen[1] = SecurityContextHolder.getContext().getAuthentication();
+        };
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertEquals(5L, ((CustomUserDetails) seen[0].getPrincipal()).getId());
+        assertEquals(seen[0], seen[1]);
+        verify(jwtUtil, times(1)).parseUser("token");
+    }
+
+    @Test
+    void shouldLeaveRevokedTokensUnauthenticated() throws Exception {
+        when(tokenVersionCache.isCurrent(5L, 2)).thenReturn(false);
+        Authentication[] seen = new Authentication[1];
+
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> seen[0] = SecurityContextHolder.getContext().getAuthentication());
+
+        assertNull(seen[0]);
+    }
+
+}
@@ -0,0 +1,77 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.security.entity.User;
+import ru.bicev.book_catalog.security.jwt.JwtUtil;
+import ru.bicev.book_catalog.security.util.Role;
+
+public class JwtUtilTest {
+
+    private static final String SECRET = "test_secret_key_must_be_long_enough_to_sign_1234";
+
+    private final User user = new User(7L, "reader", "encoded", Role.ADMIN, 3);
+
+    @Test
+    void shouldReadUserFromClaims() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60000, 0);
+
+        User parsed = jwtUtil.parseUser(jwtUtil.generateToken(user));
+
+        assertEquals(7L, parsed.getId());
+        assertEquals("reader", parsed.getUsername());
+        assertEquals(Role.ADMIN, parsed.getRole());
+        assertEquals(3, parsed.getTokenVersion());
+        assertNull(parsed.getPassword());
+    }
+
+    @Test
+    void shouldServeRepeatedTokensFromCacheAsFreshUsers() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60000, 100);
+        String token = jwtUtil.generateToken(user);
+
+        User first = jwtUtil.parseUser(token);
+        User second = jwtUtil.parseUser(token);
+
+        assertEquals(first.getUsername(), second.getUsername());
+        assertEquals(first.getTokenVersion(), second.getTokenVersion());
+        assertNotSame(first, second);
+    }
+
+    @Test
+    void shouldRejectForeignAndMalformedTokens() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60000, 100);
+        JwtUtil foreign = new JwtUtil("another_secret_key_must_be_long_enough_to_sign_12", 60000, 100);
+        String token = jwtUtil.generateToken(user);
+
+        assertNotNull(jwtUtil.parseUser(token));
+        assertNull(foreign.parseUser(token));
+        assertNull(jwtUtil.parseUser("not-a-token"));
+        assertNull(jwtUtil.parseUser(token.substring(0, token.lastIndexOf('.') + 1)));
+    }
+
+    @Test
+    void shouldRejectExpiredTokens() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, -1000, 100);
+
+        assertNull(jwtUtil.parseUser(jwtUtil.generateToken(user)));
+    }
+
+    @Test
+    void shouldDropCachedTokensAtExpiry() throws InterruptedException {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 1000, 100);
+        String token = jwtUtil.generateToken(user);
+        assertNotNull(jwtUtil.parseUser(token));
+
+        // expiration claims have second precision
+        Thread.sleep(2100);
+
+        assertNull(jwtUtil.parseUser(token));
+    }
+
+}
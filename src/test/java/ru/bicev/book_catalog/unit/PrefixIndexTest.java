@@ -0,0 +1,117 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.dto.SuggestionDto;
+import ru.bicev.book_catalog.search.PrefixIndex;
+import ru.bicev.book_catalog.search.SuggestionType;
+
+public class PrefixIndexTest {
+
+    private PrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PrefixIndex();
+        index.add("The Hobbit", SuggestionType.TITLE);
+        index.add("The Silmarillion", SuggestionType.TITLE);
+        index.add("John Tolkien", SuggestionType.AUTHOR);
+        index.add("Leo Tolstoy", SuggestionType.AUTHOR);
+    }
+
+    @Test
+    void shouldMatchBeginningOfAnyWord() {
+        List<SuggestionDto> suggestions = index.suggest("Tol", 10);
+
+        assertEquals(List.of(new SuggestionDto("John Tolkien", SuggestionType.AUTHOR),
+                new SuggestionDto("Leo Tolstoy", SuggestionType.AUTHOR)), suggestions);
+        assertEquals(List.of(new SuggestionDto("The Hobbit", SuggestionType.TITLE)), index.suggest("hob", 10));
+        assertTrue(index.suggest("obbit", 10).isEmpty());
+    }
+
+    @Test
+    void shouldReturnDistinctPhrasesUpToLimit() {
+        index.add("The The", SuggestionType.TITLE);
+
+        List<SuggestionDto> suggestions = index.suggest("the", 10);
+
+        assertEquals(3, suggestions.size());
+        assertEquals(2, index.suggest("the", 2).size());
+        assertTrue(index.suggest("  ", 10).isEmpty());
+    }
+
+    @Test
+    void shouldRankMoreFrequentPhrasesFirst() {
+        index.add("Tolstoy Stories", SuggestionType.TITLE);
+        index.add("Leo Tolstoy", SuggestionType.AUTHOR);
+        index.add("Leo Tolstoy", SuggestionType.AUTHOR);
+        for (int i = 0; i < 20; i++) {
+            index.add("Ta " + i, SuggestionType.TITLE);
+        }
+
+        assertEquals(List.of(new SuggestionDto("Leo Tolstoy", SuggestionType.AUTHOR),
+                new SuggestionDto("John Tolkien", SuggestionType.AUTHOR)), index.suggest("to", 2));
+        assertEquals(new SuggestionDto("Leo Tolstoy", SuggestionType.AUTHOR), index.suggest("t", 1).get(0));
+        assertEquals(3, index.suggest("tol", 10).size());
+    }
+
+    @Test
+    void shouldKeepPhraseUntilLastCopyIsRemoved() {
+        index.add("The Hobbit", SuggestionType.TITLE);
+
+        index.remove("The Hobbit", SuggestionType.TITLE);
+        assertEquals(1, index.suggest("hobbit", 10).size());
+
+        index.remove("The Hobbit", SuggestionType.TITLE);
+        assertTrue(index.suggest("hobbit", 10).isEmpty());
+        assertTrue(index.suggest("the h", 10).isEmpty());
+    }
+
+    @Test
+    void shouldRankShortPrefixesLikeFullScan() {
+        index = new PrefixIndex();
+        Random random = new Random(42);
+        Map<String, Integer> counts = new HashMap<>();
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            titles.add("t" + (char) ('a' + random.nextInt(3)) + random.nextInt(100) + " part " + i % 7);
+        }
+        for (int i = 0; i < 5000; i++) {
+            String title = titles.get(random.nextInt(titles.size()));
+            if (random.nextInt(3) == 0 && counts.getOrDefault(title, 0) > 0) {
+                index.remove(title, SuggestionType.TITLE);
+                counts.merge(title, -1, Integer::sum);
+            } else {
+                index.add(title, SuggestionType.TITLE);
+                counts.merge(title, 1, Integer::sum);
+            }
+        }
+
+        for (String prefix : List.of("t", "ta", "tb1", "p", "pa", "par", "tc9", "1")) {
+            List<String> expected = counts.entrySet().stream()
+                    .filter(entry -> entry.getValue() > 0)
+                    .filter(entry -> entry.getKey().startsWith(prefix) || entry.getKey().contains(" " + prefix))
+                    .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(PrefixIndex.TOP_SIZE)
+                    .map(Map.Entry::getKey)
+                    .toList();
+
+            assertEquals(expected, index.suggest(prefix, PrefixIndex.TOP_SIZE).stream()
+                    .map(SuggestionDto::text)
+                    .toList(), prefix);
+        }
+    }
+
+}
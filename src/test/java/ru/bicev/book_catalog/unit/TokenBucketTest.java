@@ -0,0 +1,88 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.security.ratelimit.TokenBucket;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void shouldAllowBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(5, Duration.ofSeconds(5), 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(0));
+        }
+
+        assertEquals(SECOND, bucket.tryAcquire(0));
+    }
+
+    @Test
+    void shouldRefillOneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2), 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        assertEquals(SECOND / 2, bucket.tryAcquire(SECOND / 2));
+        assertEquals(0, bucket.tryAcquire(SECOND));
+        assertTrue(bucket.tryAcquire(SECOND) > 0);
+    }
+
+    @Test
+    void shouldNotSaveUpMoreThanCapacity() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofSeconds(3), 0);
+
+        long later = 100 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(later));
+        }
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    @Test
+    void shouldWorkWithNegativeClockValues() {
+        long start = Long.MIN_VALUE + SECOND;
+        TokenBucket bucket = new TokenBucket(1, Duration.ofSeconds(1), start);
+
+        assertEquals(0, bucket.tryAcquire(start));
+        assertTrue(bucket.tryAcquire(start) > 0);
+        assertEquals(0, bucket.tryAcquire(start + SECOND));
+    }
+
+    @Test
+    void shouldHandOutExactlyCapacityUnderContention() {
+        TokenBucket bucket = new TokenBucket(1000, Duration.ofHours(1), 0);
+        AtomicInteger granted = new AtomicInteger();
+
+        CompletableFuture<?>[] workers = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < 500; j++) {
+                        if (bucket.tryAcquire(0) == 0) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(workers).join();
+
+        assertEquals(1000, granted.get());
+    }
+
+    @Test
+    void shouldRejectInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, Duration.ofSeconds(1), 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, Duration.ZERO, 0));
+    }
+
+}
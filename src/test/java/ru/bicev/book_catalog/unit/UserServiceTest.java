@@ -16,6 +16,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -36,6 +37,8 @@ import ru.bicev.book_catalog.security.entity.User;
 import ru.bicev.book_catalog.security.repo.UserRepository;
 import ru.bicev.book_catalog.security.service.UserService;
 import ru.bicev.book_catalog.security.util.Role;
+import ru.bicev.book_catalog.service.PageCounter;
+import ru.bicev.book_catalog.util.CountMode;
 
 public class UserServiceTest {
 
@@ -45,6 +48,11 @@ public class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private PageCounter pageCounter;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserService userService;
 
@@ -190,7 +198,7 @@ public class UserServiceTest {
 
         when(userRepository.findAll(pageable)).thenReturn(page);
 
-        PagedResponse<UserDto> foundUsers = userService.getAllUsers(pageable);
+        PagedResponse<UserDto> foundUsers = userService.getAllUsers(pageable, CountMode.EXACT);
 
         assertEquals(user.getUsername(), foundUsers.content().get(0).username());
         assertEquals(admin.getUsername(), foundUsers.content().get(1).username());
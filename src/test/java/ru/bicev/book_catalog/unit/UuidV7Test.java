@@ -0,0 +1,53 @@
+package ru.bicev.book_catalog.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import ru.bicev.book_catalog.util.UuidV7;
+
+public class UuidV7Test {
+
+    @Test
+    void shouldSetVersionAndVariant() {
+        UUID uuid = UuidV7.generate();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+    }
+
+    @Test
+    void shouldEncodeCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.generate();
+
+        long timestamp = UuidV7.timestamp(uuid);
+
+        // the counter may push a few ids ahead of the clock
+        assertTrue(timestamp >= before && timestamp <= System.currentTimeMillis() + 100);
+    }
+
+    @Test
+    void shouldGenerateIncreasingUniqueIds() {
+        Set<UUID> seen = new HashSet<>();
+        UUID previous = UuidV7.generate();
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = UuidV7.generate();
+            assertTrue(next.compareTo(previous) > 0);
+            assertTrue(seen.add(next));
+            previous = next;
+        }
+    }
+
+    @Test
+    void shouldRejectTimestampOfRandomUuid() {
+        assertThrows(IllegalArgumentException.class, () -> UuidV7.timestamp(UUID.randomUUID()));
+    }
+
+}